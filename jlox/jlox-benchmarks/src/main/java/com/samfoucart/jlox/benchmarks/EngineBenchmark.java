@@ -0,0 +1,78 @@
+package com.samfoucart.jlox.benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.samfoucart.jlox.Backend;
+import com.samfoucart.jlox.CompiledScript;
+import com.samfoucart.jlox.ErrorReporter;
+import com.samfoucart.jlox.JloxEngine;
+import com.samfoucart.jlox.output.OutputSink;
+
+/**
+ * Executing a script compiled once against compiling it on every call,
+ * from several threads sharing the same engine and script.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class EngineBenchmark {
+    @Param({ "DEEP_NESTING", "MANY_GLOBALS", "LARGE_STRINGS" })
+    public ProgramGenerator.Shape shape;
+
+    @Param({ "100" })
+    public int size;
+
+    @Param({ "INTERPRETER", "VM" })
+    public Backend backend;
+
+    private String source;
+    private JloxEngine engine;
+    private CompiledScript script;
+    private final PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+    // Shared by every thread, so it must not keep or lock anything
+    private final OutputSink output = new OutputSink() {
+        @Override
+        public void println(String line) {
+        }
+
+        @Override
+        public void flush() {
+        }
+    };
+
+    @Setup
+    public void setup() {
+        source = ProgramGenerator.generate(shape, size);
+        engine = new JloxEngine(backend, null, 0);
+        script = engine.compile(source);
+    }
+
+    @Benchmark
+    public boolean execute() {
+        return script.execute(output, new ErrorReporter(discard));
+    }
+
+    @Benchmark
+    public boolean compileAndExecute() {
+        return engine.compile(source).execute(output, new ErrorReporter(discard));
+    }
+}
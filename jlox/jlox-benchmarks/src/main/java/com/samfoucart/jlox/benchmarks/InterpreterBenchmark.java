@@ -0,0 +1,65 @@
+package com.samfoucart.jlox.benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.samfoucart.jlox.Interpreter;
+import com.samfoucart.jlox.Parser;
+import com.samfoucart.jlox.Resolver;
+import com.samfoucart.jlox.Scanner;
+import com.samfoucart.jlox.Stmt;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InterpreterBenchmark {
+    @Param({ "DEEP_NESTING", "LONG_LOOP", "MANY_GLOBALS", "LARGE_STRINGS" })
+    public ProgramGenerator.Shape shape;
+
+    @Param({ "100", "10000" })
+    public int size;
+
+    private List<Stmt> statements;
+    private PrintStream stdout;
+
+    @Setup
+    public void setup() {
+        statements = new Parser(new Scanner(ProgramGenerator.generate(shape, size)).scanTokens()).parse();
+        new Resolver().resolve(statements);
+
+        // Keep print statements from measuring the terminal
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    public Interpreter interpret() {
+        // A fresh interpreter per run so globals from the previous run are not reused
+        Interpreter interpreter = new Interpreter();
+        interpreter.interpret(statements);
+        return interpreter;
+    }
+}
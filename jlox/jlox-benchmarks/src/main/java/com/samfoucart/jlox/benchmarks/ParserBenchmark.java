@@ -0,0 +1,56 @@
+package com.samfoucart.jlox.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.samfoucart.jlox.Parser;
+import com.samfoucart.jlox.Scanner;
+import com.samfoucart.jlox.Stmt;
+import com.samfoucart.jlox.Token;
+import com.samfoucart.jlox.TokenBuffer;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+    @Param({ "DEEP_NESTING", "LONG_LOOP", "MANY_GLOBALS", "LARGE_STRINGS" })
+    public ProgramGenerator.Shape shape;
+
+    @Param({ "100", "10000" })
+    public int size;
+
+    private List<Token> tokens;
+    private TokenBuffer buffer;
+
+    @Setup
+    public void setup() {
+        String source = ProgramGenerator.generate(shape, size);
+        tokens = new Scanner(source).scanTokens();
+        buffer = new Scanner(source).scanBuffer();
+    }
+
+    @Benchmark
+    public List<Stmt> parse() {
+        return new Parser(tokens).parse();
+    }
+
+    @Benchmark
+    public List<Stmt> parseBuffer() {
+        return new Parser(buffer).parse();
+    }
+}
@@ -0,0 +1,91 @@
+package com.samfoucart.jlox.benchmarks;
+
+/**
+ * Builds synthetic Lox programs with a given shape and size,
+ * so every phase can be measured against the same inputs.
+ */
+public final class ProgramGenerator {
+    // Deeper nesting overflows the recursive descent parser
+    private static final int MAX_NESTING = 50;
+    private static final int STRING_LENGTH = 1024;
+
+    public enum Shape {
+        DEEP_NESTING,
+        LONG_LOOP,
+        MANY_GLOBALS,
+        LARGE_STRINGS,
+    }
+
+    private ProgramGenerator() {
+    }
+
+    public static String generate(Shape shape, int size) {
+        switch (shape) {
+            case DEEP_NESTING:
+                return deepNesting(size);
+            case LONG_LOOP:
+                return longLoop(size);
+            case MANY_GLOBALS:
+                return manyGlobals(size);
+            case LARGE_STRINGS:
+                return largeStrings(size);
+            default:
+                throw new IllegalArgumentException("Unknown shape " + shape);
+        }
+    }
+
+    // Groups of blocks nested MAX_NESTING deep, each reading the enclosing block's local
+    private static String deepNesting(int size) {
+        StringBuilder source = new StringBuilder("var total = 0;\n");
+        for (int group = 0; group < Math.max(1, size / MAX_NESTING); group++) {
+            source.append("{ var v0 = ").append(group).append(";\n");
+            for (int depth = 1; depth < MAX_NESTING; depth++) {
+                source.append("{ var v").append(depth).append(" = v").append(depth - 1).append(" + 1;\n");
+            }
+            source.append("total = total + v").append(MAX_NESTING - 1).append(";\n");
+            for (int depth = 0; depth < MAX_NESTING; depth++) {
+                source.append("}\n");
+            }
+        }
+        source.append("print total;\n");
+        return source.toString();
+    }
+
+    private static String longLoop(int size) {
+        return "var i = 0;\n"
+                + "var sum = 0;\n"
+                + "while (i < " + size + ") {\n"
+                + "    var step = i * 2;\n"
+                + "    if (step > 10) {\n"
+                + "        sum = sum + step / 2;\n"
+                + "    } else {\n"
+                + "        sum = sum - 1;\n"
+                + "    }\n"
+                + "    i = i + 1;\n"
+                + "}\n"
+                + "print sum;\n";
+    }
+
+    private static String manyGlobals(int size) {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            source.append("var global").append(i).append(" = ").append(i).append(";\n");
+        }
+        source.append("var sum = 0;\n");
+        for (int i = 0; i < size; i++) {
+            source.append("sum = sum + global").append(i).append(";\n");
+        }
+        source.append("print sum;\n");
+        return source.toString();
+    }
+
+    private static String largeStrings(int size) {
+        String literal = "\"" + "lox ".repeat(STRING_LENGTH / 4) + "\"";
+        StringBuilder source = new StringBuilder("var text = \"\";\n");
+        for (int i = 0; i < size; i++) {
+            source.append("text = ").append(literal).append(";\n");
+        }
+        source.append("print text == ").append(literal).append(";\n");
+        return source.toString();
+    }
+}
@@ -0,0 +1,57 @@
+package com.samfoucart.jlox.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.samfoucart.jlox.ByteScanner;
+import com.samfoucart.jlox.Scanner;
+import com.samfoucart.jlox.Token;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScannerBenchmark {
+    @Param({ "DEEP_NESTING", "LONG_LOOP", "MANY_GLOBALS", "LARGE_STRINGS" })
+    public ProgramGenerator.Shape shape;
+
+    @Param({ "100", "10000" })
+    public int size;
+
+    private String source;
+    // Direct like a mapped file, without touching the disk
+    private ByteBuffer bytes;
+
+    @Setup
+    public void setup() {
+        source = ProgramGenerator.generate(shape, size);
+        byte[] encoded = source.getBytes(StandardCharsets.UTF_8);
+        bytes = ByteBuffer.allocateDirect(encoded.length).put(encoded).flip();
+    }
+
+    @Benchmark
+    public List<Token> scanTokens() {
+        return new Scanner(source).scanTokens();
+    }
+
+    @Benchmark
+    public List<Token> scanBytes() {
+        return new ByteScanner(bytes).scanTokens();
+    }
+}
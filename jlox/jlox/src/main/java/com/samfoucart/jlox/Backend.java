@@ -0,0 +1,9 @@
+package com.samfoucart.jlox;
+
+/** The ways a resolved program can be run, chosen with --backend. */
+public enum Backend {
+    INTERPRETER,
+    VM,
+    NODES,
+    HANDLES,
+}
@@ -0,0 +1,171 @@
+package com.samfoucart.jlox;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import com.samfoucart.jlox.handles.HandleInterpreter;
+import com.samfoucart.jlox.nodes.NodeInterpreter;
+import com.samfoucart.jlox.opt.PassManager;
+import com.samfoucart.jlox.output.MemorySink;
+import com.samfoucart.jlox.output.OutputSink;
+import com.samfoucart.jlox.vm.VM;
+
+/**
+ * Runs many scripts at once on a fixed pool of threads.
+ * Every script gets its own scanner, parser, backend, globals and ErrorReporter,
+ * and its output is collected so the scripts can be printed in the order given.
+ * A timing report and the summary follow on the error stream.
+ */
+@NullMarked
+final class BatchRunner {
+    /** What one script printed and how it ended. */
+    private static final class Result {
+        final Path script;
+        final int exitCode;
+        final long nanos;
+        final byte[] out;
+        final byte[] err;
+
+        Result(Path script, int exitCode, long nanos, byte[] out, byte[] err) {
+            this.script = script;
+            this.exitCode = exitCode;
+            this.nanos = nanos;
+            this.out = out;
+            this.err = err;
+        }
+    }
+
+    private final Backend backend;
+    private final @Nullable String passes;
+    private final boolean printOptimizerStatistics;
+    private final int jitThreshold;
+    private final int threads;
+
+    BatchRunner(Backend backend, @Nullable String passes, boolean printOptimizerStatistics,
+            int jitThreshold, int threads) {
+        this.backend = backend;
+        this.passes = passes;
+        this.printOptimizerStatistics = printOptimizerStatistics;
+        this.jitThreshold = jitThreshold;
+        this.threads = threads;
+    }
+
+    /**
+     * Runs the scripts and prints their output to out and err.
+     * Returns the highest exit code of any script, 0 when they all succeeded.
+     */
+    int run(List<Path> scripts, PrintStream out, PrintStream err) throws InterruptedException {
+        long start = System.nanoTime();
+        int poolSize = Math.max(1, Math.min(threads, scripts.size()));
+        ExecutorService pool = Executors.newFixedThreadPool(poolSize);
+        List<Result> results = new ArrayList<>();
+        try {
+            List<Future<Result>> futures = new ArrayList<>();
+            for (Path script : scripts) {
+                futures.add(pool.submit(() -> run(script)));
+            }
+
+            // Printed as soon as every script before it is done
+            for (Future<Result> future : futures) {
+                Result result = future.get();
+                out.write(result.out, 0, result.out.length);
+                out.flush();
+                err.write(result.err, 0, result.err.length);
+                results.add(result);
+            }
+        } catch (ExecutionException error) {
+            throw new IllegalStateException(error.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        return report(results, System.nanoTime() - start, poolSize, err);
+    }
+
+    private Result run(Path script) {
+        MemorySink output = new MemorySink();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        PrintStream errors = new PrintStream(err);
+        ErrorReporter reporter = new ErrorReporter(errors);
+
+        long start = System.nanoTime();
+        int exitCode;
+        try {
+            List<Stmt> statements = new Parser(Jlox.open(script, reporter).scanBuffer(), reporter).parse();
+            if (!reporter.hadError()) {
+                execute(statements, output, errors, reporter);
+            }
+            exitCode = reporter.exitCode();
+        } catch (IOException error) {
+            errors.println("Could not read " + script + ": " + error);
+            exitCode = 66;
+        } catch (RuntimeException | StackOverflowError error) {
+            // A script that breaks the interpreter only fails itself, like a runtime error
+            reporter.internalError(error);
+            exitCode = reporter.exitCode();
+        }
+        long nanos = System.nanoTime() - start;
+
+        errors.flush();
+        return new Result(script, exitCode, nanos, output.text().getBytes(Charset.defaultCharset()), err.toByteArray());
+    }
+
+    private void execute(List<Stmt> statements, OutputSink out, PrintStream err, ErrorReporter reporter) {
+        if (passes != null) {
+            // Pass managers keep statistics, so each script gets its own
+            PassManager optimizer = PassManager.fromNames(passes, printOptimizerStatistics);
+            statements = optimizer.run(statements);
+            if (printOptimizerStatistics) {
+                optimizer.printStatistics(err);
+            }
+        }
+
+        new Resolver().resolve(statements);
+
+        switch (backend) {
+            case VM:
+                new VM(out, reporter).interpret(statements);
+                break;
+            case NODES:
+                new NodeInterpreter(out, reporter).interpret(statements);
+                break;
+            case HANDLES:
+                new HandleInterpreter(out, reporter).interpret(statements);
+                break;
+            default:
+                Interpreter interpreter = new Interpreter(out, reporter);
+                interpreter.setJitThreshold(jitThreshold);
+                interpreter.interpret(statements);
+                break;
+        }
+    }
+
+    private int report(List<Result> results, long nanos, int poolSize, PrintStream err) {
+        int exitCode = 0;
+        int failed = 0;
+        long busy = 0;
+        for (Result result : results) {
+            err.printf("%-4s %10.2f ms  %s%n", result.exitCode == 0 ? "ok" : result.exitCode,
+                    result.nanos / 1e6, result.script);
+            exitCode = Math.max(exitCode, result.exitCode);
+            failed += result.exitCode == 0 ? 0 : 1;
+            busy += result.nanos;
+        }
+
+        err.printf("%d scripts, %d failed, %.2f ms on %d threads (%.2f ms of work)%n",
+                results.size(), failed, nanos / 1e6, poolSize, busy / 1e6);
+        return exitCode;
+    }
+}
@@ -0,0 +1,339 @@
+package com.samfoucart.jlox;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import com.samfoucart.jlox.metrics.RuntimeMetrics;
+
+/**
+ * Scans UTF-8 source straight from its bytes, usually a memory mapped file,
+ * so the file is never decoded into a String.
+ * Everything outside string literals is ASCII in Lox,
+ * only the contents of string literals are decoded as UTF-8.
+ * Produces the same tokens and errors as the Scanner.
+ */
+@NullMarked
+public class ByteScanner implements TokenSource {
+    private final ByteBuffer source;
+    private final int limit;
+    private @Nullable Token scanned;
+    // Receives the tokens instead while scanning into a buffer
+    private @Nullable TokenBuffer tokens;
+    private final Interner identifiers = new Interner();
+    private final ErrorReporter reporter;
+    private byte[] scratch = new byte[64];
+    private int line;
+    private int current;
+    private int start;
+
+    public ByteScanner(ByteBuffer source) {
+        this(source, Jlox.reporter());
+    }
+
+    public ByteScanner(ByteBuffer source, ErrorReporter reporter) {
+        this.source = source;
+        limit = source.limit();
+        this.reporter = reporter;
+        line = 1;
+        current = 0;
+        start = 0;
+    }
+
+    public static ByteScanner map(Path path) throws IOException {
+        return map(path, Jlox.reporter());
+    }
+
+    public static ByteScanner map(Path path, ErrorReporter reporter) throws IOException {
+        return new ByteScanner(mapFile(path), reporter);
+    }
+
+    /**
+     * Maps a file read only. The mapping stays valid after the channel is closed.
+     */
+    public static ByteBuffer mapFile(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    @Override
+    public TokenBuffer scanBuffer() {
+        long started = System.nanoTime();
+        tokens = new TokenBuffer((from, length) -> utf8(from, from + length),
+                (from, length) -> identifiers.intern(source, from, length));
+        while (!isAtEnd()) {
+            start = current;
+            scanToken();
+        }
+
+        tokens.add(TokenType.EOF, current, 0, line, null);
+        RuntimeMetrics.get().addPhase(RuntimeMetrics.Phase.SCAN, System.nanoTime() - started);
+        return tokens;
+    }
+
+    @Override
+    public Token nextToken() {
+        while (!isAtEnd()) {
+            // We are at the beginning of the next lexeme
+            start = current;
+            scanToken();
+
+            if (scanned != null) {
+                Token token = scanned;
+                scanned = null;
+                return token;
+            }
+        }
+
+        start = current;
+        return new Token(TokenType.EOF, "", null, line);
+    }
+
+    private void scanToken() {
+        byte c = advance();
+        switch (c) {
+            case '{':
+                addToken(TokenType.LEFT_BRACE, "{");
+                break;
+            case '}':
+                addToken(TokenType.RIGHT_BRACE, "}");
+                break;
+            case '(':
+                addToken(TokenType.LEFT_PAREN, "(");
+                break;
+            case ')':
+                addToken(TokenType.RIGHT_PAREN, ")");
+                break;
+            case ',':
+                addToken(TokenType.COMMA, ",");
+                break;
+            case '.':
+                addToken(TokenType.DOT, ".");
+                break;
+            case '-':
+                addToken(TokenType.MINUS, "-");
+                break;
+            case '+':
+                addToken(TokenType.PLUS, "+");
+                break;
+            case ';':
+                addToken(TokenType.SEMICOLON, ";");
+                break;
+            case '*':
+                addToken(TokenType.STAR, "*");
+                break;
+            case '!':
+                if (match('=')) {
+                    addToken(TokenType.BANG_EQUAL, "!=");
+                } else {
+                    addToken(TokenType.BANG, "!");
+                }
+                break;
+            case '=':
+                if (match('=')) {
+                    addToken(TokenType.EQUAL_EQUAL, "==");
+                } else {
+                    addToken(TokenType.EQUAL, "=");
+                }
+                break;
+            case '>':
+                if (match('=')) {
+                    addToken(TokenType.GREATER_EQUAL, ">=");
+                } else {
+                    addToken(TokenType.GREATER, ">");
+                }
+                break;
+            case '<':
+                if (match('=')) {
+                    addToken(TokenType.LESS_EQUAL, "<=");
+                } else {
+                    addToken(TokenType.LESS, "<");
+                }
+                break;
+            case '"':
+                string();
+                break;
+            case '/':
+                if (match('/')) {
+                    // A comment goes until the end of the line
+                    while (peek() != '\n' && !isAtEnd()) {
+                        advance();
+                    }
+                } else {
+                    addToken(TokenType.SLASH, "/");
+                }
+                break;
+            case ' ':
+            case '\r':
+            case '\t':
+                // Ignore whitespace
+                break;
+            case '\n':
+                line++;
+                break;
+            default:
+                if (isDigit(c)) {
+                    number();
+                } else if (isAlpha(c)) {
+                    identifier();
+                } else {
+                    // A multi byte character is reported once, like the Scanner does
+                    while (isContinuation(peek())) {
+                        advance();
+                    }
+                    reporter.error(line, "Unexpected character.");
+                }
+                break;
+        }
+    }
+
+    private void identifier() {
+        while (isAlphaNumeric(peek())) {
+            advance();
+        }
+
+        // Only real identifiers get a String, through the interning table
+        int length = current - start;
+        @Nullable TokenType type = Keywords.match(source, start, length);
+        if (tokens != null) {
+            tokens.add(type != null ? type : TokenType.IDENTIFIER, start, length, line, null);
+        } else if (type != null) {
+            String text = Keywords.spelling(type);
+            scanned = new Token(type, text, text, line);
+        } else {
+            Symbol symbol = identifiers.intern(source, start, length);
+            scanned = new Token(TokenType.IDENTIFIER, symbol.name, symbol.name, line, symbol);
+        }
+    }
+
+    private void number() {
+        while (isDigit(peek())) {
+            advance();
+        }
+
+        // look for a fractional part
+        if (peek() == '.' && isDigit(peekNext())) {
+            // consume the .
+            advance();
+
+            while (isDigit(peek())) {
+                advance();
+            }
+        }
+
+        String text = ascii(start, current);
+        addToken(TokenType.NUMBER, text, Double.parseDouble(text));
+    }
+
+    private void string() {
+        while (peek() != '"' && !isAtEnd()) {
+            if (peek() == '\n') {
+                line++;
+            }
+            advance();
+        }
+
+        if (isAtEnd()) {
+            reporter.error(line, "Unterminated string.");
+            return;
+        }
+
+        // The closing "
+        advance();
+
+        // Trim the surrounding quotes
+        String value = utf8(start + 1, current - 1);
+        addToken(TokenType.STRING, "\"" + value + "\"", value);
+    }
+
+    private void addToken(TokenType type, String lexeme) {
+        addToken(type, lexeme, null);
+    }
+
+    private void addToken(TokenType type, String lexeme, @Nullable Object literal) {
+        if (tokens != null) {
+            tokens.add(type, start, current - start, line, literal);
+        } else {
+            scanned = new Token(type, lexeme, literal, line);
+        }
+    }
+
+    // Copies a lexeme out of the buffer, ASCII bytes map one to one to Latin-1 strings
+    private String ascii(int from, int to) {
+        return new String(bytes(from, to), 0, to - from, StandardCharsets.ISO_8859_1);
+    }
+
+    private String utf8(int from, int to) {
+        return new String(bytes(from, to), 0, to - from, StandardCharsets.UTF_8);
+    }
+
+    private byte[] bytes(int from, int to) {
+        int length = to - from;
+        if (length > scratch.length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+
+        source.get(from, scratch, 0, length);
+        return scratch;
+    }
+
+    private boolean isDigit(byte c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private boolean isAlpha(byte c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+
+    private boolean isAlphaNumeric(byte c) {
+        return isAlpha(c) || isDigit(c);
+    }
+
+    private boolean isContinuation(byte c) {
+        return (c & 0xc0) == 0x80;
+    }
+
+    private boolean isAtEnd() {
+        return current >= limit;
+    }
+
+    private byte advance() {
+        return source.get(current++);
+    }
+
+    private boolean match(char c) {
+        if (isAtEnd()) {
+            return false;
+        }
+
+        if (source.get(current) == c) {
+            ++current;
+            return true;
+        }
+
+        return false;
+    }
+
+    private byte peek() {
+        if (isAtEnd()) {
+            return '\0';
+        }
+
+        return source.get(current);
+    }
+
+    private byte peekNext() {
+        if (current + 1 >= limit) {
+            return '\0';
+        }
+
+        return source.get(current + 1);
+    }
+}
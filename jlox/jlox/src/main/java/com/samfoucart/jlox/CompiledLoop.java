@@ -0,0 +1,39 @@
+package com.samfoucart.jlox;
+
+import java.lang.invoke.MethodHandle;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import com.samfoucart.jlox.output.OutputSink;
+
+/**
+ * JVM bytecode for a hot while loop, produced by the jit LoopCompiler.
+ * The compiled code starts at the loop condition,
+ * so the Interpreter can switch to it between two iterations.
+ */
+@NullMarked
+public final class CompiledLoop {
+    private final MethodHandle code;
+    private final @Nullable Object[] constants;
+
+    public CompiledLoop(MethodHandle code, @Nullable Object[] constants) {
+        this.code = code;
+        this.constants = constants;
+    }
+
+    /**
+     * Runs the loop until its condition is false, printing to out.
+     * Returns false without running anything when the variables
+     * no longer have the types the loop was compiled for.
+     */
+    public boolean run(@Nullable Frame frame, Environment globals, OutputSink out) {
+        try {
+            return (boolean) code.invokeExact(frame, globals, constants, out);
+        } catch (RuntimeException | Error error) {
+            throw error;
+        } catch (Throwable error) {
+            throw new IllegalStateException(error);
+        }
+    }
+}
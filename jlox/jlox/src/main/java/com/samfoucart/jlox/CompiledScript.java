@@ -0,0 +1,62 @@
+package com.samfoucart.jlox;
+
+import java.util.List;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import com.samfoucart.jlox.handles.HandleProgram;
+import com.samfoucart.jlox.nodes.NodeInterpreter;
+import com.samfoucart.jlox.output.OutputSink;
+import com.samfoucart.jlox.vm.Program;
+
+/**
+ * A script compiled by a JloxEngine, ready to run.
+ * The resolved statements, or the bytecode or method handles for the VM and handles backends,
+ * are never changed by running them.
+ * The only exception is the jit state on while loops, which is safe to race on.
+ * Every execution gets fresh globals and its own output, so threads can execute a script concurrently.
+ */
+@NullMarked
+public final class CompiledScript {
+    private final Backend backend;
+    private final List<Stmt> statements;
+    private final @Nullable Program program;
+    private final @Nullable HandleProgram handles;
+    private final int jitThreshold;
+
+    CompiledScript(Backend backend, List<Stmt> statements, @Nullable Program program, @Nullable HandleProgram handles,
+            int jitThreshold) {
+        this.backend = backend;
+        this.statements = statements;
+        this.program = program;
+        this.handles = handles;
+        this.jitThreshold = jitThreshold;
+    }
+
+    /**
+     * Runs the script with fresh globals, printing to out.
+     * Returns false if it stopped on a runtime error, which is reported to the reporter.
+     * Like the output, the reporter belongs to this one execution.
+     */
+    public boolean execute(OutputSink out, ErrorReporter reporter) {
+        switch (backend) {
+            case VM:
+                program.run(out, reporter);
+                break;
+            case NODES:
+                new NodeInterpreter(out, reporter).interpret(statements);
+                break;
+            case HANDLES:
+                handles.run(out, reporter);
+                break;
+            default:
+                Interpreter interpreter = new Interpreter(out, reporter);
+                interpreter.setJitThreshold(jitThreshold);
+                interpreter.interpret(statements);
+                break;
+        }
+
+        return !reporter.hadRuntimeError();
+    }
+}
@@ -0,0 +1,40 @@
+package com.samfoucart.jlox;
+
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * A syntax or runtime error reported during a run.
+ * toString gives the text printed for it.
+ */
+@NullMarked
+public final class Diagnostic {
+    public enum Kind {
+        SYNTAX,
+        RUNTIME,
+    }
+
+    /** The line of an error that does not come from any line of the source. */
+    public static final int NO_LINE = 0;
+
+    public final Kind kind;
+    public final int line;
+    // Where on the line a syntax error is, like " at 'x'" or " at end", empty if unknown or at runtime
+    public final String where;
+    public final String message;
+
+    public Diagnostic(Kind kind, int line, String where, String message) {
+        this.kind = kind;
+        this.line = line;
+        this.where = where;
+        this.message = message;
+    }
+
+    @Override
+    public String toString() {
+        if (kind == Kind.RUNTIME) {
+            return line == NO_LINE ? message : message + "\n[line " + line + "]";
+        }
+
+        return "[line " + line + "] Error" + where + ": " + message;
+    }
+}
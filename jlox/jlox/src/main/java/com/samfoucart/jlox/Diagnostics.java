@@ -0,0 +1,58 @@
+package com.samfoucart.jlox;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import com.samfoucart.jlox.output.OutputSink;
+
+/**
+ * An ErrorReporter that keeps every error of the run as a Diagnostic,
+ * for callers that want to inspect them rather than read them off a stream,
+ * like tools running fuzz corpora or scripts submitted by users.
+ */
+@NullMarked
+public class Diagnostics extends ErrorReporter {
+    private final List<Diagnostic> diagnostics = new ArrayList<>();
+    private final boolean print;
+
+    /** Collects errors without printing them. */
+    public Diagnostics() {
+        super(new PrintStream(OutputStream.nullOutputStream()));
+        this.print = false;
+    }
+
+    /** Collects errors and prints them to err as they are reported. */
+    public Diagnostics(PrintStream err, @Nullable OutputSink output) {
+        super(err, output);
+        this.print = true;
+    }
+
+    @Override
+    protected void report(Diagnostic diagnostic) {
+        diagnostics.add(diagnostic);
+        if (print) {
+            super.report(diagnostic);
+        }
+    }
+
+    /** The errors reported so far, in order. */
+    public List<Diagnostic> all() {
+        return Collections.unmodifiableList(diagnostics);
+    }
+
+    public int count(Diagnostic.Kind kind) {
+        int count = 0;
+        for (Diagnostic diagnostic : diagnostics) {
+            if (diagnostic.kind == kind) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
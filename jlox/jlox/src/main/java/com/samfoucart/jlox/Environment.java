@@ -1,53 +1,115 @@
 package com.samfoucart.jlox;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 
+/**
+ * Variables by name, used for the globals.
+ * Names are Symbols, stored in an open addressing table
+ * and compared by identity, so a lookup never hashes or compares strings.
+ */
 @NullMarked
 public class Environment {
     private final @Nullable Environment enclosing;
-    private final Map<String, @Nullable Object> values;
+    private @Nullable Symbol[] keys = new Symbol[16];
+    private @Nullable Object[] values = new Object[16];
+    private int count = 0;
 
     public Environment() {
-        values = new HashMap<>();
         enclosing = null;
     }
 
     public Environment(Environment previous) {
-        values = new HashMap<>();
         this.enclosing = previous;
     }
 
     public @Nullable Object getValue(Token name) {
-        if (values.containsKey(name.lexeme)) {
-            return values.get(name.lexeme);
+        Symbol symbol = symbol(name);
+        for (Environment environment = this; environment != null; environment = environment.enclosing) {
+            int index = environment.find(symbol);
+            if (environment.keys[index] != null) {
+                return environment.values[index];
+            }
         }
 
-        if (enclosing != null) {
-            return enclosing.getValue(name);
+        throw new JloxRuntimeError(name, "Undefined Variable: '" + name.lexeme + "'.");
+    }
+
+    public boolean isDefined(Token name) {
+        Symbol symbol = symbol(name);
+        for (Environment environment = this; environment != null; environment = environment.enclosing) {
+            if (environment.keys[environment.find(symbol)] != null) {
+                return true;
+            }
         }
 
-        throw new JloxRuntimeError(name, "Undefined Variable: '" + name.lexeme + "'.");
+        return false;
     }
 
-    public Object define(String key, @Nullable Object value) {
-        return values.put(key, value);
+    public @Nullable Object define(String key, @Nullable Object value) {
+        return define(Symbol.of(key), value);
     }
 
-    public void assign(Token name, Object value) {
-        if (values.containsKey(name.lexeme)) {
-            values.put(name.lexeme, value);
-            return;
+    public @Nullable Object define(Token name, @Nullable Object value) {
+        return define(symbol(name), value);
+    }
+
+    public @Nullable Object define(Symbol symbol, @Nullable Object value) {
+        int index = find(symbol);
+        if (keys[index] != null) {
+            Object previous = values[index];
+            values[index] = value;
+            return previous;
         }
 
-        if (enclosing != null) {
-            enclosing.assign(name, value);
-            return;
+        keys[index] = symbol;
+        values[index] = value;
+        if (++count * 2 > keys.length) {
+            grow();
+        }
+        return null;
+    }
+
+    public void assign(Token name, @Nullable Object value) {
+        Symbol symbol = symbol(name);
+        for (Environment environment = this; environment != null; environment = environment.enclosing) {
+            int index = environment.find(symbol);
+            if (environment.keys[index] != null) {
+                environment.values[index] = value;
+                return;
+            }
         }
 
         throw new JloxRuntimeError(name, "Undefined variable '" + name.lexeme + "'.");
     }
+
+    // Tokens from the scanners carry their symbol, hand built ones are interned here
+    private static Symbol symbol(Token name) {
+        return name.symbol != null ? name.symbol : Symbol.of(name.lexeme);
+    }
+
+    // The slot holding the symbol, or the empty slot where it would go
+    private int find(Symbol symbol) {
+        int mask = keys.length - 1;
+        int index = symbol.hash & mask;
+        while (keys[index] != null && keys[index] != symbol) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void grow() {
+        Symbol[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new Symbol[oldKeys.length * 2];
+        values = new Object[oldKeys.length * 2];
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int index = find(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
 }
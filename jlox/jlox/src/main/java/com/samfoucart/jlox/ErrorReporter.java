@@ -0,0 +1,104 @@
+package com.samfoucart.jlox;
+
+import java.io.PrintStream;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import com.samfoucart.jlox.metrics.RuntimeMetrics;
+import com.samfoucart.jlox.output.OutputSink;
+
+/**
+ * Reports syntax and runtime errors for one run and remembers whether any happened.
+ * The scanners, the Parser and every backend take one,
+ * so runs that each have their own can happen at the same time.
+ */
+@NullMarked
+public class ErrorReporter {
+    private final PrintStream err;
+    // Output buffered by the program is flushed before an error, so they appear in order
+    private final @Nullable OutputSink output;
+    private boolean hadError = false;
+    private boolean hadRuntimeError = false;
+
+    public ErrorReporter(PrintStream err) {
+        this(err, null);
+    }
+
+    public ErrorReporter(PrintStream err, @Nullable OutputSink output) {
+        this.err = err;
+        this.output = output;
+    }
+
+    public void error(int line, String message) {
+        report(line, "", message);
+    }
+
+    public void error(Token token, String message) {
+        if (token.type == TokenType.EOF) {
+            report(token.line, " at end", message);
+        } else {
+            report(token.line, " at '" + token.lexeme + "'", message);
+        }
+    }
+
+    public void runtimeError(JloxRuntimeError error) {
+        RuntimeMetrics.get().addRuntimeError();
+        report(new Diagnostic(Diagnostic.Kind.RUNTIME, error.getToken().line, "", error.getMessage()));
+        hadRuntimeError = true;
+    }
+
+    /**
+     * Reports a failure of the interpreter itself, like running out of stack,
+     * as a runtime error of the program that caused it.
+     */
+    public void internalError(Throwable error) {
+        RuntimeMetrics.get().addRuntimeError();
+        String message = error instanceof StackOverflowError ? "Stack overflow." : "Internal error: " + error;
+        report(new Diagnostic(Diagnostic.Kind.RUNTIME, Diagnostic.NO_LINE, "", message));
+        hadRuntimeError = true;
+    }
+
+    private void report(int line, String where, String message) {
+        report(new Diagnostic(Diagnostic.Kind.SYNTAX, line, where, message));
+        hadError = true;
+    }
+
+    /** Prints the error, subclasses can keep it instead. */
+    protected void report(Diagnostic diagnostic) {
+        flushOutput();
+        err.println(diagnostic);
+    }
+
+    private void flushOutput() {
+        if (output != null) {
+            output.flush();
+        }
+    }
+
+    public boolean hadError() {
+        return hadError;
+    }
+
+    public boolean hadRuntimeError() {
+        return hadRuntimeError;
+    }
+
+    /** Forgets syntax errors, like the REPL does after each line. */
+    public void clearError() {
+        hadError = false;
+    }
+
+    /** The exit code for the run: 65 after a syntax error, 75 after a runtime error, 0 otherwise. */
+    public int exitCode() {
+        if (hadError) {
+            return 65;
+        }
+
+        if (hadRuntimeError) {
+            return 75;
+        }
+
+        return 0;
+    }
+}
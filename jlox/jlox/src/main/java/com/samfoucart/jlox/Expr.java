@@ -2,8 +2,8 @@ package com.samfoucart.jlox;
 
 import java.util.List;
 
-abstract class Expr {
-    interface Visitor<R> {
+public abstract class Expr {
+    public interface Visitor<R> {
         R visitAssignExpr(Assign expr);
         R visitBinaryExpr(Binary expr);
         R visitGroupingExpr(Grouping expr);
@@ -12,92 +12,96 @@ abstract class Expr {
         R visitVariableExpr(Variable expr);
     }
 
-    static class Assign extends Expr {
-        Assign(Token name, Expr value) {
+    public static class Assign extends Expr {
+        public Assign(Token name, Expr value) {
             this.name = name;
             this.value = value;
         }
 
         @Override
-        <R> R accept(Visitor<R> visitor) {
+        public <R> R accept(Visitor<R> visitor) {
             return visitor.visitAssignExpr(this);
         }
 
-        final Token name;
-        final Expr value;
+        public final Token name;
+        public final Expr value;
+        public int depth = -1;
+        public int slot = -1;
     }
 
-    static class Binary extends Expr {
-        Binary(Expr left, Token operator, Expr right) {
+    public static class Binary extends Expr {
+        public Binary(Expr left, Token operator, Expr right) {
             this.left = left;
             this.operator = operator;
             this.right = right;
         }
 
         @Override
-        <R> R accept(Visitor<R> visitor) {
+        public <R> R accept(Visitor<R> visitor) {
             return visitor.visitBinaryExpr(this);
         }
 
-        final Expr left;
-        final Token operator;
-        final Expr right;
+        public final Expr left;
+        public final Token operator;
+        public final Expr right;
     }
 
-    static class Grouping extends Expr {
-        Grouping(Expr expression) {
+    public static class Grouping extends Expr {
+        public Grouping(Expr expression) {
             this.expression = expression;
         }
 
         @Override
-        <R> R accept(Visitor<R> visitor) {
+        public <R> R accept(Visitor<R> visitor) {
             return visitor.visitGroupingExpr(this);
         }
 
-        final Expr expression;
+        public final Expr expression;
     }
 
-    static class Literal extends Expr {
-        Literal(Object value) {
+    public static class Literal extends Expr {
+        public Literal(Object value) {
             this.value = value;
         }
 
         @Override
-        <R> R accept(Visitor<R> visitor) {
+        public <R> R accept(Visitor<R> visitor) {
             return visitor.visitLiteralExpr(this);
         }
 
-        final Object value;
+        public final Object value;
     }
 
-    static class Unary extends Expr {
-        Unary(Token operator, Expr right) {
+    public static class Unary extends Expr {
+        public Unary(Token operator, Expr right) {
             this.operator = operator;
             this.right = right;
         }
 
         @Override
-        <R> R accept(Visitor<R> visitor) {
+        public <R> R accept(Visitor<R> visitor) {
             return visitor.visitUnaryExpr(this);
         }
 
-        final Token operator;
-        final Expr right;
+        public final Token operator;
+        public final Expr right;
     }
 
-    static class Variable extends Expr {
-        Variable(Token name) {
+    public static class Variable extends Expr {
+        public Variable(Token name) {
             this.name = name;
         }
 
         @Override
-        <R> R accept(Visitor<R> visitor) {
+        public <R> R accept(Visitor<R> visitor) {
             return visitor.visitVariableExpr(this);
         }
 
-        final Token name;
+        public final Token name;
+        public int depth = -1;
+        public int slot = -1;
     }
 
 
-    abstract <R> R accept(Visitor<R> visitor);
+    public abstract <R> R accept(Visitor<R> visitor);
 }
@@ -0,0 +1,53 @@
+package com.samfoucart.jlox;
+
+import java.util.Arrays;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Array backed environment for the locals of a block.
+ * The Resolver assigns every local a (depth, slot) pair,
+ * so values are reached by index instead of by name.
+ * Globals still live in the symbol keyed Environment.
+ */
+@NullMarked
+public class Frame {
+    private final @Nullable Frame enclosing;
+    private final @Nullable Object[] slots;
+
+    public Frame(int size, @Nullable Frame enclosing) {
+        this.slots = new Object[size];
+        this.enclosing = enclosing;
+    }
+
+    public @Nullable Object get(int depth, int slot) {
+        return ancestor(depth).slots[slot];
+    }
+
+    public void set(int depth, int slot, @Nullable Object value) {
+        ancestor(depth).slots[slot] = value;
+    }
+
+    /** Forgets every local, so the frame can be used again for the next run of its block. */
+    public void clear() {
+        Arrays.fill(slots, null);
+    }
+
+    /**
+     * The slots of an enclosing frame, used by compiled loops
+     * to read and write locals without walking the chain.
+     */
+    public @Nullable Object[] slots(int depth) {
+        return ancestor(depth).slots;
+    }
+
+    private Frame ancestor(int depth) {
+        Frame frame = this;
+        for (int i = 0; i < depth; i++) {
+            frame = frame.enclosing;
+        }
+
+        return frame;
+    }
+}
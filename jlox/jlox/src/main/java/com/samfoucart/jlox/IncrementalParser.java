@@ -0,0 +1,280 @@
+package com.samfoucart.jlox;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import com.samfoucart.jlox.metrics.RuntimeMetrics;
+
+/**
+ * Keeps the tokens and top level statements of a source that is edited in place, like in an editor.
+ * An edit only scans again from the token before it until the new tokens line up with the old ones,
+ * and only parses again the top level statements whose tokens changed.
+ * Every other statement is the same object as before the edit.
+ * Tokens carry absolute lines for error messages, so an edit that adds or removes lines
+ * moves the tokens after it without scanning them, but parses the statements after it again.
+ * Top level statements are resolved independently of each other,
+ * so only the statements returned by edit need to go through the Resolver.
+ */
+@NullMarked
+public final class IncrementalParser {
+    private final ErrorReporter reporter;
+    // The source is the first length characters, the rest is room to grow
+    private char[] text = new char[64];
+    private int length = 0;
+    // Every token up to and including EOF
+    private final ArrayList<Token> tokens = new ArrayList<>();
+    // Where each token starts. Edits move the tokens after them, which is done lazily:
+    // from the token at shiftFrom on, a token starts shift characters after its stored start.
+    private int[] starts = new int[64];
+    private int shiftFrom = 0;
+    private int shift = 0;
+    // Statements are null after a syntax error, like in Parser.parse
+    private final ArrayList<@Nullable Stmt> statements = new ArrayList<>();
+    private int errors = 0;
+    // The index of the first token of each statement
+    private int[] statementStarts = new int[64];
+
+    public IncrementalParser(String source, ErrorReporter reporter) {
+        this.reporter = reporter;
+        tokens.add(new Token(TokenType.EOF, "", null, 1));
+        edit(0, 0, source);
+    }
+
+    public String source() {
+        return new String(text, 0, length);
+    }
+
+    public List<@Nullable Stmt> statements() {
+        return Collections.unmodifiableList(statements);
+    }
+
+    /**
+     * Replaces removed characters at offset with inserted.
+     * Returns the statements that were parsed again, in order.
+     */
+    public List<@Nullable Stmt> edit(int offset, int removed, String inserted) {
+        if (offset < 0 || removed < 0 || offset + removed > length) {
+            throw new IndexOutOfBoundsException("Edit of " + removed + " at " + offset + " outside of " + length);
+        }
+
+        long started = System.nanoTime();
+        int delta = inserted.length() - removed;
+        if (length + delta > text.length) {
+            text = Arrays.copyOf(text, Math.max(text.length * 2, length + delta));
+        }
+        System.arraycopy(text, offset + removed, text, offset + inserted.length(), length - offset - removed);
+        inserted.getChars(0, inserted.length(), text, offset);
+        length += delta;
+
+        // Scan from the end of the last token that ends before the edit,
+        // a token ending right at it could be extended by it
+        int eof = tokens.size() - 1;
+        int first = firstEndingAtOrAfter(offset, eof);
+        int from = first == 0 ? 0 : end(first - 1);
+        int line = first == 0 ? 1 : tokens.get(first - 1).line;
+        Scanner scanner = new Scanner(text, from, length, line, reporter);
+
+        // Until a new token starts where an old one after the edit started, moved by delta.
+        // The scanner has no other state between tokens, so the rest would be scanned the same.
+        int editEnd = offset + inserted.length();
+        int next = first;
+        int lineDelta;
+        List<Token> scanned = new ArrayList<>();
+        int[] scannedStarts = new int[16];
+        while (true) {
+            Token token = scanner.nextToken();
+            int start = scanner.tokenStart();
+            if (token.type == TokenType.EOF) {
+                next = eof;
+                lineDelta = token.line - tokens.get(eof).line;
+                break;
+            }
+
+            if (start >= editEnd) {
+                while (next < eof && (start(next) < offset + removed || start(next) + delta < start)) {
+                    next++;
+                }
+
+                Token old = tokens.get(next);
+                if (next < eof && start(next) + delta == start && old.type == token.type && old.lexeme.equals(token.lexeme)) {
+                    lineDelta = token.line - old.line;
+                    break;
+                }
+            }
+
+            if (scanned.size() == scannedStarts.length) {
+                scannedStarts = Arrays.copyOf(scannedStarts, scannedStarts.length * 2);
+            }
+            scannedStarts[scanned.size()] = start;
+            scanned.add(token);
+        }
+
+        replaceTokens(first, next, scanned, scannedStarts, delta);
+        if (lineDelta != 0) {
+            for (int i = first + scanned.size(); i < tokens.size(); i++) {
+                Token token = tokens.get(i);
+                tokens.set(i, new Token(token.type, token.lexeme, token.literal, token.line + lineDelta, token.symbol));
+            }
+        }
+        long parsing = System.nanoTime();
+        RuntimeMetrics.get().addPhase(RuntimeMetrics.Phase.SCAN, parsing - started);
+
+        List<@Nullable Stmt> parsed = parse(first, first + scanned.size(), scanned.size() - (next - first), lineDelta);
+        RuntimeMetrics.get().addPhase(RuntimeMetrics.Phase.PARSE, System.nanoTime() - parsing);
+        return parsed;
+    }
+
+    // Replaces the tokens from first up to next with the scanned ones,
+    // the tokens after them move by delta characters
+    private void replaceTokens(int first, int next, List<Token> scanned, int[] scannedStarts, int delta) {
+        int count = tokens.size();
+        // Settle the pending shift between its start and the edit, so a single shift covers everything after the edit
+        for (int i = shiftFrom; i < first; i++) {
+            starts[i] += shift;
+        }
+        for (int i = next; i < shiftFrom && i < count; i++) {
+            starts[i] -= shift;
+        }
+
+        int added = scanned.size();
+        if (count + added - (next - first) > starts.length) {
+            starts = Arrays.copyOf(starts, Math.max(starts.length * 2, count + added - (next - first)));
+        }
+        System.arraycopy(starts, next, starts, first + added, count - next);
+        System.arraycopy(scannedStarts, 0, starts, first, added);
+        shiftFrom = first + added;
+        shift += delta;
+
+        if (added == next - first) {
+            for (int i = 0; i < added; i++) {
+                tokens.set(first + i, scanned.get(i));
+            }
+        } else {
+            tokens.subList(first, next).clear();
+            tokens.addAll(first, scanned);
+        }
+    }
+
+    // Parses the statements over the tokens from first up to changedEnd again,
+    // then reuses the old statements from the first one that starts after them.
+    private List<@Nullable Stmt> parse(int first, int changedEnd, int tokenDelta, int lineDelta) {
+        // Statements with syntax errors are always parsed again, so their errors are reported again
+        int firstError = statements.size();
+        int lastError = -1;
+        for (int i = 0; errors > 0 && i < statements.size(); i++) {
+            if (statements.get(i) == null) {
+                firstError = Math.min(firstError, i);
+                lastError = i;
+            }
+        }
+
+        // The statement before the edit saw its first token as lookahead, an else for example
+        int firstStatement = Math.min(statementAt(Math.max(first - 1, 0)), firstError);
+        int from = firstStatement < statements.size() ? statementStarts[firstStatement] : 0;
+
+        Parser parser = new Parser(tokens.subList(from, tokens.size()), reporter);
+        List<@Nullable Stmt> parsed = new ArrayList<>();
+        int[] parsedStarts = new int[16];
+        int old = firstStatement;
+        int resume = statements.size();
+        while (!parser.isAtEnd()) {
+            int position = from + parser.position();
+            if (position >= changedEnd && lineDelta == 0) {
+                while (old < statements.size() && statementStarts[old] < position - tokenDelta) {
+                    old++;
+                }
+
+                if (old < statements.size() && statementStarts[old] == position - tokenDelta && old > lastError) {
+                    resume = old;
+                    break;
+                }
+            }
+
+            if (parsed.size() == parsedStarts.length) {
+                parsedStarts = Arrays.copyOf(parsedStarts, parsedStarts.length * 2);
+            }
+            parsedStarts[parsed.size()] = position;
+            Stmt statement = parser.parseDeclaration();
+            parsed.add(statement);
+            if (statement == null) {
+                errors++;
+            }
+        }
+
+        replaceStatements(firstStatement, resume, parsed, parsedStarts, tokenDelta);
+        return parsed;
+    }
+
+    private void replaceStatements(int first, int next, List<@Nullable Stmt> parsed, int[] parsedStarts, int tokenDelta) {
+        int count = statements.size();
+        int added = parsed.size();
+        for (int i = first; i < next; i++) {
+            if (statements.get(i) == null) {
+                errors--;
+            }
+        }
+
+        if (count + added - (next - first) > statementStarts.length) {
+            statementStarts = Arrays.copyOf(statementStarts, Math.max(statementStarts.length * 2, count + added - (next - first)));
+        }
+        System.arraycopy(statementStarts, next, statementStarts, first + added, count - next);
+        System.arraycopy(parsedStarts, 0, statementStarts, first, added);
+        if (tokenDelta != 0) {
+            for (int i = first + added; i < count + added - (next - first); i++) {
+                statementStarts[i] += tokenDelta;
+            }
+        }
+
+        if (added == next - first) {
+            for (int i = 0; i < added; i++) {
+                statements.set(first + i, parsed.get(i));
+            }
+        } else {
+            statements.subList(first, next).clear();
+            statements.addAll(first, parsed);
+        }
+    }
+
+    private int start(int token) {
+        return token >= shiftFrom ? starts[token] + shift : starts[token];
+    }
+
+    private int end(int token) {
+        return start(token) + tokens.get(token).lexeme.length();
+    }
+
+    // Tokens do not overlap, so their ends are increasing
+    private int firstEndingAtOrAfter(int offset, int eof) {
+        int low = 0;
+        int high = eof;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (end(middle) < offset) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // The index of the statement containing a token, 0 if there are no statements
+    private int statementAt(int token) {
+        int low = 0;
+        int high = statements.size() - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (statementStarts[middle] <= token) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return Math.max(low, 0);
+    }
+}
@@ -0,0 +1,119 @@
+package com.samfoucart.jlox;
+
+import java.nio.ByteBuffer;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Open addressing table of identifier Symbols, looked up by a range of the source.
+ * A name is only turned into a String and interned the first time
+ * a scanner sees it, every later occurrence returns the same Symbol
+ * without locking the global symbol table.
+ */
+@NullMarked
+final class Interner {
+    private @Nullable Symbol[] symbols = new Symbol[64];
+    private int[] hashes = new int[64];
+    private int count = 0;
+
+    Symbol intern(char[] source, int start, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + source[start + i];
+        }
+
+        int mask = symbols.length - 1;
+        for (int index = hash & mask; ; index = (index + 1) & mask) {
+            Symbol symbol = symbols[index];
+            if (symbol == null) {
+                return add(index, hash, new String(source, start, length));
+            }
+
+            if (hashes[index] == hash && equals(symbol.name, source, start, length)) {
+                return symbol;
+            }
+        }
+    }
+
+    // Identifiers are ASCII, so every byte is one character
+    Symbol intern(ByteBuffer source, int start, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + source.get(start + i);
+        }
+
+        int mask = symbols.length - 1;
+        for (int index = hash & mask; ; index = (index + 1) & mask) {
+            Symbol symbol = symbols[index];
+            if (symbol == null) {
+                char[] chars = new char[length];
+                for (int i = 0; i < length; i++) {
+                    chars[i] = (char) source.get(start + i);
+                }
+                return add(index, hash, new String(chars));
+            }
+
+            if (hashes[index] == hash && equals(symbol.name, source, start, length)) {
+                return symbol;
+            }
+        }
+    }
+
+    private Symbol add(int index, int hash, String name) {
+        Symbol symbol = Symbol.of(name);
+        symbols[index] = symbol;
+        hashes[index] = hash;
+        if (++count * 2 > symbols.length) {
+            grow();
+        }
+        return symbol;
+    }
+
+    private void grow() {
+        Symbol[] oldSymbols = symbols;
+        int[] oldHashes = hashes;
+        symbols = new Symbol[oldSymbols.length * 2];
+        hashes = new int[oldSymbols.length * 2];
+
+        int mask = symbols.length - 1;
+        for (int i = 0; i < oldSymbols.length; i++) {
+            if (oldSymbols[i] == null) {
+                continue;
+            }
+
+            int index = oldHashes[i] & mask;
+            while (symbols[index] != null) {
+                index = (index + 1) & mask;
+            }
+            symbols[index] = oldSymbols[i];
+            hashes[index] = oldHashes[i];
+        }
+    }
+
+    private static boolean equals(String name, char[] source, int start, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != source[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equals(String name, ByteBuffer source, int start, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != source.get(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -2,6 +2,11 @@ package com.samfoucart.jlox;
 
 import java.util.List;
 
+import com.samfoucart.jlox.jit.LoopCompiler;
+import com.samfoucart.jlox.metrics.RuntimeMetrics;
+import com.samfoucart.jlox.output.OutputSink;
+import com.samfoucart.jlox.output.PrintStreamSink;
+
 import com.samfoucart.jlox.Expr.Assign;
 import com.samfoucart.jlox.Expr.Binary;
 import com.samfoucart.jlox.Expr.Grouping;
@@ -16,21 +21,73 @@ import com.samfoucart.jlox.Stmt.Var;
 import com.samfoucart.jlox.Stmt.While;
 
 public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
-    private Environment globalEnvironment = new Environment();
+    private final Environment globals = new Environment();
+    private final OutputSink out;
+    private final ErrorReporter reporter;
+    // Give up on a loop that keeps failing its type checks
+    private static final int MAX_DEOPTIMIZATIONS = 3;
+    // Statements between additions to the shared RuntimeMetrics
+    private static final int METRICS_BATCH = 1 << 16;
+
+    // Locals of the innermost block, null at the top level
+    private Frame frame = null;
+    // Iterations before a while loop is compiled to bytecode, 0 disables the jit
+    private int jitThreshold = 0;
+
+    // Counted in plain fields and added to RuntimeMetrics in batches,
+    // loops compiled by the jit are not counted
+    private long statements = 0;
+    private long expressions = 0;
+    // The globals count as one
+    private long environments = 1;
+    private long lookups = 0;
+    private long lookupDepth = 0;
+    private long maxLookupDepth = 0;
+
+    public Interpreter() {
+        this(new PrintStreamSink(System.out), Jlox.reporter());
+    }
+
+    public Interpreter(OutputSink out, ErrorReporter reporter) {
+        this.out = out;
+        this.reporter = reporter;
+    }
+
+    public void setJitThreshold(int jitThreshold) {
+        this.jitThreshold = jitThreshold;
+    }
 
     public void interpret(List<Stmt> statements) {
+        long start = System.nanoTime();
         try {
             for (Stmt statement : statements) {
                 execute(statement);
             }
         } catch (JloxRuntimeError error) {
-            Jlox.runtimeError(error);
+            reporter.runtimeError(error);
+        } finally {
+            publishMetrics();
+            RuntimeMetrics.get().addPhase(RuntimeMetrics.Phase.INTERPRET, System.nanoTime() - start);
         }
     }
 
+    private void publishMetrics() {
+        RuntimeMetrics.get().addExecution(statements, expressions, environments, lookups, lookupDepth, maxLookupDepth);
+        statements = 0;
+        expressions = 0;
+        environments = 0;
+        lookups = 0;
+        lookupDepth = 0;
+        maxLookupDepth = 0;
+    }
+
     // Public Statement methods
 
     public Void execute(Stmt stmt) {
+        // A long running program shows up in the metrics before it finishes
+        if (++statements == METRICS_BATCH) {
+            publishMetrics();
+        }
         return stmt.accept(this);
     }
 
@@ -43,7 +100,7 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
     @Override
     public Void visitPrintStmt(Print stmt) {
         Object value = evaluate(stmt.expression);
-        System.out.println(stringify(value));
+        out.println(Values.stringify(value));
         return null;
     }
 
@@ -54,22 +111,36 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
             value = evaluate(stmt.initializer);
         }
 
-        globalEnvironment.define(stmt.name.lexeme, value);
+        if (stmt.slot >= 0) {
+            frame.set(0, stmt.slot, value);
+        } else {
+            globals.define(stmt.name, value);
+        }
         return null;
     }
 
     @Override
     public Void visitBlockStmt(Block stmt) {
-        executeBlock(stmt.statements, new Environment(globalEnvironment));
+        // The Resolver gave a block without declarations no scope,
+        // its statements run in the enclosing frame
+        if (stmt.slots == 0) {
+            for (Stmt statement : stmt.statements) {
+                execute(statement);
+            }
+            return null;
+        }
+
+        environments++;
+        executeBlock(stmt.statements, new Frame(stmt.slots, frame));
         return null;
     }
 
     @Override
     public Void visitIfStmt(If stmt) {
         Object value = evaluate(stmt.condition);
-        if (isTruthy(value)) {
+        if (Values.isTruthy(value)) {
             execute(stmt.truthy);
-        } else if (!isTruthy(value)) {
+        } else if (!Values.isTruthy(value)) {
             if (stmt.falsey != null) {
                 execute(stmt.falsey);
             }
@@ -79,81 +150,123 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
     @Override
     public Void visitWhileStmt(While stmt) {
+        // Read once, a program shared between threads can replace it at any time
+        CompiledLoop compiled = stmt.compiled;
+        if (compiled != null && runCompiled(stmt, compiled)) {
+            return null;
+        }
+
+        // Lox has no closures, nothing outlives an iteration of the body,
+        // so one frame is cleared and reused instead of allocating a frame per iteration
+        Block body = stmt.loop instanceof Block && ((Block) stmt.loop).slots > 0 ? (Block) stmt.loop : null;
+        Frame bodyFrame = null;
+
         Object value = evaluate(stmt.condition);
-        while (isTruthy(value)) {
-            execute(stmt.loop);
+        while (Values.isTruthy(value)) {
+            if (body != null) {
+                if (bodyFrame == null) {
+                    environments++;
+                    bodyFrame = new Frame(body.slots, frame);
+                } else {
+                    bodyFrame.clear();
+                }
+                executeBlock(body.statements, bodyFrame);
+            } else {
+                execute(stmt.loop);
+            }
+
+            // The compiled loop starts at the condition,
+            // so a hot loop can switch over between two iterations
+            if (jitThreshold > 0 && ++stmt.iterations == jitThreshold) {
+                compiled = LoopCompiler.compile(stmt, frame, globals);
+                stmt.compiled = compiled;
+                if (compiled == null) {
+                    stmt.iterations = Integer.MIN_VALUE;
+                } else if (runCompiled(stmt, compiled)) {
+                    return null;
+                }
+            }
+
             value = evaluate(stmt.condition);
         }
         return null;
     }
 
-    private void executeBlock(List<Stmt> statements, Environment environment) {
-        Environment previous = this.globalEnvironment;
+    // Returns false when the compiled loop rejected the current variable types,
+    // the loop is then interpreted and profiled again before recompiling
+    private boolean runCompiled(While stmt, CompiledLoop compiled) {
+        if (compiled.run(frame, globals, out)) {
+            return true;
+        }
+
+        stmt.compiled = null;
+        stmt.iterations = ++stmt.deoptimizations < MAX_DEOPTIMIZATIONS ? 0 : Integer.MIN_VALUE;
+        return false;
+    }
+
+    private void executeBlock(List<Stmt> statements, Frame frame) {
+        Frame previous = this.frame;
         try {
-            this.globalEnvironment = environment;
+            this.frame = frame;
 
             for (Stmt statement : statements) {
                 execute(statement);
             }
         } finally {
-            this.globalEnvironment = previous;
+            this.frame = previous;
         }
     }
 
     // Public Expression statements
 
     public Object evaluate(Expr expr) {
+        expressions++;
         return expr.accept(this);
     }
 
     @Override
     public Object visitAssignExpr(Assign expr) {
         Object value = evaluate(expr.value);
-        globalEnvironment.assign(expr.name, value);
+        if (expr.depth >= 0) {
+            frame.set(expr.depth, expr.slot, value);
+        } else {
+            globals.assign(expr.name, value);
+        }
         return value;
     }
 
     @Override
     public Object visitBinaryExpr(Binary expr) {
-        Object left = evaluate(expr.left);
-        Object right = evaluate(expr.right);
-
         switch (expr.operator.type) {
             case MINUS:
-                checkNumberOperands(expr.operator, left, right);
-                return (double) left - (double) right;
             case STAR:
-                checkNumberOperands(expr.operator, left, right);
-                return (double) left * (double) right;
             case SLASH:
-                checkNumberOperands(expr.operator, left, right);
-                return (double) left / (double) right;
-            case PLUS:
-                if (left instanceof Double && right instanceof Double) {
-                    return (double) left + (double) right;
-                }
-
-                if (left instanceof String && right instanceof String) {
-                    return (String) left + (String) right;
-                }
-
-                throw new JloxRuntimeError(expr.operator, "Operands must be of same type.");
+                // Only the final result is boxed, numeric operands stay unboxed
+                return evaluateDouble(expr);
             case GREATER:
-                checkNumberOperands(expr.operator, left, right);
-                return (double) left > (double) right;
             case GREATER_EQUAL:
-                checkNumberOperands(expr.operator, left, right);
-                return (double) left >= (double) right;
             case LESS:
-                checkNumberOperands(expr.operator, left, right);
-                return (double) left < (double) right;
             case LESS_EQUAL:
-                checkNumberOperands(expr.operator, left, right);
-                return (double) left <= (double) right;
+                return compareNumbers(expr);
+            case PLUS:
+                if (isNumeric(expr)) {
+                    return evaluateDouble(expr);
+                }
+                break;
+            default:
+                break;
+        }
+
+        Object left = evaluate(expr.left);
+        Object right = evaluate(expr.right);
+
+        switch (expr.operator.type) {
+            case PLUS:
+                return Values.add(left, right, expr.operator);
             case EQUAL_EQUAL:
-                return isEqual(left, right);
+                return Values.isEqual(left, right);
             case BANG_EQUAL:
-                return !isEqual(left, right);
+                return !Values.isEqual(left, right);
             default:
                 break;
         }
@@ -176,8 +289,10 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
             return null;
         }
 
+        // The Parser already normalizes numbers to doubles,
+        // this only covers trees that were built by hand.
         if (expr.value instanceof Integer) {
-            return Double.parseDouble(Integer.toString((Integer) expr.value));
+            return ((Integer) expr.value).doubleValue();
         }
 
         return expr.value;
@@ -185,13 +300,10 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
     @Override
     public Object visitUnaryExpr(Unary expr) {
-        Object right = evaluate(expr.right);
-
         if (expr.operator.type == TokenType.MINUS) {
-            checkNumberOperand(expr.operator, right);
-            return - (double) right;
+            return evaluateDouble(expr);
         } else if (expr.operator.type == TokenType.BANG) {
-            return !isTruthy(right);
+            return !Values.isTruthy(evaluate(expr.right));
         }
 
         // The book returns null here instead of throwing.
@@ -201,62 +313,145 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
     @Override
     public Object visitVariableExpr(Variable expr) {
-        return globalEnvironment.getValue(expr.name);
+        // Locals were bound to a frame slot by the Resolver,
+        // anything left unresolved lives in the globals.
+        if (expr.depth >= 0) {
+            lookups++;
+            lookupDepth += expr.depth;
+            if (expr.depth > maxLookupDepth) {
+                maxLookupDepth = expr.depth;
+            }
+            return frame.get(expr.depth, expr.slot);
+        }
+
+        return globals.getValue(expr.name);
     }
-    
-    private boolean isEqual(Object left, Object right) {
-        if (left == null && right == null) {
-            return true;
+
+    // Unboxed numeric evaluation
+
+    /**
+     * Evaluates an expression to a primitive double.
+     * Intermediate results of nested arithmetic are never boxed,
+     * values are only boxed when they are stored or printed.
+     * The expression must be one that isNumeric accepts: a number literal, a negation,
+     * or arithmetic; anything else is evaluate's job.
+     */
+    protected double evaluateDouble(Expr expr) {
+        expressions++;
+        if (expr instanceof Literal) {
+            Object value = ((Literal) expr).value;
+            if (value instanceof Integer) {
+                return ((Integer) value).doubleValue();
+            }
+            return (double) value;
         }
 
-        if (left == null) {
-            return false;
+        if (expr instanceof Grouping) {
+            return evaluateDouble(((Grouping) expr).expression);
         }
 
-        return left.equals(right);
-    }
+        if (expr instanceof Unary) {
+            Unary unary = (Unary) expr;
+            if (isNumeric(unary.right)) {
+                return - evaluateDouble(unary.right);
+            }
 
-    private boolean isTruthy(Object object) {
-        if (object == null) {
-            return false;
+            Object right = evaluate(unary.right);
+            Values.checkNumberOperand(unary.operator, right);
+            return - (double) right;
         }
 
-        if (object instanceof Boolean) {
-            return (boolean) object;
+        Binary binary = (Binary) expr;
+        double left = leftNumber(binary);
+        double right = rightNumber(binary);
+        switch (binary.operator.type) {
+            case MINUS:
+                return left - right;
+            case STAR:
+                return left * right;
+            case SLASH:
+                return left / right;
+            case PLUS:
+                return left + right;
+            default:
+                throw new JloxRuntimeError(binary.operator, "Unreachable statement");
         }
+    }
 
-        return true;
+    private boolean compareNumbers(Binary expr) {
+        double left = leftNumber(expr);
+        double right = rightNumber(expr);
+        switch (expr.operator.type) {
+            case GREATER:
+                return left > right;
+            case GREATER_EQUAL:
+                return left >= right;
+            case LESS:
+                return left < right;
+            case LESS_EQUAL:
+                return left <= right;
+            default:
+                throw new JloxRuntimeError(expr.operator, "Unreachable statement");
+        }
     }
 
-    private void checkNumberOperand(Token operator, Object operand) {
-        if (operand instanceof Double) {
-            return;
+    // The right operand is always evaluated before a type error is reported
+    private double leftNumber(Binary expr) {
+        if (isNumeric(expr.left)) {
+            return evaluateDouble(expr.left);
         }
 
-        throw new JloxRuntimeError(operator, "Operand must be a number.");
+        Object left = evaluate(expr.left);
+        if (left instanceof Double) {
+            return (double) left;
+        }
+
+        evaluate(expr.right);
+        throw Values.numberOperandsError(expr.operator);
     }
 
-    private void checkNumberOperands(Token operator, Object left, Object right) {
-        if (left instanceof Double && right instanceof Double) {
-            return;
+    private double rightNumber(Binary expr) {
+        if (isNumeric(expr.right)) {
+            return evaluateDouble(expr.right);
+        }
+
+        Object right = evaluate(expr.right);
+        if (right instanceof Double) {
+            return (double) right;
         }
 
-        throw new JloxRuntimeError(operator, "Operands must be numbers");
+        throw Values.numberOperandsError(expr.operator);
     }
 
-    private String stringify(Object value) {
-        if (value == null) {
-            return "nil";
+    // True when the expression always produces a number or throws
+    private boolean isNumeric(Expr expr) {
+        if (expr instanceof Literal) {
+            Object value = ((Literal) expr).value;
+            return value instanceof Double || value instanceof Integer;
+        }
+
+        if (expr instanceof Grouping) {
+            return isNumeric(((Grouping) expr).expression);
+        }
+
+        if (expr instanceof Unary) {
+            return ((Unary) expr).operator.type == TokenType.MINUS;
         }
 
-        if (value instanceof Double) {
-            String text = value.toString();
-            if (text.endsWith(".0")) {
-                text = text.substring(0, text.length() - 2);
+        if (expr instanceof Binary) {
+            Binary binary = (Binary) expr;
+            switch (binary.operator.type) {
+                case MINUS:
+                case STAR:
+                case SLASH:
+                    return true;
+                case PLUS:
+                    return isNumeric(binary.left) && isNumeric(binary.right);
+                default:
+                    return false;
             }
-            return text;
         }
 
-        return value.toString();
+        return false;
     }
 }
@@ -3,64 +3,374 @@ package com.samfoucart.jlox;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.samfoucart.jlox.cache.ScriptCache;
+import com.samfoucart.jlox.metrics.RuntimeMetrics;
+import com.samfoucart.jlox.handles.HandleInterpreter;
+import com.samfoucart.jlox.nodes.NodeInterpreter;
+import com.samfoucart.jlox.opt.PassManager;
+import com.samfoucart.jlox.output.BufferedSink;
+import com.samfoucart.jlox.output.OutputSink;
+import com.samfoucart.jlox.output.PrintStreamSink;
+import com.samfoucart.jlox.profile.Profile;
+import com.samfoucart.jlox.profile.ProfilingInterpreter;
+import com.samfoucart.jlox.vm.VM;
 
 public class Jlox {
-    private static final Interpreter interpreter = new Interpreter();
-    static boolean hadError = false;
-    static boolean hadRuntimeError = false;
-
-    public static void main(String[] args) throws IOException {
-        if (args.length > 1) {
-            System.out.println("Usage: jlox [script]");
-            System.exit(64);
-        } else if (args.length == 1) {
-            runFile(args[0]);
+    // Print statements of the program run from main, buffered as --flush says
+    private static OutputSink output = new PrintStreamSink(System.out);
+    // Reports for the single program run from main, batch runs have their own
+    private static ErrorReporter reporter = new ErrorReporter(System.err);
+    private static Interpreter interpreter;
+    private static VM vm;
+    private static NodeInterpreter nodeInterpreter;
+    private static HandleInterpreter handleInterpreter;
+    private static Backend backend = Backend.INTERPRETER;
+    private static String passes = null;
+    private static PassManager optimizer = null;
+    private static boolean printOptimizerStatistics = false;
+    private static boolean stream = false;
+    private static boolean batch = false;
+    private static boolean cache = false;
+    // Null for a .jlox-cache directory next to the script
+    private static String cacheDirectory = null;
+    private static int jitThreshold = 0;
+    // Zero for one thread per processor
+    private static int threads = 0;
+    // Null to flush every line in the REPL and by size otherwise
+    private static String flush = null;
+    private static boolean profile = false;
+    // Null for <script>.collapsed in the working directory
+    private static String profileFile = null;
+    private static ProfilingInterpreter profiler = null;
+    private static final int DEFAULT_JIT_THRESHOLD = 1000;
+    private static final int DEFAULT_FLUSH_SIZE = 1 << 16;
+    private static final int DEFAULT_FLUSH_MILLIS = 100;
+    private static final int PROFILE_SAMPLE_MICROS = 1000;
+    private static final int PROFILE_HOT_LINES = 20;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        List<String> scripts = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--backend=")) {
+                backend = parseBackend(arg.substring("--backend=".length()));
+            } else if (arg.equals("--optimize")) {
+                passes = PassManager.DEFAULT_PASSES;
+            } else if (arg.startsWith("--optimize=")) {
+                passes = arg.substring("--optimize=".length());
+            } else if (arg.equals("--optimizer-stats")) {
+                printOptimizerStatistics = true;
+            } else if (arg.equals("--stream")) {
+                stream = true;
+            } else if (arg.equals("--cache")) {
+                cache = true;
+            } else if (arg.startsWith("--cache=")) {
+                cache = true;
+                cacheDirectory = arg.substring("--cache=".length());
+            } else if (arg.startsWith("--flush=")) {
+                flush = arg.substring("--flush=".length());
+            } else if (arg.equals("--profile")) {
+                profile = true;
+            } else if (arg.startsWith("--profile=")) {
+                profile = true;
+                profileFile = arg.substring("--profile=".length());
+            } else if (arg.equals("--metrics")) {
+                RuntimeMetrics.register();
+            } else if (arg.equals("--batch")) {
+                batch = true;
+            } else if (arg.startsWith("--threads=")) {
+                threads = parsePositive(arg.substring("--threads=".length()));
+            } else if (arg.equals("--jit")) {
+                jitThreshold = DEFAULT_JIT_THRESHOLD;
+            } else if (arg.startsWith("--jit=")) {
+                jitThreshold = parsePositive(arg.substring("--jit=".length()));
+            } else if (arg.startsWith("--") || (!scripts.isEmpty() && !batch)) {
+                usage();
+            } else {
+                scripts.add(arg);
+            }
+        }
+
+        // The profile is taken by the tree walking interpreter of a single program
+        if (profile && (batch || backend != Backend.INTERPRETER)) {
+            usage();
+        }
+        if (threads != 0 && !batch) {
+            usage();
+        }
+        // There are no statistics without optimization passes
+        if (printOptimizerStatistics && passes == null) {
+            usage();
+        }
+        if (passes != null) {
+            optimizer = parseOptimizer(passes);
+        }
+
+        String script = scripts.isEmpty() ? null : scripts.get(0);
+        if (flush != null || script != null) {
+            output = parseFlush(flush != null ? flush : "size");
+        }
+        reporter = new ErrorReporter(System.err, output);
+        if (profile) {
+            String name = script != null ? Paths.get(script).getFileName().toString() : "repl";
+            if (profileFile == null) {
+                profileFile = name + ".collapsed";
+            }
+            profiler = new ProfilingInterpreter(output, reporter, new Profile(name));
+            profiler.startSampling(PROFILE_SAMPLE_MICROS);
+            interpreter = profiler;
         } else {
-            runPrompt();
+            interpreter = new Interpreter(output, reporter);
+            interpreter.setJitThreshold(jitThreshold);
+        }
+        vm = new VM(output, reporter);
+        nodeInterpreter = new NodeInterpreter(output, reporter);
+        handleInterpreter = new HandleInterpreter(output, reporter);
+
+        // Buffered output is written even when the interpreter itself fails, like on a stack overflow
+        try {
+            if (batch) {
+                runBatch(scripts);
+            } else if (stream) {
+                runStream(script);
+            } else if (script != null) {
+                runFile(script);
+            } else {
+                runPrompt();
+            }
+        } finally {
+            finish(script);
         }
     }
 
-    public static void error(int line, String message) {
-        report(line, "", message);
+    private static void usage() {
+        System.out.println("Usage: jlox [--backend=interpreter|vm|nodes|handles] [--optimize[=" + PassManager.DEFAULT_PASSES + "]"
+                + " [--optimizer-stats]] [--jit[=threshold]] [--stream] [--cache[=directory]]"
+                + " [--flush=line|exit|size[:bytes]|time[:millis]]"
+                + " [--profile[=collapsed-file]] [--metrics] [script]");
+        System.out.println("       jlox --batch [--threads=n] [options] script|directory...");
+        System.exit(64);
     }
 
-    public static void error(Token token, String message) {
-        if (token.type == TokenType.EOF) {
-            report(token.line, " at end", message);
-        } else {
-            report(token.line, " at '" + token.lexeme + "'", message);
+    private static Backend parseBackend(String name) {
+        for (Backend candidate : Backend.values()) {
+            if (candidate.name().equalsIgnoreCase(name)) {
+                return candidate;
+            }
         }
+
+        usage();
+        return null;
     }
 
-    public static void runtimeError(JloxRuntimeError error) {
-        System.err.println(error.getMessage() + "\n[line " + error.getToken().line + "]");
-        hadRuntimeError = true;
+    private static int parsePositive(String number) {
+        try {
+            int value = Integer.parseInt(number);
+            if (value > 0) {
+                return value;
+            }
+        } catch (NumberFormatException error) {
+            // Reported by usage below
+        }
+
+        usage();
+        return 0;
     }
 
-    private static void report(int line, String where, String message) {
-        System.err.println(
-                "[line " + line + "] Error" + where + ": " + message
-        );
+    /**
+     * line prints through System.out, the other policies buffer stdout:
+     * exit only writes when a large buffer is full, size after that many bytes, time every that many milliseconds.
+     */
+    private static OutputSink parseFlush(String policy) {
+        String[] parts = policy.split(":", 2);
+        switch (parts[0]) {
+            case "line":
+                if (parts.length == 1) {
+                    return new PrintStreamSink(System.out);
+                }
+                break;
+            case "exit":
+                if (parts.length == 1) {
+                    return BufferedSink.flushOnExit(BufferedSink.stdout(), Charset.defaultCharset());
+                }
+                break;
+            case "size":
+                return BufferedSink.flushBySize(BufferedSink.stdout(), Charset.defaultCharset(),
+                        parts.length > 1 ? parsePositive(parts[1]) : DEFAULT_FLUSH_SIZE);
+            case "time":
+                return BufferedSink.flushByTime(BufferedSink.stdout(), Charset.defaultCharset(),
+                        parts.length > 1 ? parsePositive(parts[1]) : DEFAULT_FLUSH_MILLIS);
+            default:
+                break;
+        }
+
+        usage();
+        return null;
+    }
 
-        hadError = true;
+    private static PassManager parseOptimizer(String names) {
+        try {
+            return PassManager.fromNames(names, printOptimizerStatistics);
+        } catch (IllegalArgumentException error) {
+            System.out.println(error.getMessage());
+            usage();
+            return null;
+        }
+    }
+
+    /**
+     * The reporter used by scanners, parsers and backends created without one.
+     */
+    public static ErrorReporter reporter() {
+        return reporter;
     }
 
     private static void runFile(String path) throws IOException {
-        byte[] bytes = Files.readAllBytes(Paths.get(path));
-        run(new String(bytes, Charset.defaultCharset()));
-        
+        Path file = Paths.get(path);
+        if (cache && Files.size(file) <= Integer.MAX_VALUE) {
+            runCached(file);
+        } else {
+            run(open(file, reporter).scanBuffer());
+        }
+        exitOnError(path);
+    }
+
+    /**
+     * Runs a script from its cached tree when the source has not changed,
+     * otherwise compiles it and stores the resolved tree for next time.
+     */
+    private static void runCached(Path path) throws IOException {
+        ScriptCache scriptCache = new ScriptCache(cacheDirectory != null
+                ? Paths.get(cacheDirectory)
+                : path.toAbsolutePath().getParent().resolve(".jlox-cache"));
+        ByteBuffer source = ByteScanner.mapFile(path);
+        String key = scriptCache.key(source, passes != null ? passes : "");
+
+        List<Stmt> statements = scriptCache.load(key);
+        if (statements == null) {
+            statements = new Parser(new ByteScanner(source, reporter).scanBuffer(), reporter).parse();
+            if (reporter.hadError()) {
+                return;
+            }
+
+            statements = prepare(statements);
+            try {
+                scriptCache.store(key, statements);
+            } catch (IOException error) {
+                // The cache only saves time, the script runs all the same
+            }
+        } else if (printOptimizerStatistics) {
+            // The passes ran when the entry was stored, their statistics were printed then
+            System.err.println("[optimizer] cached: " + passes + " already applied");
+        }
+
+        interpret(statements);
+    }
+
+    // Files are scanned from a read only mapping, unless they are too large to map
+    static TokenSource open(Path path, ErrorReporter reporter) throws IOException {
+        if (Files.size(path) <= Integer.MAX_VALUE) {
+            return ByteScanner.map(path, reporter);
+        }
+
+        return new Scanner(Files.newBufferedReader(path, StandardCharsets.UTF_8), reporter);
+    }
+
+    private static void exitOnError(String script) {
         // Indicate an error in the exit code
-        if (hadError) {
-            System.exit(65);
+        int exitCode = reporter.exitCode();
+        if (exitCode != 0) {
+            finish(script);
+            System.exit(exitCode);
+        }
+    }
+
+    // Writes out everything still buffered, then the profile after the program output
+    private static void finish(String script) {
+        output.close();
+        if (profiler == null) {
+            return;
+        }
+
+        Path collapsed = Paths.get(profileFile);
+        try {
+            profiler.stopSampling();
+            profiler.profile().printHotLines(System.err, PROFILE_HOT_LINES, script != null ? Paths.get(script) : null);
+            profiler.profile().writeCollapsed(collapsed);
+            System.err.println("[profile] collapsed stacks written to " + collapsed);
+        } catch (IOException error) {
+            System.err.println("[profile] " + error);
+        } catch (InterruptedException error) {
+            Thread.currentThread().interrupt();
+        }
+        profiler = null;
+    }
+
+    /**
+     * Runs every script, and every .lox file under every directory, on a pool of threads.
+     * Each script has its own globals, the exit code is the worst of all of them.
+     */
+    private static void runBatch(List<String> paths) throws IOException, InterruptedException {
+        if (paths.isEmpty()) {
+            usage();
+        }
+
+        List<Path> scripts = new ArrayList<>();
+        for (String path : paths) {
+            Path root = Paths.get(path);
+            if (Files.isDirectory(root)) {
+                try (Stream<Path> files = Files.walk(root)) {
+                    scripts.addAll(files.filter(file -> file.toString().endsWith(".lox") && Files.isRegularFile(file))
+                            .sorted()
+                            .collect(Collectors.toList()));
+                }
+            } else {
+                scripts.add(root);
+            }
         }
 
-        if (hadRuntimeError) {
-            System.exit(75);
+        BatchRunner runner = new BatchRunner(backend, passes, printOptimizerStatistics, jitThreshold,
+                threads != 0 ? threads : Runtime.getRuntime().availableProcessors());
+        int exitCode = runner.run(scripts, System.out, System.err);
+        if (exitCode != 0) {
+            System.exit(exitCode);
+        }
+    }
+
+    /**
+     * Runs a script, or stdin without one, one top level statement at a time.
+     * Only a window of the source and the statement being run are in memory.
+     * Statements before a syntax error have already run when it is reported,
+     * after an error the rest of the script is only checked for syntax errors.
+     */
+    private static void runStream(String path) throws IOException {
+        TokenSource source = path == null
+                ? new Scanner(new InputStreamReader(System.in, Charset.defaultCharset()), reporter)
+                : open(Paths.get(path), reporter);
+
+        Parser parser = new Parser(source, reporter);
+        while (!parser.isAtEnd()) {
+            Stmt statement = parser.parseDeclaration();
+            if (statement != null && reporter.exitCode() == 0) {
+                execute(List.of(statement));
+                // Someone may be waiting on the output of each statement typed into stdin
+                if (path == null) {
+                    output.flush();
+                }
+            }
         }
+
+        exitOnError(path);
     }
 
     private static void runPrompt() throws IOException {
@@ -68,38 +378,70 @@ public class Jlox {
         BufferedReader reader = new BufferedReader(input);
 
         for (;;) {
+            output.flush();
             System.out.print("> ");
+            System.out.flush();
             String line = reader.readLine();
             if (line == null) {
                 break;
             }
             run(line);
-            hadError = false;
+            reporter.clearError();
         }
     }
 
     private static void run(String source) {
-        Scanner scanner = new Scanner(source);
-        List<Token> tokens = scanner.scanTokens();
+        run(new Scanner(source, reporter).scanBuffer());
+    }
 
-        if (hadError) {
+    private static void run(TokenBuffer tokens) {
+        if (reporter.hadError()) {
             return;
         }
 
-        // For now, just print the tokens.
-        for (Token token : tokens) {
-            System.out.println(token);
-        }
-
-        Parser parser = new Parser(tokens);
+        Parser parser = new Parser(tokens, reporter);
         // Expr expression = parser.parse();
         List<Stmt> statements = parser.parse();
 
-        if (hadError) {
+        if (reporter.hadError()) {
             return;
         }
 
-        interpreter.interpret(statements);
+        execute(statements);
+    }
+
+    private static void execute(List<Stmt> statements) {
+        interpret(prepare(statements));
+    }
+
+    private static List<Stmt> prepare(List<Stmt> statements) {
+        if (optimizer != null) {
+            statements = optimizer.run(statements);
+            if (printOptimizerStatistics) {
+                optimizer.printStatistics(System.err);
+            }
+        }
+
+        Resolver resolver = new Resolver();
+        resolver.resolve(statements);
+        return statements;
+    }
+
+    private static void interpret(List<Stmt> statements) {
+        switch (backend) {
+            case VM:
+                vm.interpret(statements);
+                break;
+            case NODES:
+                nodeInterpreter.interpret(statements);
+                break;
+            case HANDLES:
+                handleInterpreter.interpret(statements);
+                break;
+            default:
+                interpreter.interpret(statements);
+                break;
+        }
 
         // System.out.println(new AstPrinter().print(expression));
     }
@@ -0,0 +1,93 @@
+package com.samfoucart.jlox;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import com.samfoucart.jlox.handles.HandleProgram;
+import com.samfoucart.jlox.opt.PassManager;
+import com.samfoucart.jlox.vm.Program;
+
+/**
+ * Entry point for programs that embed Lox.
+ * A script is scanned, parsed, optimized and resolved once by compile,
+ * the CompiledScript can then be executed any number of times from any thread.
+ * The engine holds no state besides its settings and can be shared as well.
+ */
+@NullMarked
+public final class JloxEngine {
+    private final Backend backend;
+    private final @Nullable String passes;
+    private final int jitThreshold;
+
+    /** An engine that interprets scripts without optimizing them. */
+    public JloxEngine() {
+        this(Backend.INTERPRETER, null, 0);
+    }
+
+    /**
+     * @param passes comma separated optimization passes like --optimize takes, or null
+     * @param jitThreshold loop iterations before the interpreter compiles a loop, 0 disables the jit
+     */
+    public JloxEngine(Backend backend, @Nullable String passes, int jitThreshold) {
+        if (passes != null) {
+            // Fail on unknown passes now rather than on the first compile
+            PassManager.fromNames(passes);
+        }
+
+        this.backend = backend;
+        this.passes = passes;
+        this.jitThreshold = jitThreshold;
+    }
+
+    /**
+     * Compiles source text. Syntax errors are thrown as a JloxSyntaxError,
+     * which holds them as Diagnostics and has the messages the command line prints.
+     */
+    public CompiledScript compile(String source) {
+        Diagnostics diagnostics = new Diagnostics();
+        CompiledScript script = compile(new Scanner(source, diagnostics), diagnostics);
+        if (script == null) {
+            throw new JloxSyntaxError(diagnostics.all());
+        }
+
+        return script;
+    }
+
+    /**
+     * Compiles a UTF-8 file, or returns null after reporting syntax errors to the reporter.
+     */
+    public @Nullable CompiledScript compile(Path path, ErrorReporter reporter) throws IOException {
+        return compile(Jlox.open(path, reporter), reporter);
+    }
+
+    /**
+     * Compiles everything the source produces,
+     * or returns null after reporting syntax errors to the reporter.
+     */
+    public @Nullable CompiledScript compile(TokenSource source, ErrorReporter reporter) {
+        List<Stmt> statements = new Parser(source.scanBuffer(), reporter).parse();
+        if (reporter.hadError()) {
+            return null;
+        }
+
+        if (passes != null) {
+            statements = PassManager.fromNames(passes).run(statements);
+        }
+        new Resolver().resolve(statements);
+
+        if (backend == Backend.VM) {
+            Program program = Program.compile(statements, reporter);
+            return program == null ? null : new CompiledScript(backend, List.of(), program, null, jitThreshold);
+        }
+
+        if (backend == Backend.HANDLES) {
+            return new CompiledScript(backend, List.of(), null, HandleProgram.compile(statements), jitThreshold);
+        }
+
+        return new CompiledScript(backend, List.copyOf(statements), null, null, jitThreshold);
+    }
+}
@@ -1,10 +1,15 @@
 package com.samfoucart.jlox;
 
+/**
+ * An error in a running program, reported with its message and line.
+ * It only unwinds to the backend that reports it and is never printed with a trace,
+ * so it does not capture one, which would walk the whole interpreter stack on every error.
+ */
 public class JloxRuntimeError extends RuntimeException {
     private final Token token;
 
     public JloxRuntimeError(Token token, String message) {
-        super(message);
+        super(message, null, false, false);
         this.token = token;
     }
 
@@ -0,0 +1,26 @@
+package com.samfoucart.jlox;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * The syntax errors that stopped JloxEngine.compile, in order.
+ * The message is what the command line prints for them, one per line,
+ * all gives the same errors as Diagnostics for callers that inspect them.
+ */
+@NullMarked
+public class JloxSyntaxError extends IllegalArgumentException {
+    private final List<Diagnostic> diagnostics;
+
+    public JloxSyntaxError(List<Diagnostic> diagnostics) {
+        super(diagnostics.stream().map(Diagnostic::toString).collect(Collectors.joining("\n")));
+        this.diagnostics = List.copyOf(diagnostics);
+    }
+
+    /** The errors, in the order they were reported. */
+    public List<Diagnostic> all() {
+        return diagnostics;
+    }
+}
@@ -0,0 +1,111 @@
+package com.samfoucart.jlox;
+
+import java.nio.ByteBuffer;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Recognizes keywords directly in the scanned source, without creating a String.
+ * Length and the first one or two characters pick the only possible keyword,
+ * which is then compared character by character.
+ */
+@NullMarked
+final class Keywords {
+    private static final String[] SPELLINGS = new String[TokenType.values().length];
+
+    static {
+        for (TokenType type : new TokenType[] {
+                TokenType.AND, TokenType.CLASS, TokenType.ELSE, TokenType.FALSE,
+                TokenType.FOR, TokenType.FUNCTION, TokenType.IF, TokenType.NIL,
+                TokenType.OR, TokenType.PRINT, TokenType.RETURN, TokenType.SUPER,
+                TokenType.THIS, TokenType.TRUE, TokenType.VAR, TokenType.WHILE }) {
+            SPELLINGS[type.ordinal()] = type.name().toLowerCase();
+        }
+    }
+
+    private Keywords() {
+    }
+
+    /** The source text of a keyword, shared by every token of that keyword. */
+    static String spelling(TokenType keyword) {
+        return SPELLINGS[keyword.ordinal()];
+    }
+
+    static @Nullable TokenType match(char[] source, int start, int length) {
+        TokenType candidate = candidate(source[start], length > 1 ? source[start + 1] : 0, length);
+        if (candidate == null) {
+            return null;
+        }
+
+        String spelling = spelling(candidate);
+        for (int i = 1; i < length; i++) {
+            if (source[start + i] != spelling.charAt(i)) {
+                return null;
+            }
+        }
+
+        return candidate;
+    }
+
+    static @Nullable TokenType match(ByteBuffer source, int start, int length) {
+        TokenType candidate = candidate(source.get(start), length > 1 ? source.get(start + 1) : 0, length);
+        if (candidate == null) {
+            return null;
+        }
+
+        String spelling = spelling(candidate);
+        for (int i = 1; i < length; i++) {
+            if (source.get(start + i) != spelling.charAt(i)) {
+                return null;
+            }
+        }
+
+        return candidate;
+    }
+
+    private static @Nullable TokenType candidate(int first, int second, int length) {
+        switch (first) {
+            case 'a':
+                return length == 3 ? TokenType.AND : null;
+            case 'c':
+                return length == 5 ? TokenType.CLASS : null;
+            case 'e':
+                return length == 4 ? TokenType.ELSE : null;
+            case 'f':
+                switch (length) {
+                    case 3:
+                        return TokenType.FOR;
+                    case 5:
+                        return TokenType.FALSE;
+                    case 8:
+                        return TokenType.FUNCTION;
+                    default:
+                        return null;
+                }
+            case 'i':
+                return length == 2 ? TokenType.IF : null;
+            case 'n':
+                return length == 3 ? TokenType.NIL : null;
+            case 'o':
+                return length == 2 ? TokenType.OR : null;
+            case 'p':
+                return length == 5 ? TokenType.PRINT : null;
+            case 'r':
+                return length == 6 ? TokenType.RETURN : null;
+            case 's':
+                return length == 5 ? TokenType.SUPER : null;
+            case 't':
+                if (length != 4) {
+                    return null;
+                }
+                return second == 'h' ? TokenType.THIS : TokenType.TRUE;
+            case 'v':
+                return length == 3 ? TokenType.VAR : null;
+            case 'w':
+                return length == 5 ? TokenType.WHILE : null;
+            default:
+                return null;
+        }
+    }
+}
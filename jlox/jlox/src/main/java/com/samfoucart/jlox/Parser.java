@@ -1,52 +1,221 @@
 package com.samfoucart.jlox;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Supplier;
 
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 
+import com.samfoucart.jlox.metrics.RuntimeMetrics;
+
 @NullMarked
 public class Parser {
+    // Only unwinds to declaration, which synchronizes.
+    // It carries nothing and has no stack trace, so a single instance is thrown for every syntax error.
     private static class ParseError extends RuntimeException {
+        ParseError() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final ParseError PARSE_ERROR = new ParseError();
+
+    // The parser only looks one token ahead and one token back,
+    // so it can pull tokens from a Scanner as it goes
+    // or walk a TokenBuffer without creating Token objects
+    private interface Cursor {
+        TokenType peekType();
+
+        Token peek();
+
+        TokenType previousType();
 
+        Token previous();
+
+        @Nullable Object previousLiteral();
+
+        void advance();
+
+        // The number of tokens consumed so far
+        int position();
     }
 
-    private final List<Token> tokens;
-    private int current;
+    // The next token is only pulled when the parser looks at it, not when the one before is consumed,
+    // so a statement typed into stdin can run before the next one arrives
+    private static class StreamCursor implements Cursor {
+        private final Supplier<Token> tokens;
+        private @Nullable Token next;
+        private @Nullable Token previous;
+        private int position = 0;
+
+        StreamCursor(Supplier<Token> tokens) {
+            this.tokens = tokens;
+        }
+
+        @Override
+        public TokenType peekType() {
+            return peek().type;
+        }
+
+        @Override
+        public Token peek() {
+            Token token = next;
+            if (token == null) {
+                token = tokens.get();
+                next = token;
+            }
+            return token;
+        }
+
+        @Override
+        public TokenType previousType() {
+            return previous.type;
+        }
+
+        @Override
+        public Token previous() {
+            return previous;
+        }
+
+        @Override
+        public @Nullable Object previousLiteral() {
+            return previous.literal;
+        }
+
+        @Override
+        public void advance() {
+            previous = peek();
+            next = null;
+            position++;
+        }
+
+        @Override
+        public int position() {
+            return position;
+        }
+    }
+
+    private static class BufferCursor implements Cursor {
+        private final TokenBuffer tokens;
+        private int current = 0;
+
+        BufferCursor(TokenBuffer tokens) {
+            this.tokens = tokens;
+        }
+
+        @Override
+        public TokenType peekType() {
+            return tokens.type(current);
+        }
+
+        @Override
+        public Token peek() {
+            return tokens.token(current);
+        }
+
+        @Override
+        public TokenType previousType() {
+            return tokens.type(current - 1);
+        }
+
+        @Override
+        public Token previous() {
+            return tokens.token(current - 1);
+        }
+
+        @Override
+        public @Nullable Object previousLiteral() {
+            return tokens.literal(current - 1);
+        }
+
+        @Override
+        public void advance() {
+            current++;
+        }
+
+        @Override
+        public int position() {
+            return current;
+        }
+    }
+
+    private final Cursor tokens;
+    private final ErrorReporter reporter;
 
     public Parser(List<Token> tokens) {
+        this(tokens, Jlox.reporter());
+    }
+
+    public Parser(List<Token> tokens, ErrorReporter reporter) {
         if (tokens.size() == 0) {
             List<Token> emptyList = new ArrayList<Token>();
             emptyList.add(new Token(TokenType.EOF, "\0", null, 0));
-            this.tokens = emptyList;
-        } else {
-            this.tokens = tokens;
+            tokens = emptyList;
         }
-        
-        current = 0;
+
+        // Past the end the last token, normally EOF, repeats
+        Iterator<Token> iterator = tokens.iterator();
+        Token last = tokens.get(tokens.size() - 1);
+        this.tokens = new StreamCursor(() -> iterator.hasNext() ? iterator.next() : last);
+        this.reporter = reporter;
+    }
+
+    public Parser(TokenSource source) {
+        this(source, Jlox.reporter());
+    }
+
+    public Parser(TokenSource source, ErrorReporter reporter) {
+        this.tokens = new StreamCursor(source::nextToken);
+        this.reporter = reporter;
+    }
+
+    public Parser(TokenBuffer tokens) {
+        this(tokens, Jlox.reporter());
+    }
+
+    public Parser(TokenBuffer tokens, ErrorReporter reporter) {
+        this.tokens = new BufferCursor(tokens);
+        this.reporter = reporter;
     }
 
     public List<Stmt> parse() {
+        long start = System.nanoTime();
         List<Stmt> statements = new ArrayList<>();
         while (!isAtEnd()) {
             statements.add(declaration());
         }
 
+        // Tokens scanned on demand are timed as part of parsing
+        RuntimeMetrics.get().addPhase(RuntimeMetrics.Phase.PARSE, System.nanoTime() - start);
         return statements;
     }
 
-    private boolean isAtEnd() {
-        Token top = peek();
-        return top == null || top.type == TokenType.EOF;
+    /**
+     * Parses a single top level declaration, for callers that run
+     * each statement as soon as it is parsed.
+     * Returns null after a syntax error.
+     */
+    public @Nullable Stmt parseDeclaration() {
+        return declaration();
+    }
+
+    /** The number of tokens consumed so far, the index of the next one in a list of tokens. */
+    int position() {
+        return tokens.position();
+    }
+
+    public boolean isAtEnd() {
+        return tokens.peekType() == TokenType.EOF;
     }
 
     private Token peek() {
-        return tokens.get(current);
+        return tokens.peek();
     }
 
     private Token previous() {
-        return tokens.get(current - 1);
+        return tokens.previous();
     }
 
     private boolean match(TokenType... types) {
@@ -64,17 +233,14 @@ public class Parser {
         if (isAtEnd()) {
             return false;
         }
-        
-        Token top = peek();
-        return top != null && top.type == type;
+
+        return tokens.peekType() == type;
     }
 
-    private @Nullable Token advance() {
+    private void advance() {
         if (!isAtEnd()) {
-            current++;
+            tokens.advance();
         }
-
-        return previous();
     }
 
     // Recursive Descent - Statements
@@ -93,7 +259,8 @@ public class Parser {
     }
 
     private Stmt varDeclaration() {
-        Token name = consume(TokenType.IDENTIFIER, "Expected IDENTIFIER after token 'var'");
+        consume(TokenType.IDENTIFIER, "Expected IDENTIFIER after token 'var'");
+        Token name = previous();
         Expr initializer = null;
         if (match(TokenType.EQUAL)) {
             initializer = expression();
@@ -167,140 +334,155 @@ public class Parser {
         return declarations;
     }
 
-    // Recursive Descent - Expressions
+    // Pratt Parsing - Expressions
+    // Every token type has a rule for when it starts an expression, for when it follows one, or both.
+    // An infix operator only takes the expression on its left while its binding power
+    // is higher than the one the caller is parsing at, so higher powers bind tighter.
 
-    private Expr expression() {
-        return assignment();
+    private interface PrefixRule {
+        Expr parse(Parser parser);
     }
 
-    private Expr assignment() {
-        Expr expr = equality();
-
-        if (match(TokenType.EQUAL)) {
-            Token equals = previous();
-            Expr value = assignment();
+    private interface InfixRule {
+        Expr parse(Parser parser, Expr left);
+    }
 
-            if (expr instanceof Expr.Variable) {
-                Token name = ((Expr.Variable)expr).name;
-                return new Expr.Assign(name, value);
-            }
+    private static final int ASSIGNMENT = 1;
+    private static final int EQUALITY = 2;
+    private static final int COMPARISON = 3;
+    private static final int TERM = 4;
+    private static final int FACTOR = 5;
+    private static final int UNARY = 6;
+
+    private static final @Nullable PrefixRule[] PREFIX = new PrefixRule[TokenType.values().length];
+    private static final @Nullable InfixRule[] INFIX = new InfixRule[TokenType.values().length];
+    // 0 for tokens that cannot follow an expression, which ends it
+    private static final int[] POWER = new int[TokenType.values().length];
+
+    static {
+        prefix(Parser::literal, TokenType.FALSE, TokenType.TRUE, TokenType.NIL, TokenType.NUMBER, TokenType.STRING);
+        prefix(Parser::grouping, TokenType.LEFT_PAREN);
+        prefix(Parser::variable, TokenType.IDENTIFIER);
+        prefix(Parser::unary, TokenType.BANG, TokenType.MINUS);
+
+        infix(Parser::assignment, ASSIGNMENT, TokenType.EQUAL);
+        infix(Parser::binary, EQUALITY, TokenType.BANG_EQUAL, TokenType.EQUAL_EQUAL);
+        infix(Parser::binary, COMPARISON, TokenType.LESS, TokenType.LESS_EQUAL, TokenType.GREATER, TokenType.GREATER_EQUAL);
+        infix(Parser::binary, TERM, TokenType.PLUS, TokenType.MINUS);
+        infix(Parser::binary, FACTOR, TokenType.STAR, TokenType.SLASH);
+    }
 
-            error(equals, "Invalid assignment target.");
+    private static void prefix(PrefixRule rule, TokenType... types) {
+        for (TokenType type : types) {
+            PREFIX[type.ordinal()] = rule;
         }
-
-        return expr;
     }
 
-    private Expr equality() {
-        Expr expr = comparison();
-
-        while (match(TokenType.BANG_EQUAL, TokenType.EQUAL_EQUAL)) {
-            Token operator = previous();
-            Expr right = comparison();
-            expr = new Expr.Binary(expr, operator, right);
+    private static void infix(InfixRule rule, int power, TokenType... types) {
+        for (TokenType type : types) {
+            INFIX[type.ordinal()] = rule;
+            POWER[type.ordinal()] = power;
         }
+    }
 
-        return expr;
+    private Expr expression() {
+        return expression(0);
     }
 
-    private Expr comparison() {
-        Expr expr = term();
+    // Parses an expression made of operators that bind tighter than power
+    private Expr expression(int power) {
+        PrefixRule prefix = PREFIX[tokens.peekType().ordinal()];
+        if (prefix == null) {
+            throw error(peek(), "Expect expression.");
+        }
 
-        while (match(TokenType.LESS, TokenType.LESS_EQUAL, TokenType.GREATER, TokenType.GREATER_EQUAL)) {
-            Token operator = previous();
-            Expr right = term();
-            expr = new Expr.Binary(expr, operator, right);
+        advance();
+        Expr expr = prefix.parse(this);
+        while (POWER[tokens.peekType().ordinal()] > power) {
+            advance();
+            expr = INFIX[tokens.previousType().ordinal()].parse(this, expr);
         }
 
         return expr;
     }
 
-    private Expr term() {
-        Expr expr = factor();
-
-        while (match(TokenType.PLUS, TokenType.MINUS)) {
-            Token operator = previous();
-            Expr right = factor();
-            expr = new Expr.Binary(expr, operator, right);
+    private Expr literal() {
+        switch (tokens.previousType()) {
+            case FALSE:
+                return new Expr.Literal(false);
+            case TRUE:
+                return new Expr.Literal(true);
+            case NUMBER:
+                // Numbers are normalized to doubles once here,
+                // so the interpreter never has to convert them.
+                return new Expr.Literal(((Number) tokens.previousLiteral()).doubleValue());
+            case STRING:
+                return new Expr.Literal(tokens.previousLiteral());
+            default:
+                return new Expr.Literal(null);
         }
-
-        return expr;
     }
 
-    private Expr factor() {
-        Expr expr = unary();
-
-        while (match(TokenType.STAR, TokenType.SLASH)) {
-            Token operator = previous();
-            Expr right = unary();
-            expr = new Expr.Binary(expr, operator, right);
-        }
+    private Expr grouping() {
+        Expr expr = expression();
+        consume(TokenType.RIGHT_PAREN, "Expect ')' after expression.");
+        return new Expr.Grouping(expr);
+    }
 
-        return expr;
+    private Expr variable() {
+        return new Expr.Variable(previous());
     }
 
     private Expr unary() {
-        if (match(TokenType.BANG, TokenType.MINUS)) {
-            Token operator = previous();
-            Expr expr = unary();
-            return new Expr.Unary(operator, expr);
-        } else {
-            return primary();
-        }
+        Token operator = previous();
+        Expr right = expression(UNARY);
+        return new Expr.Unary(operator, right);
     }
 
-    private Expr primary() {
-        if (match(TokenType.FALSE)) {
-            return new Expr.Literal(false);
-        }
-
-        if (match(TokenType.TRUE)) {
-            return new Expr.Literal(true);
-        }
-
-        if (match(TokenType.NIL)) {
-            return new Expr.Literal(null);
-        }
-
-        if (match(TokenType.NUMBER, TokenType.STRING)) {
-            return new Expr.Literal(previous().literal);
-        }
+    // Left associative, the right operand only takes operators that bind tighter than this one
+    private Expr binary(Expr left) {
+        Token operator = previous();
+        Expr right = expression(POWER[operator.type.ordinal()]);
+        return new Expr.Binary(left, operator, right);
+    }
 
-        if (match(TokenType.LEFT_PAREN)) {
-            Expr expr = expression();
-            consume(TokenType.RIGHT_PAREN, "Expect ')' after expression.");
-            return new Expr.Grouping(expr);
-        }
+    // Right associative, so the value can be another assignment
+    private Expr assignment(Expr target) {
+        Token equals = previous();
+        Expr value = expression(ASSIGNMENT - 1);
 
-        if (match(TokenType.IDENTIFIER)) {
-            return new Expr.Variable(previous());
+        if (target instanceof Expr.Variable) {
+            Token name = ((Expr.Variable) target).name;
+            return new Expr.Assign(name, value);
         }
 
-        throw error(peek(), "Expect expression.");
+        error(equals, "Invalid assignment target.");
+        return target;
     }
 
-    private @Nullable Token consume(TokenType type, String message) {
+    private void consume(TokenType type, String message) {
         if (check(type)) {
-            return advance();
+            advance();
+            return;
         }
 
         throw error(peek(), message);
     }
 
     private ParseError error(Token token, String message) {
-        Jlox.error(token, message);
-        return new ParseError();
+        reporter.error(token, message);
+        return PARSE_ERROR;
     }
 
     private void synchronize() {
         advance();
 
         while (!isAtEnd()) {
-            if (previous().type == TokenType.SEMICOLON) {
+            if (tokens.previousType() == TokenType.SEMICOLON) {
                 return;
             }
 
-            switch (peek().type) {
+            switch (tokens.peekType()) {
                 case CLASS:
                 case FUNCTION:
                 case VAR:
@@ -0,0 +1,220 @@
+package com.samfoucart.jlox;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+
+import com.samfoucart.jlox.Expr.Assign;
+import com.samfoucart.jlox.Expr.Binary;
+import com.samfoucart.jlox.Expr.Grouping;
+import com.samfoucart.jlox.Expr.Literal;
+import com.samfoucart.jlox.Expr.Unary;
+import com.samfoucart.jlox.Expr.Variable;
+import com.samfoucart.jlox.Stmt.Block;
+import com.samfoucart.jlox.Stmt.Expression;
+import com.samfoucart.jlox.Stmt.If;
+import com.samfoucart.jlox.Stmt.Print;
+import com.samfoucart.jlox.Stmt.Var;
+import com.samfoucart.jlox.Stmt.While;
+
+/**
+ * Static pass that runs between the Parser and the Interpreter.
+ * Every local variable reference is bound to the number of scopes
+ * between the reference and its declaration (depth), and the index
+ * of the declaration inside that scope (slot).
+ * Each block is also sized with the number of slots its Frame needs.
+ * Blocks that declare nothing get no scope, and no Frame when they run,
+ * so a depth only counts blocks with slots.
+ * References that are not found in any block scope are left at -1
+ * and are looked up by name in the global environment.
+ */
+public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
+    // Each scope maps a variable name to its slot in that scope
+    private final Stack<Map<String, Integer>> scopes = new Stack<>();
+
+    public void resolve(List<Stmt> statements) {
+        for (Stmt statement : statements) {
+            resolve(statement);
+        }
+    }
+
+    private void resolve(Stmt stmt) {
+        stmt.accept(this);
+    }
+
+    private void resolve(Expr expr) {
+        expr.accept(this);
+    }
+
+    private void beginScope() {
+        scopes.push(new HashMap<String, Integer>());
+    }
+
+    private void endScope() {
+        scopes.pop();
+    }
+
+    private int declare(Token name) {
+        if (scopes.isEmpty()) {
+            return -1;
+        }
+
+        // Redeclaring a variable in the same block reuses its slot,
+        // the same way the HashMap environment overwrites the old value.
+        Map<String, Integer> scope = scopes.peek();
+        Integer slot = scope.get(name.lexeme);
+        if (slot == null) {
+            slot = scope.size();
+            scope.put(name.lexeme, slot);
+        }
+
+        return slot;
+    }
+
+    // Returns {depth, slot}, or null when the variable is a global
+    private int[] resolveLocal(Token name) {
+        for (int i = scopes.size() - 1; i >= 0; i--) {
+            Integer slot = scopes.get(i).get(name.lexeme);
+            if (slot != null) {
+                return new int[] { scopes.size() - 1 - i, slot };
+            }
+        }
+
+        return null;
+    }
+
+    // Statements
+
+    @Override
+    public Void visitExpressionStmt(Expression stmt) {
+        resolve(stmt.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStmt(Print stmt) {
+        resolve(stmt.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitBlockStmt(Block stmt) {
+        if (!declaresVariables(stmt.statements)) {
+            stmt.slots = 0;
+            resolve(stmt.statements);
+            return null;
+        }
+
+        beginScope();
+        resolve(stmt.statements);
+        stmt.slots = scopes.peek().size();
+        endScope();
+        return null;
+    }
+
+    // Looks for declarations that land in the scope of the block,
+    // nested blocks have a scope of their own
+    private static boolean declaresVariables(List<Stmt> statements) {
+        for (Stmt statement : statements) {
+            if (declaresVariable(statement)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean declaresVariable(Stmt stmt) {
+        if (stmt instanceof Var) {
+            return true;
+        }
+
+        if (stmt instanceof If) {
+            If branch = (If) stmt;
+            return declaresVariable(branch.truthy) || (branch.falsey != null && declaresVariable(branch.falsey));
+        }
+
+        if (stmt instanceof While) {
+            return declaresVariable(((While) stmt).loop);
+        }
+
+        return false;
+    }
+
+    @Override
+    public Void visitVarStmt(Var stmt) {
+        // The initializer is resolved before the name is declared,
+        // so `var a = a + 1;` in a block still reads the outer `a`.
+        if (stmt.initializer != null) {
+            resolve(stmt.initializer);
+        }
+
+        stmt.slot = declare(stmt.name);
+        return null;
+    }
+
+    @Override
+    public Void visitIfStmt(If stmt) {
+        resolve(stmt.condition);
+        resolve(stmt.truthy);
+        if (stmt.falsey != null) {
+            resolve(stmt.falsey);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStmt(While stmt) {
+        resolve(stmt.condition);
+        resolve(stmt.loop);
+        return null;
+    }
+
+    // Expressions
+
+    @Override
+    public Void visitAssignExpr(Assign expr) {
+        resolve(expr.value);
+
+        int[] binding = resolveLocal(expr.name);
+        if (binding != null) {
+            expr.depth = binding[0];
+            expr.slot = binding[1];
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryExpr(Binary expr) {
+        resolve(expr.left);
+        resolve(expr.right);
+        return null;
+    }
+
+    @Override
+    public Void visitGroupingExpr(Grouping expr) {
+        resolve(expr.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitLiteralExpr(Literal expr) {
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryExpr(Unary expr) {
+        resolve(expr.right);
+        return null;
+    }
+
+    @Override
+    public Void visitVariableExpr(Variable expr) {
+        int[] binding = resolveLocal(expr.name);
+        if (binding != null) {
+            expr.depth = binding[0];
+            expr.slot = binding[1];
+        }
+        return null;
+    }
+}
@@ -0,0 +1,82 @@
+package com.samfoucart.jlox;
+
+/**
+ * A Lox string made by concatenation.
+ * It is a prefix of a builder shared with the ropes it grew from:
+ * appending to the rope that ends where the builder ends extends the builder in place,
+ * so a loop doing s = s + "..." is linear instead of quadratic in time and garbage.
+ * The characters are copied into a String only when they are needed, and that String is kept.
+ */
+final class Rope implements CharSequence {
+    // Shorter results are plain Strings, copying them costs less than the rope
+    static final int MIN_LENGTH = 128;
+
+    private final StringBuilder builder;
+    private final int length;
+    private String flat;
+
+    private Rope(StringBuilder builder) {
+        this.builder = builder;
+        this.length = builder.length();
+    }
+
+    static CharSequence concat(CharSequence left, CharSequence right) {
+        if (left instanceof Rope) {
+            Rope rope = (Rope) left;
+            String tail = right.toString();
+            synchronized (rope.builder) {
+                if (rope.builder.length() == rope.length) {
+                    rope.builder.append(tail);
+                    return new Rope(rope.builder);
+                }
+            }
+        }
+
+        int length = left.length() + right.length();
+        if (length < MIN_LENGTH) {
+            return left.toString().concat(right.toString());
+        }
+
+        // Leave room to grow, the result is likely to be appended to again
+        StringBuilder builder = new StringBuilder(Math.max(length * 2, length));
+        builder.append(left.toString()).append(right.toString());
+        return new Rope(builder);
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return toString().charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        String text = flat;
+        if (text == null) {
+            synchronized (builder) {
+                text = builder.substring(0, length);
+            }
+            flat = text;
+        }
+        return text;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Rope && toString().equals(other.toString());
+    }
+
+    @Override
+    public int hashCode() {
+        return toString().hashCode();
+    }
+}
@@ -3,57 +3,131 @@ package com.samfoucart.jlox;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+
+import com.samfoucart.jlox.metrics.RuntimeMetrics;
+
+/**
+ * Turns source text into tokens, either all at once with scanTokens
+ * or one at a time with nextToken.
+ * A Scanner over a Reader only keeps a window of the source in memory,
+ * the buffer is refilled as the scanner reaches its end.
+ * Its scanBuffer copies lexemes into the TokenBuffer, so the window stays small there too.
+ */
 @NullMarked
-public class Scanner {
-    private final String source;
-    private final List<Token> tokens;
+public class Scanner implements TokenSource {
+    private static final int BUFFER_SIZE = 8192;
+    // The largest array the JVM reliably allocates
+    private static final int MAX_BUFFER_SIZE = Integer.MAX_VALUE - 8;
+
+    // The source between 0 and limit, start and current index into it
+    private char[] buffer;
+    private int limit;
+    private @Nullable Reader reader;
+    // Whether the source is a window that moves, so lexemes must be copied out of it
+    private final boolean windowed;
+    // The token produced by the last call to scanToken, if any
+    private @Nullable Token scanned;
+    // Receives the tokens instead while scanning into a buffer
+    private @Nullable TokenBuffer tokens;
+    private final Interner identifiers = new Interner();
+    private final ErrorReporter reporter;
     private int line;
     private int current;
     private int start;
 
-    private static final Map<String, TokenType> keywords = new HashMap<>(Map.ofEntries(
-        Map.entry("and", TokenType.AND),
-        Map.entry("class", TokenType.CLASS),
-        Map.entry("else", TokenType.ELSE),
-        Map.entry("false", TokenType.FALSE),
-        Map.entry("for", TokenType.FOR),
-        Map.entry("function", TokenType.FUNCTION),
-        Map.entry("if", TokenType.IF),
-        Map.entry("nil", TokenType.NIL),
-        Map.entry("or", TokenType.OR),
-        Map.entry("print", TokenType.PRINT),
-        Map.entry("return", TokenType.RETURN),
-        Map.entry("super", TokenType.SUPER),
-        Map.entry("this", TokenType.THIS),
-        Map.entry("true", TokenType.TRUE),
-        Map.entry("var", TokenType.VAR),
-        Map.entry("while", TokenType.WHILE)
-    ));
-
     public Scanner(String source) {
-        this.source = source;
-        tokens = new ArrayList<>();
+        this(source, Jlox.reporter());
+    }
+
+    public Scanner(String source, ErrorReporter reporter) {
+        buffer = source.toCharArray();
+        limit = buffer.length;
+        reader = null;
+        windowed = false;
+        this.reporter = reporter;
+        line = 1;
+        current = 0;
+        start = 0;
+    }
+
+    /**
+     * Scans source from offset up to limit, counting lines from line.
+     * The array is used as it is, so it must not change while the scanner is in use.
+     */
+    Scanner(char[] source, int offset, int limit, int line, ErrorReporter reporter) {
+        buffer = source;
+        this.limit = limit;
+        reader = null;
+        windowed = false;
+        this.reporter = reporter;
+        this.line = line;
+        current = offset;
+        start = offset;
+    }
+
+    public Scanner(Reader reader) {
+        this(reader, Jlox.reporter());
+    }
+
+    public Scanner(Reader reader, ErrorReporter reporter) {
+        buffer = new char[BUFFER_SIZE];
+        limit = 0;
+        this.reader = reader;
+        windowed = true;
+        this.reporter = reporter;
         line = 1;
         current = 0;
         start = 0;
     }
 
-    public List<Token> scanTokens() {
+    @Override
+    public TokenBuffer scanBuffer() {
+        long started = System.nanoTime();
+        TokenBuffer tokens = windowed
+                ? new TokenBuffer()
+                : new TokenBuffer((from, length) -> lexeme(from, from + length),
+                        (from, length) -> identifiers.intern(buffer, from, length));
+        this.tokens = tokens;
         while (!isAtEnd()) {
-            // We are at the beginning of the next lexeme
             start = current;
             scanToken();
         }
 
-        tokens.add(new Token(TokenType.EOF, "", null, line));
+        if (windowed) {
+            tokens.copyOf(TokenType.EOF, "", line, null);
+        } else {
+            tokens.add(TokenType.EOF, current, 0, line, null);
+        }
+        RuntimeMetrics.get().addPhase(RuntimeMetrics.Phase.SCAN, System.nanoTime() - started);
         return tokens;
     }
 
+    @Override
+    public Token nextToken() {
+        while (!isAtEnd()) {
+            // We are at the beginning of the next lexeme
+            start = current;
+            scanToken();
+
+            if (scanned != null) {
+                Token token = scanned;
+                scanned = null;
+                return token;
+            }
+        }
+
+        start = current;
+        return new Token(TokenType.EOF, "", null, line);
+    }
+
+    /** The offset in the source of the token last returned by nextToken. */
+    int tokenStart() {
+        return start;
+    }
+
     private void scanToken() {
         char c = advance();
         switch (c) {
@@ -142,7 +216,7 @@ public class Scanner {
                 } else if (isAlpha(c)) {
                     identifier();
                 } else {
-                    Jlox.error(line, "Unexpected character.");
+                    reporter.error(line, "Unexpected character.");
                 }
                 break;
         }
@@ -154,13 +228,24 @@ public class Scanner {
             advance();
         }
 
-        String text = source.substring(start, current);
-        @Nullable TokenType type = keywords.get(text);
-        if (type == null) {
-            type = TokenType.IDENTIFIER;
+        // Only real identifiers get a String, through the interning table
+        int length = current - start;
+        @Nullable TokenType type = Keywords.match(buffer, start, length);
+        if (tokens != null && windowed) {
+            if (type != null) {
+                tokens.copyOf(type, Keywords.spelling(type), line, null);
+            } else {
+                tokens.copyOf(identifiers.intern(buffer, start, length), line);
+            }
+        } else if (tokens != null) {
+            tokens.add(type != null ? type : TokenType.IDENTIFIER, start, length, line, null);
+        } else if (type != null) {
+            String text = Keywords.spelling(type);
+            scanned = new Token(type, text, text, line);
+        } else {
+            Symbol symbol = identifiers.intern(buffer, start, length);
+            scanned = new Token(TokenType.IDENTIFIER, symbol.name, symbol.name, line, symbol);
         }
-
-        addToken(type, text);
     }
 
     private void number() {
@@ -178,7 +263,7 @@ public class Scanner {
             }
         }
 
-        Double result = Double.parseDouble(source.substring(start, current));
+        Double result = Double.parseDouble(lexeme(start, current));
         addToken(TokenType.NUMBER, result);
     }
 
@@ -191,7 +276,7 @@ public class Scanner {
         }
 
         if (isAtEnd()) {
-            Jlox.error(line, "Unterminated string.");
+            reporter.error(line, "Unterminated string.");
             return;
         }
 
@@ -199,7 +284,7 @@ public class Scanner {
         advance();
 
         // Trim the surrounding quotes
-        String value = source.substring(start + 1, current - 1);
+        String value = lexeme(start + 1, current - 1);
         addToken(TokenType.STRING, value);
     }
 
@@ -208,8 +293,17 @@ public class Scanner {
     }
 
     private void addToken(TokenType type, @Nullable Object literal) {
-        String text = source.substring(start, current);
-        tokens.add(new Token(type, text, literal, line));
+        if (tokens != null && windowed) {
+            tokens.copyOf(type, lexeme(start, current), line, literal);
+        } else if (tokens != null) {
+            tokens.add(type, start, current - start, line, literal);
+        } else {
+            scanned = new Token(type, lexeme(start, current), literal, line);
+        }
+    }
+
+    private String lexeme(int from, int to) {
+        return new String(buffer, from, to - from);
     }
 
     private boolean isDigit(char c) {
@@ -225,11 +319,49 @@ public class Scanner {
     }
 
     private boolean isAtEnd() {
-        return current >= source.length();
+        return current >= limit && !fill();
+    }
+
+    // Reads more of the source, keeping the current lexeme in the buffer.
+    // Returns false when there is nothing left to read.
+    private boolean fill() {
+        if (reader == null) {
+            return false;
+        }
+
+        if (start > 0) {
+            System.arraycopy(buffer, start, buffer, 0, limit - start);
+            current -= start;
+            limit -= start;
+            start = 0;
+        }
+
+        // Only a lexeme longer than the buffer, like a huge string, grows it
+        if (limit == buffer.length) {
+            if (buffer.length == MAX_BUFFER_SIZE) {
+                throw new OutOfMemoryError("Lexeme longer than " + MAX_BUFFER_SIZE + " characters.");
+            }
+            char[] grown = new char[(int) Math.min((long) buffer.length * 2, MAX_BUFFER_SIZE)];
+            System.arraycopy(buffer, 0, grown, 0, limit);
+            buffer = grown;
+        }
+
+        try {
+            int read = reader.read(buffer, limit, buffer.length - limit);
+            if (read <= 0) {
+                reader = null;
+                return false;
+            }
+
+            limit += read;
+            return true;
+        } catch (IOException error) {
+            throw new UncheckedIOException(error);
+        }
     }
 
     private char advance() {
-        char result = source.charAt(current);
+        char result = buffer[current];
         current++;
         return result;
     }
@@ -239,7 +371,7 @@ public class Scanner {
             return false;
         }
 
-        if (source.charAt(current) == c) {
+        if (buffer[current] == c) {
             ++current;
             return true;
         }
@@ -252,14 +384,16 @@ public class Scanner {
             return '\0';
         }
 
-        return source.charAt(current);
+        return buffer[current];
     }
 
     private char peekNext() {
-        if (current + 1 >= source.length()) {
-            return '\0';
+        while (current + 1 >= limit) {
+            if (!fill()) {
+                return '\0';
+            }
         }
 
-        return source.charAt(current + 1);
+        return buffer[current + 1];
     }
 }
@@ -2,8 +2,8 @@ package com.samfoucart.jlox;
 
 import java.util.List;
 
-abstract class Stmt {
-    interface Visitor<R> {
+public abstract class Stmt {
+    public interface Visitor<R> {
         R visitExpressionStmt(Expression stmt);
         R visitPrintStmt(Print stmt);
         R visitBlockStmt(Block stmt);
@@ -12,92 +12,97 @@ abstract class Stmt {
         R visitWhileStmt(While stmt);
     }
 
-    static class Expression extends Stmt {
-        Expression(Expr expression) {
+    public static class Expression extends Stmt {
+        public Expression(Expr expression) {
             this.expression = expression;
         }
 
         @Override
-        <R> R accept(Visitor<R> visitor) {
+        public <R> R accept(Visitor<R> visitor) {
             return visitor.visitExpressionStmt(this);
         }
 
-        final Expr expression;
+        public final Expr expression;
     }
 
-    static class Print extends Stmt {
-        Print(Expr expression) {
+    public static class Print extends Stmt {
+        public Print(Expr expression) {
             this.expression = expression;
         }
 
         @Override
-        <R> R accept(Visitor<R> visitor) {
+        public <R> R accept(Visitor<R> visitor) {
             return visitor.visitPrintStmt(this);
         }
 
-        final Expr expression;
+        public final Expr expression;
     }
 
-    static class Block extends Stmt {
-        Block(List<Stmt> statements) {
+    public static class Block extends Stmt {
+        public Block(List<Stmt> statements) {
             this.statements = statements;
         }
 
         @Override
-        <R> R accept(Visitor<R> visitor) {
+        public <R> R accept(Visitor<R> visitor) {
             return visitor.visitBlockStmt(this);
         }
 
-        final List<Stmt> statements;
+        public final List<Stmt> statements;
+        public int slots = 0;
     }
 
-    static class Var extends Stmt {
-        Var(Token name, Expr initializer) {
+    public static class Var extends Stmt {
+        public Var(Token name, Expr initializer) {
             this.name = name;
             this.initializer = initializer;
         }
 
         @Override
-        <R> R accept(Visitor<R> visitor) {
+        public <R> R accept(Visitor<R> visitor) {
             return visitor.visitVarStmt(this);
         }
 
-        final Token name;
-        final Expr initializer;
+        public final Token name;
+        public final Expr initializer;
+        public int slot = -1;
     }
 
-    static class If extends Stmt {
-        If(Expr condition, Stmt truthy, Stmt falsey) {
+    public static class If extends Stmt {
+        public If(Expr condition, Stmt truthy, Stmt falsey) {
             this.condition = condition;
             this.truthy = truthy;
             this.falsey = falsey;
         }
 
         @Override
-        <R> R accept(Visitor<R> visitor) {
+        public <R> R accept(Visitor<R> visitor) {
             return visitor.visitIfStmt(this);
         }
 
-        final Expr condition;
-        final Stmt truthy;
-        final Stmt falsey;
+        public final Expr condition;
+        public final Stmt truthy;
+        public final Stmt falsey;
     }
 
-    static class While extends Stmt {
-        While(Expr condition, Stmt loop) {
+    public static class While extends Stmt {
+        public While(Expr condition, Stmt loop) {
             this.condition = condition;
             this.loop = loop;
         }
 
         @Override
-        <R> R accept(Visitor<R> visitor) {
+        public <R> R accept(Visitor<R> visitor) {
             return visitor.visitWhileStmt(this);
         }
 
-        final Expr condition;
-        final Stmt loop;
+        public final Expr condition;
+        public final Stmt loop;
+        public int iterations = 0;
+        public int deoptimizations = 0;
+        public CompiledLoop compiled = null;
     }
 
 
-    abstract <R> R accept(Visitor<R> visitor);
+    public abstract <R> R accept(Visitor<R> visitor);
 }
@@ -0,0 +1,52 @@
+package com.samfoucart.jlox;
+
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * An interned identifier name. There is exactly one Symbol per name,
+ * so symbols are compared by identity and hash without looking at the name.
+ * The table does not keep symbols alive: once no token, tree or environment
+ * uses a name any more its Symbol is collected, and a later use of the name gets a new one.
+ */
+@NullMarked
+public final class Symbol {
+    // Keyed by the name of the Symbol itself, so the entry lives exactly as long as the Symbol
+    private static final WeakHashMap<String, WeakReference<Symbol>> table = new WeakHashMap<>();
+    private static final AtomicInteger nextId = new AtomicInteger();
+
+    public final String name;
+    // Fibonacci hash of a sequential id, spreads well in power of two tables
+    final int hash;
+
+    private Symbol(String name) {
+        this.name = name;
+        int id = nextId.getAndIncrement() * 0x9e3779b9;
+        this.hash = id ^ (id >>> 16);
+    }
+
+    public static Symbol of(String name) {
+        synchronized (table) {
+            WeakReference<Symbol> reference = table.get(name);
+            @Nullable Symbol symbol = reference != null ? reference.get() : null;
+            if (symbol != null) {
+                return symbol;
+            }
+
+            // A stale entry would keep its old key, which is not this Symbol's name
+            table.remove(name);
+            symbol = new Symbol(name);
+            table.put(symbol.name, new WeakReference<>(symbol));
+            return symbol;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -5,16 +5,23 @@ import org.jspecify.annotations.Nullable;
 
 @NullMarked
 public class Token {
-    final TokenType type;
-    final String lexeme;
-    final @Nullable Object literal;
-    final int line;
+    public final TokenType type;
+    public final String lexeme;
+    public final @Nullable Object literal;
+    public final int line;
+    // The interned name of an identifier, null for every other token
+    public final @Nullable Symbol symbol;
 
-    Token(TokenType type, String lexeme, @Nullable Object literal, int line) {
+    public Token(TokenType type, String lexeme, @Nullable Object literal, int line) {
+        this(type, lexeme, literal, line, type == TokenType.IDENTIFIER ? Symbol.of(lexeme) : null);
+    }
+
+    public Token(TokenType type, String lexeme, @Nullable Object literal, int line, @Nullable Symbol symbol) {
         this.type = type;
         this.lexeme = lexeme;
         this.literal = literal;
         this.line = line;
+        this.symbol = symbol;
     }
 
     public String toString() {
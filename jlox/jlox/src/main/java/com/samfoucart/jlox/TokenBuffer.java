@@ -0,0 +1,176 @@
+package com.samfoucart.jlox;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * All the tokens of a source, stored as parallel primitive arrays
+ * instead of one Token object per token.
+ * Lexemes are offsets into the scanned source, and the literal values
+ * of numbers and strings live in a side table.
+ * A source that is not kept in memory, like a Reader, copies its lexemes
+ * into the buffer instead, then offsets index that copy.
+ * Token objects are only created for the tokens that end up in the AST.
+ */
+@NullMarked
+public final class TokenBuffer {
+    private static final TokenType[] TYPES = TokenType.values();
+    // The largest array the JVM reliably allocates
+    private static final int MAX_TOKENS = Integer.MAX_VALUE - 8;
+
+    /** Reads a lexeme back out of the scanned source. */
+    @FunctionalInterface
+    public interface Text {
+        String lexeme(int start, int length);
+    }
+
+    /** Interns an identifier in the scanned source. */
+    @FunctionalInterface
+    public interface Names {
+        Symbol symbol(int start, int length);
+    }
+
+    private final Text text;
+    // Identifier names go through the scanner's interning table
+    private final Names names;
+    private byte[] types = new byte[256];
+    private int[] starts = new int[256];
+    private int[] lengths = new int[256];
+    private int[] lines = new int[256];
+    private final List<@Nullable Object> literals = new ArrayList<>();
+    // Index into literals for numbers and strings, -1 otherwise
+    private int[] literalIndexes = new int[256];
+    private int count = 0;
+    // The copied lexemes, strings and identifier symbols, when the source is not kept
+    private final @Nullable List<Object> copies;
+    // The spelling of each operator and punctuation type, so copies share one string per type
+    private final @Nullable String[] spellings = new String[TYPES.length];
+
+    public TokenBuffer(Text text, Names names) {
+        this.text = text;
+        this.names = names;
+        this.copies = null;
+    }
+
+    /** A buffer that keeps its own copy of every lexeme added with copyOf. */
+    public TokenBuffer() {
+        List<Object> copies = new ArrayList<>();
+        this.text = (start, length) -> (String) copies.get(start);
+        this.names = (start, length) -> (Symbol) copies.get(start);
+        this.copies = copies;
+    }
+
+    /** Adds a token whose lexeme is not in the source any more. */
+    public void copyOf(TokenType type, String lexeme, int line, @Nullable Object literal) {
+        List<Object> copies = copied();
+        if (literal == null && type != TokenType.EOF && !isKeyword(type)) {
+            if (spellings[type.ordinal()] == null) {
+                spellings[type.ordinal()] = lexeme;
+            }
+            lexeme = spellings[type.ordinal()];
+        }
+
+        add(type, copies.size(), lexeme.length(), line, literal);
+        copies.add(lexeme);
+    }
+
+    /** Adds an identifier the scanner already interned. */
+    public void copyOf(Symbol symbol, int line) {
+        List<Object> copies = copied();
+        add(TokenType.IDENTIFIER, copies.size(), symbol.name.length(), line, null);
+        copies.add(symbol);
+    }
+
+    private List<Object> copied() {
+        if (copies == null) {
+            throw new IllegalStateException("This buffer reads its lexemes from the source.");
+        }
+        return copies;
+    }
+
+    public void add(TokenType type, int start, int length, int line, @Nullable Object literal) {
+        if (count == types.length) {
+            if (count == MAX_TOKENS) {
+                throw new OutOfMemoryError("More than " + MAX_TOKENS + " tokens.");
+            }
+            int capacity = (int) Math.min((long) count * 2, MAX_TOKENS);
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            literalIndexes = Arrays.copyOf(literalIndexes, capacity);
+        }
+
+        types[count] = (byte) type.ordinal();
+        starts[count] = start;
+        lengths[count] = length;
+        lines[count] = line;
+        if (type == TokenType.NUMBER || type == TokenType.STRING) {
+            literalIndexes[count] = literals.size();
+            literals.add(literal);
+        } else {
+            literalIndexes[count] = -1;
+        }
+        count++;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public TokenType type(int index) {
+        return TYPES[types[index]];
+    }
+
+    public int line(int index) {
+        return lines[index];
+    }
+
+    public String lexeme(int index) {
+        TokenType type = type(index);
+        if (type == TokenType.IDENTIFIER) {
+            return names.symbol(starts[index], lengths[index]).name;
+        }
+
+        if (isKeyword(type)) {
+            return Keywords.spelling(type);
+        }
+
+        return text.lexeme(starts[index], lengths[index]);
+    }
+
+    /**
+     * The literal value, like the Scanner's: the value of a number or string,
+     * the lexeme of an identifier or keyword, null for everything else.
+     */
+    public @Nullable Object literal(int index) {
+        if (literalIndexes[index] >= 0) {
+            return literals.get(literalIndexes[index]);
+        }
+
+        TokenType type = type(index);
+        if (type == TokenType.IDENTIFIER || isKeyword(type)) {
+            return lexeme(index);
+        }
+
+        return null;
+    }
+
+    // Keywords are declared after the literal token types
+    private static boolean isKeyword(TokenType type) {
+        return type.compareTo(TokenType.AND) >= 0 && type != TokenType.EOF;
+    }
+
+    public Token token(int index) {
+        if (type(index) == TokenType.IDENTIFIER) {
+            Symbol symbol = names.symbol(starts[index], lengths[index]);
+            return new Token(TokenType.IDENTIFIER, symbol.name, symbol.name, lines[index], symbol);
+        }
+
+        return new Token(type(index), lexeme(index), literal(index), lines[index]);
+    }
+}
@@ -0,0 +1,37 @@
+package com.samfoucart.jlox;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.samfoucart.jlox.metrics.RuntimeMetrics;
+
+/**
+ * Anything the Parser can pull tokens from one at a time.
+ */
+public interface TokenSource {
+    /**
+     * Returns the next token, or EOF once the source is exhausted.
+     */
+    Token nextToken();
+
+    /**
+     * Scans the rest of the source, up to and including EOF.
+     */
+    default List<Token> scanTokens() {
+        long start = System.nanoTime();
+        List<Token> tokens = new ArrayList<>();
+        Token token;
+        do {
+            token = nextToken();
+            tokens.add(token);
+        } while (token.type != TokenType.EOF);
+
+        RuntimeMetrics.get().addPhase(RuntimeMetrics.Phase.SCAN, System.nanoTime() - start);
+        return tokens;
+    }
+
+    /**
+     * Scans the rest of the source into a compact TokenBuffer, up to and including EOF.
+     */
+    TokenBuffer scanBuffer();
+}
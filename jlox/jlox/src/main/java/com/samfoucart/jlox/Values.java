@@ -0,0 +1,142 @@
+package com.samfoucart.jlox;
+
+/**
+ * Operations on Lox values shared by every execution backend,
+ * so they all agree on truthiness, equality, printing and error messages.
+ */
+public final class Values {
+    private Values() {
+    }
+
+    public static boolean isEqual(Object left, Object right) {
+        if (left == null && right == null) {
+            return true;
+        }
+
+        if (left == null) {
+            return false;
+        }
+
+        // A rope and a String with the same characters are the same Lox string
+        if (left instanceof Rope || right instanceof Rope) {
+            return isString(left) && isString(right) && left.toString().equals(right.toString());
+        }
+
+        return left.equals(right);
+    }
+
+    public static boolean isString(Object value) {
+        return value instanceof String || value instanceof Rope;
+    }
+
+    /** Concatenates two values that are known to be strings, see {@link Rope}. */
+    public static Object concat(Object left, Object right) {
+        return Rope.concat((CharSequence) left, (CharSequence) right);
+    }
+
+    public static boolean isTruthy(Object object) {
+        if (object == null) {
+            return false;
+        }
+
+        if (object instanceof Boolean) {
+            return (boolean) object;
+        }
+
+        return true;
+    }
+
+    public static void checkNumberOperand(Token operator, Object operand) {
+        if (operand instanceof Double) {
+            return;
+        }
+
+        throw numberOperandError(operator);
+    }
+
+    public static JloxRuntimeError numberOperandError(Token operator) {
+        return new JloxRuntimeError(operator, "Operand must be a number.");
+    }
+
+    public static void checkNumberOperands(Token operator, Object left, Object right) {
+        if (left instanceof Double && right instanceof Double) {
+            return;
+        }
+
+        throw numberOperandsError(operator);
+    }
+
+    public static JloxRuntimeError numberOperandsError(Token operator) {
+        return new JloxRuntimeError(operator, "Operands must be numbers");
+    }
+
+    // Checked operations on any values, the slow paths of every backend
+
+    public static Object add(Object left, Object right, Token operator) {
+        if (left instanceof Double && right instanceof Double) {
+            return (double) left + (double) right;
+        }
+
+        if (isString(left) && isString(right)) {
+            return concat(left, right);
+        }
+
+        throw new JloxRuntimeError(operator, "Operands must be of same type.");
+    }
+
+    public static double subtract(Object left, Object right, Token operator) {
+        checkNumberOperands(operator, left, right);
+        return (double) left - (double) right;
+    }
+
+    public static double multiply(Object left, Object right, Token operator) {
+        checkNumberOperands(operator, left, right);
+        return (double) left * (double) right;
+    }
+
+    public static double divide(Object left, Object right, Token operator) {
+        checkNumberOperands(operator, left, right);
+        return (double) left / (double) right;
+    }
+
+    public static boolean greater(Object left, Object right, Token operator) {
+        checkNumberOperands(operator, left, right);
+        return (double) left > (double) right;
+    }
+
+    public static boolean greaterEqual(Object left, Object right, Token operator) {
+        checkNumberOperands(operator, left, right);
+        return (double) left >= (double) right;
+    }
+
+    public static boolean less(Object left, Object right, Token operator) {
+        checkNumberOperands(operator, left, right);
+        return (double) left < (double) right;
+    }
+
+    public static boolean lessEqual(Object left, Object right, Token operator) {
+        checkNumberOperands(operator, left, right);
+        return (double) left <= (double) right;
+    }
+
+    public static double negate(Object operand, Token operator) {
+        checkNumberOperand(operator, operand);
+        return -(double) operand;
+    }
+
+    public static String stringify(Object value) {
+        if (value == null) {
+            return "nil";
+        }
+
+        if (value instanceof Double) {
+            String text = value.toString();
+            if (text.endsWith(".0")) {
+                text = text.substring(0, text.length() - 2);
+            }
+            return text;
+        }
+
+        return value.toString();
+    }
+}
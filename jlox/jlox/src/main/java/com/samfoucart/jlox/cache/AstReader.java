@@ -0,0 +1,169 @@
+package com.samfoucart.jlox.cache;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jspecify.annotations.Nullable;
+
+import com.samfoucart.jlox.Expr;
+import com.samfoucart.jlox.Stmt;
+import com.samfoucart.jlox.Token;
+import com.samfoucart.jlox.TokenType;
+
+/**
+ * Reads back the statements written by AstWriter, with their resolved slots.
+ * Anything that does not look like a tree AstWriter wrote is an IOException.
+ */
+class AstReader {
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private final DataInputStream in;
+    private final List<String> strings = new ArrayList<>();
+
+    AstReader(DataInputStream in) {
+        this.in = in;
+    }
+
+    List<Stmt> read() throws IOException {
+        int count = in.readInt();
+        List<Stmt> statements = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            statements.add(stmt());
+        }
+        return statements;
+    }
+
+    private Stmt stmt() throws IOException {
+        Stmt stmt = optionalStmt();
+        if (stmt == null) {
+            throw new IOException("Missing statement in cached tree.");
+        }
+        return stmt;
+    }
+
+    private @Nullable Stmt optionalStmt() throws IOException {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+            case AstWriter.NULL:
+                return null;
+            case AstWriter.EXPRESSION:
+                return new Stmt.Expression(expr());
+            case AstWriter.PRINT:
+                return new Stmt.Print(expr());
+            case AstWriter.BLOCK: {
+                int count = in.readInt();
+                List<Stmt> statements = new ArrayList<>();
+                for (int i = 0; i < count; i++) {
+                    statements.add(stmt());
+                }
+                Stmt.Block block = new Stmt.Block(statements);
+                block.slots = in.readInt();
+                return block;
+            }
+            case AstWriter.VAR: {
+                Stmt.Var var = new Stmt.Var(token(), optionalExpr());
+                var.slot = in.readInt();
+                return var;
+            }
+            case AstWriter.IF:
+                return new Stmt.If(expr(), stmt(), optionalStmt());
+            case AstWriter.WHILE:
+                return new Stmt.While(expr(), stmt());
+            default:
+                throw new IOException("Unknown statement tag " + tag + " in cached tree.");
+        }
+    }
+
+    private Expr expr() throws IOException {
+        Expr expr = optionalExpr();
+        if (expr == null) {
+            throw new IOException("Missing expression in cached tree.");
+        }
+        return expr;
+    }
+
+    private @Nullable Expr optionalExpr() throws IOException {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+            case AstWriter.NULL:
+                return null;
+            case AstWriter.ASSIGN: {
+                Expr.Assign assign = new Expr.Assign(token(), expr());
+                assign.depth = in.readInt();
+                assign.slot = in.readInt();
+                return assign;
+            }
+            case AstWriter.BINARY:
+                return new Expr.Binary(expr(), token(), expr());
+            case AstWriter.GROUPING:
+                return new Expr.Grouping(expr());
+            case AstWriter.LITERAL:
+                return new Expr.Literal(value());
+            case AstWriter.UNARY:
+                return new Expr.Unary(token(), expr());
+            case AstWriter.VARIABLE: {
+                Expr.Variable variable = new Expr.Variable(token());
+                variable.depth = in.readInt();
+                variable.slot = in.readInt();
+                return variable;
+            }
+            default:
+                throw new IOException("Unknown expression tag " + tag + " in cached tree.");
+        }
+    }
+
+    private Token token() throws IOException {
+        int type = in.readUnsignedByte();
+        if (type >= TYPES.length) {
+            throw new IOException("Unknown token type " + type + " in cached tree.");
+        }
+
+        // Identifiers are interned again by the Token constructor
+        String lexeme = string();
+        Object literal = value();
+        return new Token(TYPES[type], lexeme, literal, in.readInt());
+    }
+
+    private @Nullable Object value() throws IOException {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+            case AstWriter.NULL:
+                return null;
+            case AstWriter.FALSE:
+                return false;
+            case AstWriter.TRUE:
+                return true;
+            case AstWriter.NUMBER:
+                return in.readDouble();
+            case AstWriter.STRING:
+                return string();
+            default:
+                throw new IOException("Unknown value tag " + tag + " in cached tree.");
+        }
+    }
+
+    private String string() throws IOException {
+        int index = in.readInt();
+        if (index < strings.size() && index >= 0) {
+            return strings.get(index);
+        }
+
+        if (index != strings.size()) {
+            throw new IOException("Unknown string " + index + " in cached tree.");
+        }
+
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Negative string length in cached tree.");
+        }
+
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        String value = new String(bytes, StandardCharsets.UTF_8);
+        strings.add(value);
+        return value;
+    }
+}
@@ -0,0 +1,259 @@
+package com.samfoucart.jlox.cache;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jspecify.annotations.Nullable;
+
+import com.samfoucart.jlox.Expr;
+import com.samfoucart.jlox.Stmt;
+import com.samfoucart.jlox.Token;
+import com.samfoucart.jlox.Expr.Assign;
+import com.samfoucart.jlox.Expr.Binary;
+import com.samfoucart.jlox.Expr.Grouping;
+import com.samfoucart.jlox.Expr.Literal;
+import com.samfoucart.jlox.Expr.Unary;
+import com.samfoucart.jlox.Expr.Variable;
+import com.samfoucart.jlox.Stmt.Block;
+import com.samfoucart.jlox.Stmt.Expression;
+import com.samfoucart.jlox.Stmt.If;
+import com.samfoucart.jlox.Stmt.Print;
+import com.samfoucart.jlox.Stmt.Var;
+import com.samfoucart.jlox.Stmt.While;
+
+/**
+ * Writes resolved statements in the binary form read by AstReader.
+ * Every node is a tag byte followed by its fields in declaration order,
+ * with the slots the Resolver computed, so a loaded tree does not need resolving again.
+ * Strings are written once and referred to by index after that.
+ */
+class AstWriter implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
+    static final int NULL = 0;
+    // Expressions
+    static final int ASSIGN = 1;
+    static final int BINARY = 2;
+    static final int GROUPING = 3;
+    static final int LITERAL = 4;
+    static final int UNARY = 5;
+    static final int VARIABLE = 6;
+    // Statements
+    static final int EXPRESSION = 7;
+    static final int PRINT = 8;
+    static final int BLOCK = 9;
+    static final int VAR = 10;
+    static final int IF = 11;
+    static final int WHILE = 12;
+    // Literal values
+    static final int FALSE = 1;
+    static final int TRUE = 2;
+    static final int NUMBER = 3;
+    static final int STRING = 4;
+
+    private final DataOutputStream out;
+    private final Map<String, Integer> strings = new HashMap<>();
+
+    AstWriter(DataOutputStream out) {
+        this.out = out;
+    }
+
+    void write(List<Stmt> statements) throws IOException {
+        try {
+            out.writeInt(statements.size());
+            for (Stmt statement : statements) {
+                write(statement);
+            }
+        } catch (UncheckedIOException error) {
+            throw error.getCause();
+        }
+    }
+
+    private void write(@Nullable Stmt stmt) {
+        if (stmt == null) {
+            tag(NULL);
+        } else {
+            stmt.accept(this);
+        }
+    }
+
+    private void write(@Nullable Expr expr) {
+        if (expr == null) {
+            tag(NULL);
+        } else {
+            expr.accept(this);
+        }
+    }
+
+    // Statements
+
+    @Override
+    public Void visitExpressionStmt(Expression stmt) {
+        tag(EXPRESSION);
+        write(stmt.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStmt(Print stmt) {
+        tag(PRINT);
+        write(stmt.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitBlockStmt(Block stmt) {
+        tag(BLOCK);
+        integer(stmt.statements.size());
+        for (Stmt statement : stmt.statements) {
+            write(statement);
+        }
+        integer(stmt.slots);
+        return null;
+    }
+
+    @Override
+    public Void visitVarStmt(Var stmt) {
+        tag(VAR);
+        token(stmt.name);
+        write(stmt.initializer);
+        integer(stmt.slot);
+        return null;
+    }
+
+    @Override
+    public Void visitIfStmt(If stmt) {
+        tag(IF);
+        write(stmt.condition);
+        write(stmt.truthy);
+        write(stmt.falsey);
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStmt(While stmt) {
+        tag(WHILE);
+        write(stmt.condition);
+        write(stmt.loop);
+        return null;
+    }
+
+    // Expressions
+
+    @Override
+    public Void visitAssignExpr(Assign expr) {
+        tag(ASSIGN);
+        token(expr.name);
+        write(expr.value);
+        integer(expr.depth);
+        integer(expr.slot);
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryExpr(Binary expr) {
+        tag(BINARY);
+        write(expr.left);
+        token(expr.operator);
+        write(expr.right);
+        return null;
+    }
+
+    @Override
+    public Void visitGroupingExpr(Grouping expr) {
+        tag(GROUPING);
+        write(expr.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitLiteralExpr(Literal expr) {
+        tag(LITERAL);
+        value(expr.value);
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryExpr(Unary expr) {
+        tag(UNARY);
+        token(expr.operator);
+        write(expr.right);
+        return null;
+    }
+
+    @Override
+    public Void visitVariableExpr(Variable expr) {
+        tag(VARIABLE);
+        token(expr.name);
+        integer(expr.depth);
+        integer(expr.slot);
+        return null;
+    }
+
+    // Fields
+
+    private void token(Token token) {
+        tag(token.type.ordinal());
+        string(token.lexeme);
+        value(token.literal);
+        integer(token.line);
+    }
+
+    private void value(@Nullable Object value) {
+        try {
+            if (value == null) {
+                out.writeByte(NULL);
+            } else if (value instanceof Boolean) {
+                out.writeByte((Boolean) value ? TRUE : FALSE);
+            } else if (value instanceof Double) {
+                out.writeByte(NUMBER);
+                out.writeDouble((Double) value);
+            } else if (value instanceof String) {
+                out.writeByte(STRING);
+                string((String) value);
+            } else {
+                throw new IllegalArgumentException("Cannot cache a literal of type " + value.getClass().getName() + ".");
+            }
+        } catch (IOException error) {
+            throw new UncheckedIOException(error);
+        }
+    }
+
+    private void string(String value) {
+        try {
+            Integer index = strings.get(value);
+            if (index != null) {
+                out.writeInt(index);
+                return;
+            }
+
+            // The next free index announces a new string
+            out.writeInt(strings.size());
+            strings.put(value, strings.size());
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        } catch (IOException error) {
+            throw new UncheckedIOException(error);
+        }
+    }
+
+    private void tag(int tag) {
+        try {
+            out.writeByte(tag);
+        } catch (IOException error) {
+            throw new UncheckedIOException(error);
+        }
+    }
+
+    private void integer(int value) {
+        try {
+            out.writeInt(value);
+        } catch (IOException error) {
+            throw new UncheckedIOException(error);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.samfoucart.jlox.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import com.samfoucart.jlox.Stmt;
+
+/**
+ * A directory of parsed, optimized and resolved programs, so unchanged scripts
+ * skip the Scanner, Parser, optimizer and Resolver.
+ * Entries are named by a SHA-256 of the source bytes and of the settings that shape the tree,
+ * a changed script simply misses and gets a new entry.
+ */
+@NullMarked
+public final class ScriptCache {
+    private static final int MAGIC = 0x4c4f5843;
+    // Bump whenever the tree or its encoding changes, old entries then stop matching
+    private static final int VERSION = 2;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Path directory;
+
+    public ScriptCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * The key of a source, settings are anything besides the source
+     * that changes the tree, like the optimization passes.
+     */
+    public String key(ByteBuffer source, String settings) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException error) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(error);
+        }
+
+        digest.update((VERSION + "\0" + settings + "\0").getBytes(StandardCharsets.UTF_8));
+        digest.update(source.duplicate());
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * The cached statements, or null when there is no usable entry for the key.
+     */
+    public @Nullable List<Stmt> load(String key) {
+        Path entry = entry(key);
+        if (!Files.isRegularFile(entry)) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(entry), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            return new AstReader(in).read();
+        } catch (IOException error) {
+            // A truncated or corrupt entry is a miss, it is overwritten by the next store
+            return null;
+        }
+    }
+
+    /**
+     * Writes resolved statements under the key.
+     * The entry appears atomically, so concurrent runs never read half of it.
+     */
+    public void store(String key, List<Stmt> statements) throws IOException {
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, key, ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), BUFFER_SIZE))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                new AstWriter(out).write(statements);
+            }
+            Files.move(temporary, entry(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private Path entry(String key) {
+        return directory.resolve(key + ".loxc");
+    }
+}
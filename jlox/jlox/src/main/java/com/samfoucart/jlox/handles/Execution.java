@@ -0,0 +1,19 @@
+package com.samfoucart.jlox.handles;
+
+import com.samfoucart.jlox.Environment;
+import com.samfoucart.jlox.output.OutputSink;
+
+/**
+ * What a run of compiled handles writes to: its globals and its output.
+ * It is passed as the first argument of every handle instead of being bound into them,
+ * so the same handles can run any number of times, at the same time, each with its own.
+ */
+final class Execution {
+    final Environment globals;
+    final OutputSink out;
+
+    Execution(Environment globals, OutputSink out) {
+        this.globals = globals;
+        this.out = out;
+    }
+}
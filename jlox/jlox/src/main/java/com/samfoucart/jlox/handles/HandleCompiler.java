@@ -0,0 +1,409 @@
+package com.samfoucart.jlox.handles;
+
+import static org.objectweb.asm.Opcodes.*;
+
+import java.lang.constant.ConstantDescs;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.ConstantCallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import com.samfoucart.jlox.Expr;
+import com.samfoucart.jlox.Frame;
+import com.samfoucart.jlox.JloxRuntimeError;
+import com.samfoucart.jlox.Stmt;
+import com.samfoucart.jlox.Token;
+import com.samfoucart.jlox.TokenType;
+import com.samfoucart.jlox.Values;
+import com.samfoucart.jlox.Expr.Assign;
+import com.samfoucart.jlox.Expr.Binary;
+import com.samfoucart.jlox.Expr.Grouping;
+import com.samfoucart.jlox.Expr.Literal;
+import com.samfoucart.jlox.Expr.Unary;
+import com.samfoucart.jlox.Expr.Variable;
+import com.samfoucart.jlox.Stmt.Block;
+import com.samfoucart.jlox.Stmt.Expression;
+import com.samfoucart.jlox.Stmt.If;
+import com.samfoucart.jlox.Stmt.Print;
+import com.samfoucart.jlox.Stmt.Var;
+import com.samfoucart.jlox.Stmt.While;
+
+/**
+ * Turns resolved statements into trees of java.lang.invoke combinators.
+ * A statement becomes an (Execution, Frame)void handle and an expression an (Execution, Frame)R handle,
+ * where R is double or boolean when the expression always produces one, and Object otherwise,
+ * so nested arithmetic and comparisons never box.
+ * Globals and output are reached through the Execution argument, so the handles hold no state of a run.
+ * If becomes guardWithTest and operands are evaluated in order with foldArguments.
+ * A While becomes a small spun class whose loop reaches its condition and body
+ * through invokedynamics bound to ConstantCallSites, so the JIT compiling a hot loop
+ * sees both trees as constants and can inline through them.
+ * MethodHandles.whileLoop is not used: its loop lives in a LambdaForm shared by every loop of the same shape,
+ * and the JIT compiles that loop without knowing which handles it calls.
+ */
+final class HandleCompiler implements Expr.Visitor<MethodHandle>, Stmt.Visitor<MethodHandle> {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType STATEMENT = MethodType.methodType(void.class, Execution.class, Frame.class);
+    private static final MethodType OBJECT_OPERATOR = MethodType.methodType(Object.class, Object.class, Object.class, Token.class);
+    private static final MethodType DOUBLE_OPERATOR = MethodType.methodType(double.class, Object.class, Object.class, Token.class);
+    private static final MethodType BOOLEAN_OPERATOR = MethodType.methodType(boolean.class, Object.class, Object.class, Token.class);
+    private static final MethodType DOUBLES = MethodType.methodType(double.class, double.class, double.class);
+    private static final MethodType COMPARISON = MethodType.methodType(boolean.class, double.class, double.class);
+    private static final MethodType EQUALITY = MethodType.methodType(boolean.class, Object.class, Object.class);
+    private static final MethodType LOOP_INIT = MethodType.methodType(Frame.class, Frame.class);
+    private static final MethodType LOOP_TEST = MethodType.methodType(boolean.class, Execution.class, Frame.class);
+
+    private static final MethodHandle IS_TRUTHY = find(Values.class, "isTruthy", boolean.class, Object.class);
+    private static final MethodHandle NEGATE = find(Values.class, "negate", double.class, Object.class, Token.class);
+    private static final MethodHandle NEGATE_DOUBLE = find(HandleRuntime.class, "negate", double.class, double.class);
+    private static final MethodHandle NOT = find(HandleRuntime.class, "not", boolean.class, Object.class);
+    private static final MethodHandle NOT_BOOLEAN = find(HandleRuntime.class, "not", boolean.class, boolean.class);
+    private static final MethodHandle SET_LOCAL = find(HandleRuntime.class, "setLocal", Object.class,
+            Object.class, Frame.class, int.class, int.class);
+    private static final MethodHandle GET_GLOBAL = find(HandleRuntime.class, "getGlobal", Object.class,
+            Execution.class, Token.class);
+    private static final MethodHandle DEFINE_GLOBAL = find(HandleRuntime.class, "defineGlobal", void.class,
+            Object.class, Execution.class, Token.class);
+    private static final MethodHandle ASSIGN_GLOBAL = find(HandleRuntime.class, "assignGlobal", Object.class,
+            Object.class, Execution.class, Token.class);
+    private static final MethodHandle PRINT = find(HandleRuntime.class, "print", void.class, Object.class, Execution.class);
+    private static final MethodHandle GET_LOCAL;
+    private static final MethodHandle CLEAR_FRAME;
+    private static final MethodHandle NEW_FRAME;
+
+    static {
+        try {
+            GET_LOCAL = LOOKUP.findVirtual(Frame.class, "get", MethodType.methodType(Object.class, int.class, int.class));
+            CLEAR_FRAME = LOOKUP.findVirtual(Frame.class, "clear", MethodType.methodType(void.class));
+            NEW_FRAME = LOOKUP.findConstructor(Frame.class, MethodType.methodType(void.class, int.class, Frame.class));
+        } catch (ReflectiveOperationException error) {
+            throw new ExceptionInInitializerError(error);
+        }
+    }
+
+    // A class with a single loop that calls the handles bound to its invokedynamics
+    private static final byte[] LOOP = loopClass();
+
+    private static MethodHandle find(Class<?> owner, String name, Class<?> returnType, Class<?>... parameters) {
+        try {
+            return LOOKUP.findStatic(owner, name, MethodType.methodType(returnType, parameters));
+        } catch (ReflectiveOperationException error) {
+            throw new ExceptionInInitializerError(error);
+        }
+    }
+
+    /** Compiles a top level statement to an (Execution, Frame)void handle. */
+    MethodHandle compile(Stmt stmt) {
+        return statement(stmt);
+    }
+
+    private MethodHandle statement(Stmt stmt) {
+        return stmt.accept(this);
+    }
+
+    private MethodHandle expression(Expr expr) {
+        return expr.accept(this);
+    }
+
+    // Statements
+
+    @Override
+    public MethodHandle visitExpressionStmt(Expression stmt) {
+        return expression(stmt.expression).asType(STATEMENT);
+    }
+
+    @Override
+    public MethodHandle visitPrintStmt(Print stmt) {
+        return withValue(MethodHandles.dropArguments(PRINT, 2, Frame.class), boxed(expression(stmt.expression)));
+    }
+
+    @Override
+    public MethodHandle visitBlockStmt(Block stmt) {
+        MethodHandle statements = sequence(stmt.statements);
+        if (stmt.slots == 0) {
+            return statements;
+        }
+
+        return MethodHandles.filterArguments(statements, 1, newFrame(stmt.slots));
+    }
+
+    @Override
+    public MethodHandle visitVarStmt(Var stmt) {
+        MethodHandle value = stmt.initializer != null
+                ? boxed(expression(stmt.initializer))
+                : constant(Object.class, null);
+
+        if (stmt.slot >= 0) {
+            MethodHandle set = local(MethodHandles.insertArguments(SET_LOCAL, 2, 0, stmt.slot));
+            return withValue(set.asType(MethodType.methodType(void.class, Object.class, Execution.class, Frame.class)), value);
+        }
+
+        MethodHandle define = MethodHandles.insertArguments(DEFINE_GLOBAL, 2, stmt.name);
+        return withValue(MethodHandles.dropArguments(define, 2, Frame.class), value);
+    }
+
+    @Override
+    public MethodHandle visitIfStmt(If stmt) {
+        MethodHandle falsey = stmt.falsey != null ? statement(stmt.falsey) : MethodHandles.empty(STATEMENT);
+        return MethodHandles.guardWithTest(test(stmt.condition), statement(stmt.truthy), falsey);
+    }
+
+    @Override
+    public MethodHandle visitWhileStmt(While stmt) {
+        MethodHandle test = test(stmt.condition);
+        if (!(stmt.loop instanceof Block) || ((Block) stmt.loop).slots == 0) {
+            return loop(MethodHandles.identity(Frame.class), test, statement(stmt.loop));
+        }
+
+        // The frame of the body is created once, then cleared and reused by every iteration
+        Block body = (Block) stmt.loop;
+        MethodHandle iteration = MethodHandles.foldArguments(sequence(body.statements), 1, CLEAR_FRAME);
+        return loop(newFrame(body.slots), test, iteration);
+    }
+
+    // Runs the statements one after the other on the same frame.
+    // The list is split in halves, so long blocks nest logarithmically rather than linearly deep.
+    private MethodHandle sequence(List<Stmt> statements) {
+        if (statements.isEmpty()) {
+            return MethodHandles.empty(STATEMENT);
+        }
+
+        if (statements.size() == 1) {
+            return statement(statements.get(0));
+        }
+
+        int middle = statements.size() / 2;
+        MethodHandle first = sequence(statements.subList(0, middle));
+        return MethodHandles.foldArguments(sequence(statements.subList(middle, statements.size())), first);
+    }
+
+    private static MethodHandle newFrame(int slots) {
+        return MethodHandles.insertArguments(NEW_FRAME, 0, slots);
+    }
+
+    // Expressions
+
+    @Override
+    public MethodHandle visitAssignExpr(Assign expr) {
+        MethodHandle value = boxed(expression(expr.value));
+        if (expr.depth >= 0) {
+            return withValue(local(MethodHandles.insertArguments(SET_LOCAL, 2, expr.depth, expr.slot)), value);
+        }
+
+        MethodHandle assign = MethodHandles.insertArguments(ASSIGN_GLOBAL, 2, expr.name);
+        return withValue(MethodHandles.dropArguments(assign, 2, Frame.class), value);
+    }
+
+    @Override
+    public MethodHandle visitBinaryExpr(Binary expr) {
+        MethodHandle left = expression(expr.left);
+        MethodHandle right = expression(expr.right);
+        boolean numbers = returns(left, double.class) && returns(right, double.class);
+
+        switch (expr.operator.type) {
+            case PLUS:
+                return numbers
+                        ? binary(runtime("add", DOUBLES), left, right)
+                        : binary(operator("add", OBJECT_OPERATOR, expr.operator), boxed(left), boxed(right));
+            case MINUS:
+                return arithmetic("subtract", expr.operator, numbers, left, right);
+            case STAR:
+                return arithmetic("multiply", expr.operator, numbers, left, right);
+            case SLASH:
+                return arithmetic("divide", expr.operator, numbers, left, right);
+            case GREATER:
+                return comparison("greater", expr.operator, numbers, left, right);
+            case GREATER_EQUAL:
+                return comparison("greaterEqual", expr.operator, numbers, left, right);
+            case LESS:
+                return comparison("less", expr.operator, numbers, left, right);
+            case LESS_EQUAL:
+                return comparison("lessEqual", expr.operator, numbers, left, right);
+            case EQUAL_EQUAL:
+                return binary(runtime("equal", EQUALITY), boxed(left), boxed(right));
+            case BANG_EQUAL:
+                return binary(runtime("notEqual", EQUALITY), boxed(left), boxed(right));
+            default:
+                return constant(Object.class, null);
+        }
+    }
+
+    private MethodHandle arithmetic(String name, Token operator, boolean numbers, MethodHandle left, MethodHandle right) {
+        return numbers
+                ? binary(runtime(name, DOUBLES), left, right)
+                : binary(operator(name, DOUBLE_OPERATOR, operator), boxed(left), boxed(right));
+    }
+
+    private MethodHandle comparison(String name, Token operator, boolean numbers, MethodHandle left, MethodHandle right) {
+        return numbers
+                ? binary(runtime(name, COMPARISON), left, right)
+                : binary(operator(name, BOOLEAN_OPERATOR, operator), boxed(left), boxed(right));
+    }
+
+    @Override
+    public MethodHandle visitGroupingExpr(Grouping expr) {
+        return expression(expr.expression);
+    }
+
+    @Override
+    public MethodHandle visitLiteralExpr(Literal expr) {
+        if (expr.value instanceof Integer) {
+            return constant(double.class, ((Integer) expr.value).doubleValue());
+        } else if (expr.value instanceof Double) {
+            return constant(double.class, expr.value);
+        } else if (expr.value instanceof Boolean) {
+            return constant(boolean.class, expr.value);
+        }
+
+        return constant(Object.class, expr.value);
+    }
+
+    @Override
+    public MethodHandle visitUnaryExpr(Unary expr) {
+        MethodHandle right = expression(expr.right);
+        if (expr.operator.type == TokenType.MINUS) {
+            return returns(right, double.class)
+                    ? MethodHandles.filterReturnValue(right, NEGATE_DOUBLE)
+                    : MethodHandles.filterReturnValue(boxed(right), MethodHandles.insertArguments(NEGATE, 1, expr.operator));
+        } else if (expr.operator.type == TokenType.BANG) {
+            return returns(right, boolean.class)
+                    ? MethodHandles.filterReturnValue(right, NOT_BOOLEAN)
+                    : MethodHandles.filterReturnValue(boxed(right), NOT);
+        }
+
+        throw new JloxRuntimeError(expr.operator, "Unreachable statement");
+    }
+
+    @Override
+    public MethodHandle visitVariableExpr(Variable expr) {
+        if (expr.depth >= 0) {
+            return MethodHandles.dropArguments(MethodHandles.insertArguments(GET_LOCAL, 1, expr.depth, expr.slot), 0, Execution.class);
+        }
+
+        return MethodHandles.dropArguments(MethodHandles.insertArguments(GET_GLOBAL, 1, expr.name), 1, Frame.class);
+    }
+
+    // Combinators
+
+    private static boolean returns(MethodHandle handle, Class<?> type) {
+        return handle.type().returnType() == type;
+    }
+
+    // An expression that ignores the execution and the frame
+    private static MethodHandle constant(Class<?> type, Object value) {
+        return MethodHandles.dropArguments(MethodHandles.constant(type, value), 0, Execution.class, Frame.class);
+    }
+
+    // Takes the execution after the value, like the global operations, from a (V, Frame)R local operation
+    private static MethodHandle local(MethodHandle operation) {
+        return MethodHandles.dropArguments(operation, 1, Execution.class);
+    }
+
+    private static MethodHandle boxed(MethodHandle expression) {
+        return expression.asType(expression.type().changeReturnType(Object.class));
+    }
+
+    // The condition of an if or a while as an (Execution, Frame)boolean
+    private MethodHandle test(Expr condition) {
+        MethodHandle value = expression(condition);
+        return returns(value, boolean.class) ? value : MethodHandles.filterReturnValue(boxed(value), IS_TRUTHY);
+    }
+
+    private static MethodHandle runtime(String name, MethodType type) {
+        try {
+            return LOOKUP.findStatic(HandleRuntime.class, name, type);
+        } catch (ReflectiveOperationException error) {
+            throw new IllegalStateException(error);
+        }
+    }
+
+    // A checked operation from Values with its operator bound, for errors
+    private static MethodHandle operator(String name, MethodType type, Token operator) {
+        try {
+            return MethodHandles.insertArguments(LOOKUP.findStatic(Values.class, name, type), 2, operator);
+        } catch (ReflectiveOperationException error) {
+            throw new IllegalStateException(error);
+        }
+    }
+
+    /**
+     * Applies an (A, B)R operation to an (Execution, Frame)A and an (Execution, Frame)B handle,
+     * evaluating the left operand before the right one.
+     */
+    private static MethodHandle binary(MethodHandle operation, MethodHandle left, MethodHandle right) {
+        MethodHandle target = MethodHandles.dropArguments(operation, 2, Execution.class, Frame.class);
+        target = MethodHandles.foldArguments(target, 1, right);
+        return MethodHandles.foldArguments(target, 0, left);
+    }
+
+    // Evaluates an (Execution, Frame)V value, then passes it along with both to a (V, Execution, Frame)R target
+    private static MethodHandle withValue(MethodHandle target, MethodHandle value) {
+        return MethodHandles.foldArguments(target, 0, value);
+    }
+
+    // Loops
+
+    /**
+     * Spins a class running while (test(execution, frame)) body(execution, init(frame)'s result),
+     * where init makes the frame of the body from the enclosing one.
+     */
+    private static MethodHandle loop(MethodHandle init, MethodHandle test, MethodHandle body) {
+        try {
+            MethodHandles.Lookup lookup = LOOKUP.defineHiddenClassWithClassData(LOOP, List.of(init, test, body), true);
+            return lookup.findStatic(lookup.lookupClass(), "run", STATEMENT);
+        } catch (ReflectiveOperationException error) {
+            throw new IllegalStateException(error);
+        }
+    }
+
+    /** Links an invokedynamic of a spun loop to the handle its name points at in the class data. */
+    static CallSite bootstrap(MethodHandles.Lookup lookup, String name, MethodType type) throws IllegalAccessException {
+        int index = name.equals("init") ? 0 : name.equals("test") ? 1 : 2;
+        MethodHandle target = MethodHandles.classDataAt(lookup, ConstantDescs.DEFAULT_NAME, MethodHandle.class, index);
+        return new ConstantCallSite(target);
+    }
+
+    private static byte[] loopClass() {
+        String self = Type.getInternalName(HandleCompiler.class);
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES);
+        writer.visit(V17, ACC_FINAL | ACC_SUPER, self.replace("HandleCompiler", "Loop"), null,
+                Type.getInternalName(Object.class), null);
+        Handle bootstrap = new Handle(H_INVOKESTATIC, self, "bootstrap",
+                MethodType.methodType(CallSite.class, MethodHandles.Lookup.class, String.class, MethodType.class)
+                        .toMethodDescriptorString(), false);
+
+        // static void run(Execution execution, Frame enclosing) {
+        //     Frame frame = init(enclosing); while (test(execution, enclosing)) body(execution, frame);
+        // }
+        MethodVisitor method = writer.visitMethod(ACC_STATIC, "run", STATEMENT.toMethodDescriptorString(), null, null);
+        method.visitCode();
+        method.visitVarInsn(ALOAD, 1);
+        method.visitInvokeDynamicInsn("init", LOOP_INIT.toMethodDescriptorString(), bootstrap);
+        method.visitVarInsn(ASTORE, 2);
+        Label check = new Label();
+        Label done = new Label();
+        method.visitLabel(check);
+        method.visitVarInsn(ALOAD, 0);
+        method.visitVarInsn(ALOAD, 1);
+        method.visitInvokeDynamicInsn("test", LOOP_TEST.toMethodDescriptorString(), bootstrap);
+        method.visitJumpInsn(IFEQ, done);
+        method.visitVarInsn(ALOAD, 0);
+        method.visitVarInsn(ALOAD, 2);
+        method.visitInvokeDynamicInsn("body", STATEMENT.toMethodDescriptorString(), bootstrap);
+        method.visitJumpInsn(GOTO, check);
+        method.visitLabel(done);
+        method.visitInsn(RETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+}
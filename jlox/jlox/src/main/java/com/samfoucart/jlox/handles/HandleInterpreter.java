@@ -0,0 +1,32 @@
+package com.samfoucart.jlox.handles;
+
+import java.util.List;
+
+import com.samfoucart.jlox.Environment;
+import com.samfoucart.jlox.ErrorReporter;
+import com.samfoucart.jlox.Jlox;
+import com.samfoucart.jlox.Stmt;
+import com.samfoucart.jlox.output.OutputSink;
+import com.samfoucart.jlox.output.PrintStreamSink;
+
+/**
+ * Runs resolved statements by compiling them to a HandleProgram and running it.
+ * Globals persist between calls to interpret, like in the REPL.
+ */
+public class HandleInterpreter {
+    private final Execution execution;
+    private final ErrorReporter reporter;
+
+    public HandleInterpreter() {
+        this(new PrintStreamSink(System.out), Jlox.reporter());
+    }
+
+    public HandleInterpreter(OutputSink out, ErrorReporter reporter) {
+        this.execution = new Execution(new Environment(), out);
+        this.reporter = reporter;
+    }
+
+    public void interpret(List<Stmt> statements) {
+        HandleProgram.compile(statements).run(execution, reporter);
+    }
+}
@@ -0,0 +1,61 @@
+package com.samfoucart.jlox.handles;
+
+import java.lang.invoke.MethodHandle;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jspecify.annotations.NullMarked;
+
+import com.samfoucart.jlox.Environment;
+import com.samfoucart.jlox.ErrorReporter;
+import com.samfoucart.jlox.Frame;
+import com.samfoucart.jlox.JloxRuntimeError;
+import com.samfoucart.jlox.Stmt;
+import com.samfoucart.jlox.metrics.RuntimeMetrics;
+import com.samfoucart.jlox.output.OutputSink;
+
+/**
+ * Resolved statements compiled to method handles once, to be run many times.
+ * The handles take the globals and output of a run as an argument,
+ * so any number of threads can run the program, and loops are only spun once.
+ */
+@NullMarked
+public final class HandleProgram {
+    private final List<MethodHandle> statements;
+
+    private HandleProgram(List<MethodHandle> statements) {
+        this.statements = statements;
+    }
+
+    public static HandleProgram compile(List<Stmt> statements) {
+        HandleCompiler compiler = new HandleCompiler();
+        List<MethodHandle> compiled = new ArrayList<>(statements.size());
+        for (Stmt statement : statements) {
+            compiled.add(compiler.compile(statement));
+        }
+        return new HandleProgram(List.copyOf(compiled));
+    }
+
+    /** Runs the program with fresh globals. */
+    public void run(OutputSink out, ErrorReporter reporter) {
+        run(new Execution(new Environment(), out), reporter);
+    }
+
+    void run(Execution execution, ErrorReporter reporter) {
+        long start = System.nanoTime();
+        try {
+            for (MethodHandle statement : statements) {
+                statement.invokeExact(execution, (Frame) null);
+            }
+        } catch (JloxRuntimeError error) {
+            reporter.runtimeError(error);
+        } catch (RuntimeException | Error error) {
+            throw error;
+        } catch (Throwable error) {
+            // Nothing in the handles throws a checked exception
+            throw new IllegalStateException(error);
+        } finally {
+            RuntimeMetrics.get().addPhase(RuntimeMetrics.Phase.INTERPRET, System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.samfoucart.jlox.handles;
+
+import com.samfoucart.jlox.Frame;
+import com.samfoucart.jlox.Token;
+import com.samfoucart.jlox.Values;
+
+/**
+ * The operations at the leaves of the method handle trees.
+ * Operands that are known to be numbers come in as primitive doubles,
+ * everything else goes through the checked operations in Values, like in every other backend.
+ * Both operands are always evaluated before either is checked, like in the Interpreter.
+ */
+final class HandleRuntime {
+    private HandleRuntime() {
+    }
+
+    // Arithmetic on operands known to be numbers
+
+    static double add(double left, double right) {
+        return left + right;
+    }
+
+    static double subtract(double left, double right) {
+        return left - right;
+    }
+
+    static double multiply(double left, double right) {
+        return left * right;
+    }
+
+    static double divide(double left, double right) {
+        return left / right;
+    }
+
+    static boolean greater(double left, double right) {
+        return left > right;
+    }
+
+    static boolean greaterEqual(double left, double right) {
+        return left >= right;
+    }
+
+    static boolean less(double left, double right) {
+        return left < right;
+    }
+
+    static boolean lessEqual(double left, double right) {
+        return left <= right;
+    }
+
+    static double negate(double operand) {
+        return -operand;
+    }
+
+    static boolean not(boolean operand) {
+        return !operand;
+    }
+
+    // Operations on any value, the checked ones are in Values
+
+    static boolean equal(Object left, Object right) {
+        return Values.isEqual(left, right);
+    }
+
+    static boolean notEqual(Object left, Object right) {
+        return !Values.isEqual(left, right);
+    }
+
+    static boolean not(Object operand) {
+        return !Values.isTruthy(operand);
+    }
+
+    // Variables and statements, the value comes first so it can be folded in
+
+    static Object setLocal(Object value, Frame frame, int depth, int slot) {
+        frame.set(depth, slot, value);
+        return value;
+    }
+
+    static Object getGlobal(Execution execution, Token name) {
+        return execution.globals.getValue(name);
+    }
+
+    static void defineGlobal(Object value, Execution execution, Token name) {
+        execution.globals.define(name, value);
+    }
+
+    static Object assignGlobal(Object value, Execution execution, Token name) {
+        execution.globals.assign(name, value);
+        return value;
+    }
+
+    static void print(Object value, Execution execution) {
+        execution.out.println(Values.stringify(value));
+    }
+}
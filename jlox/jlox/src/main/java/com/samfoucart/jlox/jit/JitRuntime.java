@@ -0,0 +1,33 @@
+package com.samfoucart.jlox.jit;
+
+import com.samfoucart.jlox.Environment;
+import com.samfoucart.jlox.Token;
+import com.samfoucart.jlox.Values;
+import com.samfoucart.jlox.output.OutputSink;
+
+/**
+ * Slow paths called from compiled loops for globals and printing.
+ * Operations that are not specialized to primitive doubles
+ * call the checked operations in Values, like every other backend.
+ */
+final class JitRuntime {
+    private JitRuntime() {
+    }
+
+    static Object getGlobal(Environment globals, Token name) {
+        return globals.getValue(name);
+    }
+
+    static void assignGlobal(Object value, Environment globals, Token name) {
+        globals.assign(name, value);
+    }
+
+    // Used by the entry guards, a missing global simply fails the guard
+    static Object globalOrNull(Environment globals, Token name) {
+        return globals.isDefined(name) ? globals.getValue(name) : null;
+    }
+
+    static void print(OutputSink out, Object value) {
+        out.println(Values.stringify(value));
+    }
+}
@@ -0,0 +1,879 @@
+package com.samfoucart.jlox.jit;
+
+import static org.objectweb.asm.Opcodes.*;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.jspecify.annotations.Nullable;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodTooLargeException;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import com.samfoucart.jlox.CompiledLoop;
+import com.samfoucart.jlox.Environment;
+import com.samfoucart.jlox.Expr;
+import com.samfoucart.jlox.Frame;
+import com.samfoucart.jlox.Stmt;
+import com.samfoucart.jlox.Token;
+import com.samfoucart.jlox.TokenType;
+import com.samfoucart.jlox.Values;
+import com.samfoucart.jlox.output.OutputSink;
+import com.samfoucart.jlox.Expr.Assign;
+import com.samfoucart.jlox.Expr.Binary;
+import com.samfoucart.jlox.Expr.Grouping;
+import com.samfoucart.jlox.Expr.Literal;
+import com.samfoucart.jlox.Expr.Unary;
+import com.samfoucart.jlox.Expr.Variable;
+import com.samfoucart.jlox.Stmt.Block;
+import com.samfoucart.jlox.Stmt.Expression;
+import com.samfoucart.jlox.Stmt.If;
+import com.samfoucart.jlox.Stmt.Print;
+import com.samfoucart.jlox.Stmt.Var;
+import com.samfoucart.jlox.Stmt.While;
+
+/**
+ * Compiles a hot while loop to a static method of a hidden class.
+ *
+ * Lox has no functions, so nothing outside the loop can touch its variables
+ * while it runs. The compiler uses that to specialize on the values it sees:
+ * a variable that holds a number now, and is only ever assigned numbers
+ * inside the loop, lives in a primitive double JVM local for the whole loop.
+ * The compiled code checks those types once on entry and returns false
+ * if they no longer hold, so the Interpreter runs the loop instead.
+ * Locals of blocks inside the loop become JVM locals as well,
+ * everything else goes through the Frame slots, the globals, and JitRuntime.
+ */
+public final class LoopCompiler implements Expr.Visitor<LoopCompiler.Kind>, Stmt.Visitor<Void> {
+    /** How a compiled expression leaves its value on the JVM stack. */
+    enum Kind {
+        DOUBLE,
+        BOOLEAN,
+        OBJECT,
+    }
+
+    private enum Storage {
+        GLOBAL,
+        OUTER,
+        INNER,
+    }
+
+    // A variable as seen from the loop: a global by name,
+    // a slot of a frame around the loop, or a slot of a block inside it
+    private static final class Key {
+        final Storage storage;
+        final int scope;
+        final int slot;
+        final @Nullable String name;
+
+        Key(Storage storage, int scope, int slot, @Nullable String name) {
+            this.storage = storage;
+            this.scope = scope;
+            this.slot = slot;
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+
+            Key key = (Key) other;
+            return storage == key.storage && scope == key.scope && slot == key.slot
+                    && Objects.equals(name, key.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(storage, scope, slot, name);
+        }
+    }
+
+    private static final String RUNTIME = Type.getInternalName(JitRuntime.class);
+    private static final String VALUES = Type.getInternalName(Values.class);
+    private static final String OBJECT = "java/lang/Object";
+    private static final String DOUBLE = "java/lang/Double";
+    private static final String TOKEN = Type.getInternalName(Token.class);
+    private static final String RUN_DESCRIPTOR = Type.getMethodDescriptor(Type.BOOLEAN_TYPE,
+            Type.getType(Frame.class), Type.getType(Environment.class), Type.getType(Object[].class),
+            Type.getType(OutputSink.class));
+    private static final String BINARY_DESCRIPTOR = "(Ljava/lang/Object;Ljava/lang/Object;L" + TOKEN + ";)";
+    private static final MethodType RUN_TYPE = MethodType.methodType(boolean.class,
+            Frame.class, Environment.class, Object[].class, OutputSink.class);
+
+    private static final int FRAME = 0;
+    private static final int GLOBALS = 1;
+    private static final int CONSTANTS = 2;
+    private static final int OUT = 3;
+
+    private final While loop;
+    private final @Nullable Frame frame;
+    private final Environment globals;
+
+    // Analysis results
+    private final Map<Expr, Key> references = new IdentityHashMap<>();
+    private final Map<Var, Key> declarations = new IdentityHashMap<>();
+    private final Map<Block, Integer> blocks = new IdentityHashMap<>();
+    private final Map<Key, List<@Nullable Expr>> assignments = new LinkedHashMap<>();
+    private final Set<Key> variables = new LinkedHashSet<>();
+    private final Map<Key, Token> names = new HashMap<>();
+    private final Set<Key> numbers = new HashSet<>();
+    private final List<Integer> scopes = new ArrayList<>();
+    private boolean supported = true;
+
+    // Code generation state
+    private final List<Object> constants = new ArrayList<>();
+    private final Map<Token, Integer> constantIndexes = new IdentityHashMap<>();
+    private final Map<Integer, Integer> frameLocals = new HashMap<>();
+    private final Map<Key, Integer> locals = new HashMap<>();
+    private MethodVisitor method;
+    private int nextLocal = OUT + 1;
+
+    private LoopCompiler(While loop, @Nullable Frame frame, Environment globals) {
+        this.loop = loop;
+        this.frame = frame;
+        this.globals = globals;
+    }
+
+    /**
+     * Compiles the loop for the current values of its variables,
+     * frame being the innermost frame around the loop.
+     * Returns null when the loop can't be compiled.
+     */
+    public static @Nullable CompiledLoop compile(While loop, @Nullable Frame frame, Environment globals) {
+        LoopCompiler compiler = new LoopCompiler(loop, frame, globals);
+        compiler.analyze();
+        if (!compiler.supported) {
+            return null;
+        }
+
+        try {
+            return compiler.generate();
+        } catch (MethodTooLargeException | IllegalAccessException | NoSuchMethodException error) {
+            return null;
+        }
+    }
+
+    // Analysis
+
+    private void analyze() {
+        new Analyzer().scan(loop);
+
+        // Speculate on the values seen right now,
+        // block locals are numbers until proven otherwise
+        for (Key key : variables) {
+            if (key.storage == Storage.INNER || currentValue(key) instanceof Double) {
+                numbers.add(key);
+            }
+        }
+
+        // Drop every variable that is assigned something other than a number,
+        // which can in turn make other assignments non numeric
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Map.Entry<Key, List<@Nullable Expr>> entry : assignments.entrySet()) {
+                if (!numbers.contains(entry.getKey())) {
+                    continue;
+                }
+
+                for (Expr value : entry.getValue()) {
+                    if (value == null || kind(value) != Kind.DOUBLE) {
+                        numbers.remove(entry.getKey());
+                        changed = true;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private @Nullable Object currentValue(Key key) {
+        if (key.storage == Storage.GLOBAL) {
+            return JitRuntime.globalOrNull(globals, names.get(key));
+        }
+
+        return frame.slots(key.scope)[key.slot];
+    }
+
+    private Key key(Token name, int depth, int slot) {
+        if (depth < 0) {
+            return new Key(Storage.GLOBAL, -1, -1, name.lexeme);
+        }
+
+        if (depth < scopes.size()) {
+            return new Key(Storage.INNER, scopes.get(scopes.size() - 1 - depth), slot, null);
+        }
+
+        return new Key(Storage.OUTER, depth - scopes.size(), slot, null);
+    }
+
+    private void assigned(Key key, @Nullable Expr value) {
+        assignments.computeIfAbsent(key, k -> new ArrayList<>()).add(value);
+    }
+
+    // Records every variable the loop touches, keyed the same way from any block
+    private class Analyzer implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
+        void scan(Stmt stmt) {
+            stmt.accept(this);
+        }
+
+        void scan(Expr expr) {
+            expr.accept(this);
+        }
+
+        @Override
+        public Void visitExpressionStmt(Expression stmt) {
+            scan(stmt.expression);
+            return null;
+        }
+
+        @Override
+        public Void visitPrintStmt(Print stmt) {
+            scan(stmt.expression);
+            return null;
+        }
+
+        @Override
+        public Void visitBlockStmt(Block stmt) {
+            // Like the Resolver, only blocks with slots are scopes
+            if (stmt.slots == 0) {
+                for (Stmt statement : stmt.statements) {
+                    scan(statement);
+                }
+                return null;
+            }
+
+            int scope = blocks.size();
+            blocks.put(stmt, scope);
+            scopes.add(scope);
+            for (Stmt statement : stmt.statements) {
+                scan(statement);
+            }
+            scopes.remove(scopes.size() - 1);
+            return null;
+        }
+
+        @Override
+        public Void visitVarStmt(Var stmt) {
+            if (stmt.initializer != null) {
+                scan(stmt.initializer);
+            }
+
+            // Only blocks declare locals, globals are declared at the top level
+            if (stmt.slot < 0 || scopes.isEmpty()) {
+                supported = false;
+                return null;
+            }
+
+            Key key = new Key(Storage.INNER, scopes.get(scopes.size() - 1), stmt.slot, null);
+            declarations.put(stmt, key);
+            variables.add(key);
+            assigned(key, stmt.initializer);
+            return null;
+        }
+
+        @Override
+        public Void visitIfStmt(If stmt) {
+            scan(stmt.condition);
+            scan(stmt.truthy);
+            if (stmt.falsey != null) {
+                scan(stmt.falsey);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitWhileStmt(While stmt) {
+            scan(stmt.condition);
+            scan(stmt.loop);
+            return null;
+        }
+
+        @Override
+        public Void visitAssignExpr(Assign expr) {
+            scan(expr.value);
+            Key key = key(expr.name, expr.depth, expr.slot);
+            references.put(expr, key);
+            variables.add(key);
+            names.putIfAbsent(key, expr.name);
+            assigned(key, expr.value);
+            return null;
+        }
+
+        @Override
+        public Void visitBinaryExpr(Binary expr) {
+            scan(expr.left);
+            scan(expr.right);
+            return null;
+        }
+
+        @Override
+        public Void visitGroupingExpr(Grouping expr) {
+            scan(expr.expression);
+            return null;
+        }
+
+        @Override
+        public Void visitLiteralExpr(Literal expr) {
+            return null;
+        }
+
+        @Override
+        public Void visitUnaryExpr(Unary expr) {
+            scan(expr.right);
+            return null;
+        }
+
+        @Override
+        public Void visitVariableExpr(Variable expr) {
+            Key key = key(expr.name, expr.depth, expr.slot);
+            references.put(expr, key);
+            variables.add(key);
+            names.putIfAbsent(key, expr.name);
+            return null;
+        }
+    }
+
+    // The kind the generated code produces for an expression,
+    // given the current set of numeric variables
+    private Kind kind(Expr expr) {
+        if (expr instanceof Literal) {
+            Object value = ((Literal) expr).value;
+            if (value instanceof Double || value instanceof Integer) {
+                return Kind.DOUBLE;
+            }
+            return value instanceof Boolean ? Kind.BOOLEAN : Kind.OBJECT;
+        }
+
+        if (expr instanceof Grouping) {
+            return kind(((Grouping) expr).expression);
+        }
+
+        if (expr instanceof Unary) {
+            return ((Unary) expr).operator.type == TokenType.MINUS ? Kind.DOUBLE : Kind.BOOLEAN;
+        }
+
+        if (expr instanceof Binary) {
+            Binary binary = (Binary) expr;
+            switch (binary.operator.type) {
+                case MINUS:
+                case STAR:
+                case SLASH:
+                    return Kind.DOUBLE;
+                case PLUS:
+                    return kind(binary.left) == Kind.DOUBLE && kind(binary.right) == Kind.DOUBLE
+                            ? Kind.DOUBLE : Kind.OBJECT;
+                case GREATER:
+                case GREATER_EQUAL:
+                case LESS:
+                case LESS_EQUAL:
+                case EQUAL_EQUAL:
+                case BANG_EQUAL:
+                    return Kind.BOOLEAN;
+                default:
+                    return Kind.OBJECT;
+            }
+        }
+
+        return numbers.contains(references.get(expr)) ? Kind.DOUBLE : Kind.OBJECT;
+    }
+
+    // Code generation
+
+    private CompiledLoop generate() throws IllegalAccessException, NoSuchMethodException {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES) {
+            // Frames only ever merge values of the generated code itself,
+            // Object is precise enough and avoids loading any classes
+            @Override
+            protected String getCommonSuperClass(String left, String right) {
+                return OBJECT;
+            }
+        };
+
+        String name = Type.getInternalName(LoopCompiler.class).replace("LoopCompiler", "Loop");
+        writer.visit(V17, ACC_FINAL | ACC_SUPER, name, null, OBJECT, null);
+        method = writer.visitMethod(ACC_STATIC, "run", RUN_DESCRIPTOR, null, null);
+        method.visitCode();
+
+        Label deoptimize = new Label();
+        enter(deoptimize);
+
+        Label start = new Label();
+        Label end = new Label();
+        Label handler = new Label();
+        method.visitTryCatchBlock(start, end, handler, "java/lang/Throwable");
+        method.visitLabel(start);
+        visitWhileStmt(loop);
+        method.visitLabel(end);
+        exit();
+        method.visitInsn(ICONST_1);
+        method.visitInsn(IRETURN);
+
+        // Values assigned before a runtime error stay visible, like in the Interpreter
+        method.visitLabel(handler);
+        exit();
+        method.visitInsn(ATHROW);
+
+        method.visitLabel(deoptimize);
+        method.visitInsn(POP);
+        method.visitInsn(ICONST_0);
+        method.visitInsn(IRETURN);
+
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+        writer.visitEnd();
+
+        MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(writer.toByteArray(), true);
+        MethodHandle code = lookup.findStatic(lookup.lookupClass(), "run", RUN_TYPE);
+        return new CompiledLoop(code, constants.toArray());
+    }
+
+    // Caches the frames around the loop and unboxes the numeric variables,
+    // jumping to deoptimize with the offending value on the stack if one isn't a number
+    private void enter(Label deoptimize) {
+        Set<Integer> depths = new TreeSet<>();
+        for (Key key : variables) {
+            if (key.storage == Storage.OUTER) {
+                depths.add(key.scope);
+            }
+        }
+
+        for (int depth : depths) {
+            method.visitVarInsn(ALOAD, FRAME);
+            pushInt(depth);
+            method.visitMethodInsn(INVOKEVIRTUAL, Type.getInternalName(Frame.class), "slots", "(I)[Ljava/lang/Object;", false);
+            frameLocals.put(depth, nextLocal);
+            method.visitVarInsn(ASTORE, nextLocal++);
+        }
+
+        for (Key key : variables) {
+            if (!numbers.contains(key)) {
+                if (key.storage == Storage.INNER) {
+                    locals.put(key, nextLocal++);
+                }
+                continue;
+            }
+
+            locals.put(key, nextLocal);
+            nextLocal += 2;
+            if (key.storage == Storage.INNER) {
+                continue;
+            }
+
+            if (key.storage == Storage.GLOBAL) {
+                method.visitVarInsn(ALOAD, GLOBALS);
+                pushToken(names.get(key));
+                method.visitMethodInsn(INVOKESTATIC, RUNTIME, "globalOrNull",
+                        "(L" + Type.getInternalName(Environment.class) + ";L" + TOKEN + ";)Ljava/lang/Object;", false);
+            } else {
+                method.visitVarInsn(ALOAD, frameLocals.get(key.scope));
+                pushInt(key.slot);
+                method.visitInsn(AALOAD);
+            }
+
+            method.visitInsn(DUP);
+            method.visitTypeInsn(INSTANCEOF, DOUBLE);
+            method.visitJumpInsn(IFEQ, deoptimize);
+            method.visitTypeInsn(CHECKCAST, DOUBLE);
+            method.visitMethodInsn(INVOKEVIRTUAL, DOUBLE, "doubleValue", "()D", false);
+            method.visitVarInsn(DSTORE, locals.get(key));
+        }
+    }
+
+    // Boxes the numeric variables assigned in the loop back into their frame or the globals
+    private void exit() {
+        for (Key key : assignments.keySet()) {
+            if (key.storage == Storage.INNER || !numbers.contains(key)) {
+                continue;
+            }
+
+            if (key.storage == Storage.GLOBAL) {
+                method.visitVarInsn(DLOAD, locals.get(key));
+                box(Kind.DOUBLE);
+                method.visitVarInsn(ALOAD, GLOBALS);
+                pushToken(names.get(key));
+                storeGlobal();
+            } else {
+                method.visitVarInsn(ALOAD, frameLocals.get(key.scope));
+                pushInt(key.slot);
+                method.visitVarInsn(DLOAD, locals.get(key));
+                box(Kind.DOUBLE);
+                method.visitInsn(AASTORE);
+            }
+        }
+    }
+
+    private void pushInt(int value) {
+        if (value >= -1 && value <= 5) {
+            method.visitInsn(ICONST_0 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            method.visitIntInsn(BIPUSH, value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            method.visitIntInsn(SIPUSH, value);
+        } else {
+            method.visitLdcInsn(value);
+        }
+    }
+
+    private void pushToken(Token token) {
+        Integer index = constantIndexes.get(token);
+        if (index == null) {
+            index = constants.size();
+            constants.add(token);
+            constantIndexes.put(token, index);
+        }
+
+        method.visitVarInsn(ALOAD, CONSTANTS);
+        pushInt(index);
+        method.visitInsn(AALOAD);
+        method.visitTypeInsn(CHECKCAST, TOKEN);
+    }
+
+    private void storeGlobal() {
+        method.visitMethodInsn(INVOKESTATIC, RUNTIME, "assignGlobal",
+                "(Ljava/lang/Object;L" + Type.getInternalName(Environment.class) + ";L" + TOKEN + ";)V", false);
+    }
+
+    private void box(Kind kind) {
+        if (kind == Kind.DOUBLE) {
+            method.visitMethodInsn(INVOKESTATIC, DOUBLE, "valueOf", "(D)Ljava/lang/Double;", false);
+        } else if (kind == Kind.BOOLEAN) {
+            method.visitMethodInsn(INVOKESTATIC, "java/lang/Boolean", "valueOf", "(Z)Ljava/lang/Boolean;", false);
+        }
+    }
+
+    private void pop(Kind kind) {
+        method.visitInsn(kind == Kind.DOUBLE ? POP2 : POP);
+    }
+
+    private Kind compile(Expr expr) {
+        return expr.accept(this);
+    }
+
+    private void compileObject(Expr expr) {
+        box(compile(expr));
+    }
+
+    // Leaves an int that is 1 when the value is truthy
+    private void compileCondition(Expr expr) {
+        Kind kind = compile(expr);
+        if (kind == Kind.DOUBLE) {
+            pop(kind);
+            method.visitInsn(ICONST_1);
+        } else if (kind == Kind.OBJECT) {
+            method.visitMethodInsn(INVOKESTATIC, Type.getInternalName(Values.class), "isTruthy", "(Ljava/lang/Object;)Z", false);
+        }
+    }
+
+    // Turns the int comparison result of LCMP or DCMP into a boolean
+    private void compareResult(int jumpIfFalse) {
+        Label isFalse = new Label();
+        Label done = new Label();
+        method.visitJumpInsn(jumpIfFalse, isFalse);
+        method.visitInsn(ICONST_1);
+        method.visitJumpInsn(GOTO, done);
+        method.visitLabel(isFalse);
+        method.visitInsn(ICONST_0);
+        method.visitLabel(done);
+    }
+
+    // Statements
+
+    private void compile(Stmt stmt) {
+        stmt.accept(this);
+    }
+
+    @Override
+    public Void visitExpressionStmt(Expression stmt) {
+        pop(compile(stmt.expression));
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStmt(Print stmt) {
+        method.visitVarInsn(ALOAD, OUT);
+        compileObject(stmt.expression);
+        method.visitMethodInsn(INVOKESTATIC, RUNTIME, "print", "(" + Type.getDescriptor(OutputSink.class) + "Ljava/lang/Object;)V", false);
+        return null;
+    }
+
+    @Override
+    public Void visitBlockStmt(Block stmt) {
+        Integer scope = blocks.get(stmt);
+        if (scope != null) {
+            scopes.add(scope);
+        }
+        for (Stmt statement : stmt.statements) {
+            compile(statement);
+        }
+        if (scope != null) {
+            scopes.remove(scopes.size() - 1);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitVarStmt(Var stmt) {
+        Key key = declarations.get(stmt);
+        if (numbers.contains(key)) {
+            compile(stmt.initializer);
+            method.visitVarInsn(DSTORE, locals.get(key));
+        } else {
+            if (stmt.initializer != null) {
+                compileObject(stmt.initializer);
+            } else {
+                method.visitInsn(ACONST_NULL);
+            }
+            method.visitVarInsn(ASTORE, locals.get(key));
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitIfStmt(If stmt) {
+        Label falsey = new Label();
+        Label end = new Label();
+        compileCondition(stmt.condition);
+        method.visitJumpInsn(IFEQ, falsey);
+        compile(stmt.truthy);
+        method.visitJumpInsn(GOTO, end);
+        method.visitLabel(falsey);
+        if (stmt.falsey != null) {
+            compile(stmt.falsey);
+        }
+        method.visitLabel(end);
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStmt(While stmt) {
+        Label top = new Label();
+        Label end = new Label();
+        method.visitLabel(top);
+        compileCondition(stmt.condition);
+        method.visitJumpInsn(IFEQ, end);
+        compile(stmt.loop);
+        method.visitJumpInsn(GOTO, top);
+        method.visitLabel(end);
+        return null;
+    }
+
+    // Expressions
+
+    @Override
+    public Kind visitAssignExpr(Assign expr) {
+        Key key = references.get(expr);
+        if (numbers.contains(key)) {
+            compile(expr.value);
+            method.visitInsn(DUP2);
+            method.visitVarInsn(DSTORE, locals.get(key));
+            return Kind.DOUBLE;
+        }
+
+        compileObject(expr.value);
+        method.visitInsn(DUP);
+        switch (key.storage) {
+            case INNER:
+                method.visitVarInsn(ASTORE, locals.get(key));
+                break;
+            case OUTER:
+                method.visitVarInsn(ALOAD, frameLocals.get(key.scope));
+                method.visitInsn(SWAP);
+                pushInt(key.slot);
+                method.visitInsn(SWAP);
+                method.visitInsn(AASTORE);
+                break;
+            default:
+                method.visitVarInsn(ALOAD, GLOBALS);
+                pushToken(expr.name);
+                storeGlobal();
+                break;
+        }
+        return Kind.OBJECT;
+    }
+
+    @Override
+    public Kind visitBinaryExpr(Binary expr) {
+        boolean numeric = kind(expr.left) == Kind.DOUBLE && kind(expr.right) == Kind.DOUBLE;
+        if (numeric) {
+            compile(expr.left);
+            compile(expr.right);
+        } else {
+            compileObject(expr.left);
+            compileObject(expr.right);
+        }
+
+        switch (expr.operator.type) {
+            case MINUS:
+                return arithmetic(expr, numeric, DSUB, "subtract");
+            case STAR:
+                return arithmetic(expr, numeric, DMUL, "multiply");
+            case SLASH:
+                return arithmetic(expr, numeric, DDIV, "divide");
+            case PLUS:
+                if (numeric) {
+                    method.visitInsn(DADD);
+                    return Kind.DOUBLE;
+                }
+                pushToken(expr.operator);
+                method.visitMethodInsn(INVOKESTATIC, VALUES, "add", BINARY_DESCRIPTOR + "Ljava/lang/Object;", false);
+                return Kind.OBJECT;
+            // NaN compares false, so DCMPG is used where it must fail a less than test
+            case GREATER:
+                return comparison(expr, numeric, DCMPL, IFLE, "greater");
+            case GREATER_EQUAL:
+                return comparison(expr, numeric, DCMPL, IFLT, "greaterEqual");
+            case LESS:
+                return comparison(expr, numeric, DCMPG, IFGE, "less");
+            case LESS_EQUAL:
+                return comparison(expr, numeric, DCMPG, IFGT, "lessEqual");
+            case EQUAL_EQUAL:
+                equality(numeric);
+                return Kind.BOOLEAN;
+            case BANG_EQUAL:
+                equality(numeric);
+                method.visitInsn(ICONST_1);
+                method.visitInsn(IXOR);
+                return Kind.BOOLEAN;
+            default:
+                // The Interpreter evaluates unknown operators to nil
+                pop(numeric ? Kind.DOUBLE : Kind.OBJECT);
+                pop(numeric ? Kind.DOUBLE : Kind.OBJECT);
+                method.visitInsn(ACONST_NULL);
+                return Kind.OBJECT;
+        }
+    }
+
+    private Kind arithmetic(Binary expr, boolean numeric, int opcode, String slowPath) {
+        if (numeric) {
+            method.visitInsn(opcode);
+        } else {
+            pushToken(expr.operator);
+            method.visitMethodInsn(INVOKESTATIC, VALUES, slowPath, BINARY_DESCRIPTOR + "D", false);
+        }
+        return Kind.DOUBLE;
+    }
+
+    private Kind comparison(Binary expr, boolean numeric, int compare, int jumpIfFalse, String slowPath) {
+        if (numeric) {
+            method.visitInsn(compare);
+            compareResult(jumpIfFalse);
+        } else {
+            pushToken(expr.operator);
+            method.visitMethodInsn(INVOKESTATIC, VALUES, slowPath, BINARY_DESCRIPTOR + "Z", false);
+        }
+        return Kind.BOOLEAN;
+    }
+
+    // Double.equals compares bits, so NaN equals itself and 0 differs from -0
+    private void equality(boolean numeric) {
+        if (!numeric) {
+            method.visitMethodInsn(INVOKESTATIC, VALUES, "isEqual",
+                    "(Ljava/lang/Object;Ljava/lang/Object;)Z", false);
+            return;
+        }
+
+        int right = nextLocal;
+        nextLocal += 2;
+        method.visitVarInsn(DSTORE, right);
+        method.visitMethodInsn(INVOKESTATIC, DOUBLE, "doubleToLongBits", "(D)J", false);
+        method.visitVarInsn(DLOAD, right);
+        method.visitMethodInsn(INVOKESTATIC, DOUBLE, "doubleToLongBits", "(D)J", false);
+        method.visitInsn(LCMP);
+        compareResult(IFNE);
+    }
+
+    @Override
+    public Kind visitGroupingExpr(Grouping expr) {
+        return compile(expr.expression);
+    }
+
+    @Override
+    public Kind visitLiteralExpr(Literal expr) {
+        Object value = expr.value;
+        if (value == null) {
+            method.visitInsn(ACONST_NULL);
+            return Kind.OBJECT;
+        }
+
+        if (value instanceof Integer) {
+            value = ((Integer) value).doubleValue();
+        }
+
+        if (value instanceof Double) {
+            method.visitLdcInsn(value);
+            return Kind.DOUBLE;
+        }
+
+        if (value instanceof Boolean) {
+            method.visitInsn((boolean) value ? ICONST_1 : ICONST_0);
+            return Kind.BOOLEAN;
+        }
+
+        method.visitLdcInsn(value);
+        return Kind.OBJECT;
+    }
+
+    @Override
+    public Kind visitUnaryExpr(Unary expr) {
+        if (expr.operator.type != TokenType.MINUS) {
+            compileCondition(expr.right);
+            method.visitInsn(ICONST_1);
+            method.visitInsn(IXOR);
+            return Kind.BOOLEAN;
+        }
+
+        if (kind(expr.right) == Kind.DOUBLE) {
+            compile(expr.right);
+            method.visitInsn(DNEG);
+        } else {
+            compileObject(expr.right);
+            pushToken(expr.operator);
+            method.visitMethodInsn(INVOKESTATIC, VALUES, "negate", "(Ljava/lang/Object;L" + TOKEN + ";)D", false);
+        }
+        return Kind.DOUBLE;
+    }
+
+    @Override
+    public Kind visitVariableExpr(Variable expr) {
+        Key key = references.get(expr);
+        if (numbers.contains(key)) {
+            method.visitVarInsn(DLOAD, locals.get(key));
+            return Kind.DOUBLE;
+        }
+
+        switch (key.storage) {
+            case INNER:
+                method.visitVarInsn(ALOAD, locals.get(key));
+                break;
+            case OUTER:
+                method.visitVarInsn(ALOAD, frameLocals.get(key.scope));
+                pushInt(key.slot);
+                method.visitInsn(AALOAD);
+                break;
+            default:
+                method.visitVarInsn(ALOAD, GLOBALS);
+                pushToken(expr.name);
+                method.visitMethodInsn(INVOKESTATIC, RUNTIME, "getGlobal",
+                        "(L" + Type.getInternalName(Environment.class) + ";L" + TOKEN + ";)Ljava/lang/Object;", false);
+                break;
+        }
+        return Kind.OBJECT;
+    }
+}
@@ -0,0 +1,179 @@
+package com.samfoucart.jlox.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Counters and phase timings shared by every interpreter in the process,
+ * published as a JMX MBean once register is called.
+ * Every counter is a LongAdder, so interpreters on many threads update them without contending,
+ * and the Interpreter adds its counts in batches rather than once per node.
+ */
+@NullMarked
+public final class RuntimeMetrics implements RuntimeMetricsMBean {
+    public static final String OBJECT_NAME = "com.samfoucart.jlox:type=RuntimeMetrics";
+    private static final RuntimeMetrics INSTANCE = new RuntimeMetrics();
+
+    /** The timed phases of running a script. */
+    public enum Phase {
+        SCAN,
+        PARSE,
+        INTERPRET,
+    }
+
+    private final LongAdder statements = new LongAdder();
+    private final LongAdder expressions = new LongAdder();
+    private final LongAdder environments = new LongAdder();
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder lookupDepth = new LongAdder();
+    private final LongAccumulator maxLookupDepth = new LongAccumulator(Math::max, 0);
+    private final LongAdder runtimeErrors = new LongAdder();
+    private final LongAdder[] phaseCounts = new LongAdder[Phase.values().length];
+    private final LongAdder[] phaseNanos = new LongAdder[Phase.values().length];
+
+    private RuntimeMetrics() {
+        for (int i = 0; i < phaseCounts.length; i++) {
+            phaseCounts[i] = new LongAdder();
+            phaseNanos[i] = new LongAdder();
+        }
+    }
+
+    public static RuntimeMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server, doing nothing if they already are.
+     * Not done by default, starting JMX adds noticeably to the startup of a short script.
+     */
+    public static synchronized void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(INSTANCE, name);
+            }
+        } catch (InstanceAlreadyExistsException error) {
+            // Registered by someone else in between
+        } catch (JMException error) {
+            throw new IllegalStateException("Could not register " + OBJECT_NAME, error);
+        }
+    }
+
+    /**
+     * Adds the counts an interpreter collected since it last called this.
+     * Scope depth is the number of enclosing frames walked to reach a local variable.
+     */
+    public void addExecution(long statements, long expressions, long environments,
+            long lookups, long lookupDepth, long maxLookupDepth) {
+        this.statements.add(statements);
+        this.expressions.add(expressions);
+        this.environments.add(environments);
+        this.lookups.add(lookups);
+        this.lookupDepth.add(lookupDepth);
+        this.maxLookupDepth.accumulate(maxLookupDepth);
+    }
+
+    public void addRuntimeError() {
+        runtimeErrors.increment();
+    }
+
+    public void addPhase(Phase phase, long nanos) {
+        phaseCounts[phase.ordinal()].increment();
+        phaseNanos[phase.ordinal()].add(nanos);
+    }
+
+    @Override
+    public long getStatementsExecuted() {
+        return statements.sum();
+    }
+
+    @Override
+    public long getExpressionsEvaluated() {
+        return expressions.sum();
+    }
+
+    @Override
+    public long getEnvironmentsCreated() {
+        return environments.sum();
+    }
+
+    @Override
+    public long getLocalLookups() {
+        return lookups.sum();
+    }
+
+    @Override
+    public double getAverageScopeDepth() {
+        long count = lookups.sum();
+        return count == 0 ? 0 : (double) lookupDepth.sum() / count;
+    }
+
+    @Override
+    public long getMaxScopeDepth() {
+        return maxLookupDepth.get();
+    }
+
+    @Override
+    public long getRuntimeErrors() {
+        return runtimeErrors.sum();
+    }
+
+    @Override
+    public long getScanCount() {
+        return phaseCounts[Phase.SCAN.ordinal()].sum();
+    }
+
+    @Override
+    public double getScanMillis() {
+        return millis(Phase.SCAN);
+    }
+
+    @Override
+    public long getParseCount() {
+        return phaseCounts[Phase.PARSE.ordinal()].sum();
+    }
+
+    @Override
+    public double getParseMillis() {
+        return millis(Phase.PARSE);
+    }
+
+    @Override
+    public long getInterpretCount() {
+        return phaseCounts[Phase.INTERPRET.ordinal()].sum();
+    }
+
+    @Override
+    public double getInterpretMillis() {
+        return millis(Phase.INTERPRET);
+    }
+
+    private double millis(Phase phase) {
+        return phaseNanos[phase.ordinal()].sum() / 1e6;
+    }
+
+    /** Starts every count over, updates racing with a reset may land on either side of it. */
+    @Override
+    public void reset() {
+        statements.reset();
+        expressions.reset();
+        environments.reset();
+        lookups.reset();
+        lookupDepth.reset();
+        maxLookupDepth.reset();
+        runtimeErrors.reset();
+        for (int i = 0; i < phaseCounts.length; i++) {
+            phaseCounts[i].reset();
+            phaseNanos[i].reset();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.samfoucart.jlox.metrics;
+
+/**
+ * The attributes of RuntimeMetrics as seen by JMX clients like jconsole.
+ * Counts are totals since the process started or since the last reset.
+ */
+public interface RuntimeMetricsMBean {
+    long getStatementsExecuted();
+
+    long getExpressionsEvaluated();
+
+    long getEnvironmentsCreated();
+
+    long getLocalLookups();
+
+    double getAverageScopeDepth();
+
+    long getMaxScopeDepth();
+
+    long getRuntimeErrors();
+
+    long getScanCount();
+
+    double getScanMillis();
+
+    long getParseCount();
+
+    double getParseMillis();
+
+    long getInterpretCount();
+
+    double getInterpretMillis();
+
+    void reset();
+}
@@ -0,0 +1,292 @@
+package com.samfoucart.jlox.nodes;
+
+import com.samfoucart.jlox.Frame;
+import com.samfoucart.jlox.Token;
+import com.samfoucart.jlox.Values;
+
+/**
+ * Binary operators start out Uninitialized and rewrite themselves
+ * into a node specialized for the operator and the operand types
+ * seen on their first execution, so the hot path has no operator switch
+ * and a single pair of type checks.
+ * A specialized node that sees other types replaces itself with
+ * the Generic node, which handles every case and reports errors.
+ */
+abstract class BinaryNode extends ExprNode {
+    ExprNode left;
+    final Token operator;
+    ExprNode right;
+
+    BinaryNode(ExprNode left, Token operator, ExprNode right) {
+        this.left = adopt(left);
+        this.operator = operator;
+        this.right = adopt(right);
+    }
+
+    @Override
+    Object execute(Frame frame) {
+        return execute(left.execute(frame), right.execute(frame));
+    }
+
+    // Finishes the operation on operands that were already evaluated
+    abstract Object execute(Object leftValue, Object rightValue);
+
+    // Called by a specialized node on operands it does not handle
+    Object generalize(Object leftValue, Object rightValue) {
+        return replace(new Generic(left, operator, right)).execute(leftValue, rightValue);
+    }
+
+    @Override
+    void replaceChild(Node oldChild, Node newChild) {
+        if (left == oldChild) {
+            left = (ExprNode) newChild;
+        } else if (right == oldChild) {
+            right = (ExprNode) newChild;
+        }
+    }
+
+    static class Uninitialized extends BinaryNode {
+        Uninitialized(ExprNode left, Token operator, ExprNode right) {
+            super(left, operator, right);
+        }
+
+        @Override
+        Object execute(Object leftValue, Object rightValue) {
+            return replace(specialize(leftValue, rightValue)).execute(leftValue, rightValue);
+        }
+
+        private BinaryNode specialize(Object leftValue, Object rightValue) {
+            boolean numbers = leftValue instanceof Double && rightValue instanceof Double;
+            switch (operator.type) {
+                case PLUS:
+                    if (numbers) {
+                        return new NumberAdd(left, operator, right);
+                    }
+                    if (Values.isString(leftValue) && Values.isString(rightValue)) {
+                        return new StringConcat(left, operator, right);
+                    }
+                    break;
+                case MINUS:
+                    if (numbers) {
+                        return new NumberSubtract(left, operator, right);
+                    }
+                    break;
+                case STAR:
+                    if (numbers) {
+                        return new NumberMultiply(left, operator, right);
+                    }
+                    break;
+                case SLASH:
+                    if (numbers) {
+                        return new NumberDivide(left, operator, right);
+                    }
+                    break;
+                case GREATER:
+                    if (numbers) {
+                        return new NumberGreater(left, operator, right);
+                    }
+                    break;
+                case GREATER_EQUAL:
+                    if (numbers) {
+                        return new NumberGreaterEqual(left, operator, right);
+                    }
+                    break;
+                case LESS:
+                    if (numbers) {
+                        return new NumberLess(left, operator, right);
+                    }
+                    break;
+                case LESS_EQUAL:
+                    if (numbers) {
+                        return new NumberLessEqual(left, operator, right);
+                    }
+                    break;
+                case EQUAL_EQUAL:
+                    return new Equal(left, operator, right);
+                case BANG_EQUAL:
+                    return new NotEqual(left, operator, right);
+                default:
+                    break;
+            }
+
+            return new Generic(left, operator, right);
+        }
+    }
+
+    // An operator specialized for two numbers, which generalizes on anything else
+    abstract static class NumberOperation extends BinaryNode {
+        NumberOperation(ExprNode left, Token operator, ExprNode right) {
+            super(left, operator, right);
+        }
+
+        abstract Object apply(double leftValue, double rightValue);
+
+        @Override
+        Object execute(Object leftValue, Object rightValue) {
+            if (leftValue instanceof Double && rightValue instanceof Double) {
+                return apply((double) leftValue, (double) rightValue);
+            }
+
+            return generalize(leftValue, rightValue);
+        }
+    }
+
+    static class NumberAdd extends NumberOperation {
+        NumberAdd(ExprNode left, Token operator, ExprNode right) {
+            super(left, operator, right);
+        }
+
+        @Override
+        Object apply(double leftValue, double rightValue) {
+            return leftValue + rightValue;
+        }
+    }
+
+    static class StringConcat extends BinaryNode {
+        StringConcat(ExprNode left, Token operator, ExprNode right) {
+            super(left, operator, right);
+        }
+
+        @Override
+        Object execute(Object leftValue, Object rightValue) {
+            if (Values.isString(leftValue) && Values.isString(rightValue)) {
+                return Values.concat(leftValue, rightValue);
+            }
+
+            return generalize(leftValue, rightValue);
+        }
+    }
+
+    static class NumberSubtract extends NumberOperation {
+        NumberSubtract(ExprNode left, Token operator, ExprNode right) {
+            super(left, operator, right);
+        }
+
+        @Override
+        Object apply(double leftValue, double rightValue) {
+            return leftValue - rightValue;
+        }
+    }
+
+    static class NumberMultiply extends NumberOperation {
+        NumberMultiply(ExprNode left, Token operator, ExprNode right) {
+            super(left, operator, right);
+        }
+
+        @Override
+        Object apply(double leftValue, double rightValue) {
+            return leftValue * rightValue;
+        }
+    }
+
+    static class NumberDivide extends NumberOperation {
+        NumberDivide(ExprNode left, Token operator, ExprNode right) {
+            super(left, operator, right);
+        }
+
+        @Override
+        Object apply(double leftValue, double rightValue) {
+            return leftValue / rightValue;
+        }
+    }
+
+    static class NumberGreater extends NumberOperation {
+        NumberGreater(ExprNode left, Token operator, ExprNode right) {
+            super(left, operator, right);
+        }
+
+        @Override
+        Object apply(double leftValue, double rightValue) {
+            return leftValue > rightValue;
+        }
+    }
+
+    static class NumberGreaterEqual extends NumberOperation {
+        NumberGreaterEqual(ExprNode left, Token operator, ExprNode right) {
+            super(left, operator, right);
+        }
+
+        @Override
+        Object apply(double leftValue, double rightValue) {
+            return leftValue >= rightValue;
+        }
+    }
+
+    static class NumberLess extends NumberOperation {
+        NumberLess(ExprNode left, Token operator, ExprNode right) {
+            super(left, operator, right);
+        }
+
+        @Override
+        Object apply(double leftValue, double rightValue) {
+            return leftValue < rightValue;
+        }
+    }
+
+    static class NumberLessEqual extends NumberOperation {
+        NumberLessEqual(ExprNode left, Token operator, ExprNode right) {
+            super(left, operator, right);
+        }
+
+        @Override
+        Object apply(double leftValue, double rightValue) {
+            return leftValue <= rightValue;
+        }
+    }
+
+    static class Equal extends BinaryNode {
+        Equal(ExprNode left, Token operator, ExprNode right) {
+            super(left, operator, right);
+        }
+
+        @Override
+        Object execute(Object leftValue, Object rightValue) {
+            return Values.isEqual(leftValue, rightValue);
+        }
+    }
+
+    static class NotEqual extends BinaryNode {
+        NotEqual(ExprNode left, Token operator, ExprNode right) {
+            super(left, operator, right);
+        }
+
+        @Override
+        Object execute(Object leftValue, Object rightValue) {
+            return !Values.isEqual(leftValue, rightValue);
+        }
+    }
+
+    static class Generic extends BinaryNode {
+        Generic(ExprNode left, Token operator, ExprNode right) {
+            super(left, operator, right);
+        }
+
+        @Override
+        Object execute(Object leftValue, Object rightValue) {
+            switch (operator.type) {
+                case PLUS:
+                    return Values.add(leftValue, rightValue, operator);
+                case MINUS:
+                    return Values.subtract(leftValue, rightValue, operator);
+                case STAR:
+                    return Values.multiply(leftValue, rightValue, operator);
+                case SLASH:
+                    return Values.divide(leftValue, rightValue, operator);
+                case GREATER:
+                    return Values.greater(leftValue, rightValue, operator);
+                case GREATER_EQUAL:
+                    return Values.greaterEqual(leftValue, rightValue, operator);
+                case LESS:
+                    return Values.less(leftValue, rightValue, operator);
+                case LESS_EQUAL:
+                    return Values.lessEqual(leftValue, rightValue, operator);
+                case EQUAL_EQUAL:
+                    return Values.isEqual(leftValue, rightValue);
+                case BANG_EQUAL:
+                    return !Values.isEqual(leftValue, rightValue);
+                default:
+                    return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.samfoucart.jlox.nodes;
+
+import com.samfoucart.jlox.Frame;
+
+class BlockNode extends StmtNode {
+    private final StmtNode[] statements;
+    private final int slots;
+
+    BlockNode(StmtNode[] statements, int slots) {
+        this.statements = statements;
+        this.slots = slots;
+        for (StmtNode statement : statements) {
+            adopt(statement);
+        }
+    }
+
+    @Override
+    void execute(Frame frame) {
+        // Blocks without declarations have no scope of their own
+        executeIn(slots == 0 ? frame : newFrame(frame));
+    }
+
+    boolean hasFrame() {
+        return slots > 0;
+    }
+
+    Frame newFrame(Frame frame) {
+        return new Frame(slots, frame);
+    }
+
+    void executeIn(Frame inner) {
+        for (StmtNode statement : statements) {
+            statement.execute(inner);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.samfoucart.jlox.nodes;
+
+import com.samfoucart.jlox.Frame;
+
+abstract class ExprNode extends Node {
+    abstract Object execute(Frame frame);
+}
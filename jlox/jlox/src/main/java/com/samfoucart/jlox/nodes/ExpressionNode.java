@@ -0,0 +1,23 @@
+package com.samfoucart.jlox.nodes;
+
+import com.samfoucart.jlox.Frame;
+
+class ExpressionNode extends StmtNode {
+    ExprNode expression;
+
+    ExpressionNode(ExprNode expression) {
+        this.expression = adopt(expression);
+    }
+
+    @Override
+    void execute(Frame frame) {
+        expression.execute(frame);
+    }
+
+    @Override
+    void replaceChild(Node oldChild, Node newChild) {
+        if (expression == oldChild) {
+            expression = (ExprNode) newChild;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.samfoucart.jlox.nodes;
+
+import com.samfoucart.jlox.Environment;
+import com.samfoucart.jlox.Frame;
+import com.samfoucart.jlox.Token;
+
+class GlobalReadNode extends ExprNode {
+    private final Environment globals;
+    private final Token name;
+
+    GlobalReadNode(Environment globals, Token name) {
+        this.globals = globals;
+        this.name = name;
+    }
+
+    @Override
+    Object execute(Frame frame) {
+        return globals.getValue(name);
+    }
+}
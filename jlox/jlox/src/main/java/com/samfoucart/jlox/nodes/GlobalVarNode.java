@@ -0,0 +1,29 @@
+package com.samfoucart.jlox.nodes;
+
+import com.samfoucart.jlox.Environment;
+import com.samfoucart.jlox.Frame;
+import com.samfoucart.jlox.Token;
+
+class GlobalVarNode extends StmtNode {
+    private final Environment globals;
+    private final Token name;
+    private ExprNode initializer;
+
+    GlobalVarNode(Environment globals, Token name, ExprNode initializer) {
+        this.globals = globals;
+        this.name = name;
+        this.initializer = adopt(initializer);
+    }
+
+    @Override
+    void execute(Frame frame) {
+        globals.define(name, initializer.execute(frame));
+    }
+
+    @Override
+    void replaceChild(Node oldChild, Node newChild) {
+        if (initializer == oldChild) {
+            initializer = (ExprNode) newChild;
+        }
+    }
+}
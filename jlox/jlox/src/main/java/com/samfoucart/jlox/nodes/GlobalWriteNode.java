@@ -0,0 +1,31 @@
+package com.samfoucart.jlox.nodes;
+
+import com.samfoucart.jlox.Environment;
+import com.samfoucart.jlox.Frame;
+import com.samfoucart.jlox.Token;
+
+class GlobalWriteNode extends ExprNode {
+    private final Environment globals;
+    private final Token name;
+    private ExprNode value;
+
+    GlobalWriteNode(Environment globals, Token name, ExprNode value) {
+        this.globals = globals;
+        this.name = name;
+        this.value = adopt(value);
+    }
+
+    @Override
+    Object execute(Frame frame) {
+        Object result = value.execute(frame);
+        globals.assign(name, result);
+        return result;
+    }
+
+    @Override
+    void replaceChild(Node oldChild, Node newChild) {
+        if (value == oldChild) {
+            value = (ExprNode) newChild;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.samfoucart.jlox.nodes;
+
+import com.samfoucart.jlox.Frame;
+import com.samfoucart.jlox.Values;
+
+class IfNode extends StmtNode {
+    private ExprNode condition;
+    private final StmtNode truthy;
+    private final StmtNode falsey;
+
+    IfNode(ExprNode condition, StmtNode truthy, StmtNode falsey) {
+        this.condition = adopt(condition);
+        this.truthy = adopt(truthy);
+        this.falsey = adopt(falsey);
+    }
+
+    @Override
+    void execute(Frame frame) {
+        if (Values.isTruthy(condition.execute(frame))) {
+            truthy.execute(frame);
+        } else if (falsey != null) {
+            falsey.execute(frame);
+        }
+    }
+
+    @Override
+    void replaceChild(Node oldChild, Node newChild) {
+        if (condition == oldChild) {
+            condition = (ExprNode) newChild;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.samfoucart.jlox.nodes;
+
+import com.samfoucart.jlox.Frame;
+
+class LiteralNode extends ExprNode {
+    private final Object value;
+
+    LiteralNode(Object value) {
+        this.value = value;
+    }
+
+    @Override
+    Object execute(Frame frame) {
+        return value;
+    }
+}
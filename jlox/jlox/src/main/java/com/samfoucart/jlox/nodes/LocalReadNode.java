@@ -0,0 +1,18 @@
+package com.samfoucart.jlox.nodes;
+
+import com.samfoucart.jlox.Frame;
+
+class LocalReadNode extends ExprNode {
+    private final int depth;
+    private final int slot;
+
+    LocalReadNode(int depth, int slot) {
+        this.depth = depth;
+        this.slot = slot;
+    }
+
+    @Override
+    Object execute(Frame frame) {
+        return frame.get(depth, slot);
+    }
+}
@@ -0,0 +1,25 @@
+package com.samfoucart.jlox.nodes;
+
+import com.samfoucart.jlox.Frame;
+
+class LocalVarNode extends StmtNode {
+    private final int slot;
+    private ExprNode initializer;
+
+    LocalVarNode(int slot, ExprNode initializer) {
+        this.slot = slot;
+        this.initializer = adopt(initializer);
+    }
+
+    @Override
+    void execute(Frame frame) {
+        frame.set(0, slot, initializer.execute(frame));
+    }
+
+    @Override
+    void replaceChild(Node oldChild, Node newChild) {
+        if (initializer == oldChild) {
+            initializer = (ExprNode) newChild;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.samfoucart.jlox.nodes;
+
+import com.samfoucart.jlox.Frame;
+
+class LocalWriteNode extends ExprNode {
+    private final int depth;
+    private final int slot;
+    private ExprNode value;
+
+    LocalWriteNode(int depth, int slot, ExprNode value) {
+        this.depth = depth;
+        this.slot = slot;
+        this.value = adopt(value);
+    }
+
+    @Override
+    Object execute(Frame frame) {
+        Object result = value.execute(frame);
+        frame.set(depth, slot, result);
+        return result;
+    }
+
+    @Override
+    void replaceChild(Node oldChild, Node newChild) {
+        if (value == oldChild) {
+            value = (ExprNode) newChild;
+        }
+    }
+}
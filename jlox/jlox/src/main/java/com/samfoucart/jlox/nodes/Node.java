@@ -0,0 +1,26 @@
+package com.samfoucart.jlox.nodes;
+
+/**
+ * Base of the executable node tree built from the AST.
+ * Every node knows its parent, so a node can rewrite itself in place
+ * once it has seen which types flow through it.
+ */
+abstract class Node {
+    private Node parent;
+
+    final <T extends Node> T adopt(T child) {
+        if (child != null) {
+            ((Node) child).parent = this;
+        }
+        return child;
+    }
+
+    final <T extends Node> T replace(T replacement) {
+        parent.replaceChild(this, replacement);
+        return parent.adopt(replacement);
+    }
+
+    void replaceChild(Node oldChild, Node newChild) {
+        throw new IllegalStateException(getClass().getSimpleName() + " has no children to replace");
+    }
+}
@@ -0,0 +1,136 @@
+package com.samfoucart.jlox.nodes;
+
+import com.samfoucart.jlox.Environment;
+import com.samfoucart.jlox.Expr;
+import com.samfoucart.jlox.JloxRuntimeError;
+import com.samfoucart.jlox.Stmt;
+import com.samfoucart.jlox.TokenType;
+import com.samfoucart.jlox.output.OutputSink;
+import com.samfoucart.jlox.Expr.Assign;
+import com.samfoucart.jlox.Expr.Binary;
+import com.samfoucart.jlox.Expr.Grouping;
+import com.samfoucart.jlox.Expr.Literal;
+import com.samfoucart.jlox.Expr.Unary;
+import com.samfoucart.jlox.Expr.Variable;
+import com.samfoucart.jlox.Stmt.Block;
+import com.samfoucart.jlox.Stmt.Expression;
+import com.samfoucart.jlox.Stmt.If;
+import com.samfoucart.jlox.Stmt.Print;
+import com.samfoucart.jlox.Stmt.Var;
+import com.samfoucart.jlox.Stmt.While;
+
+/**
+ * Translates resolved Expr and Stmt trees into executable nodes.
+ * Groupings disappear, literals are normalized to doubles once,
+ * and variables become slot or global accesses based on the Resolver.
+ */
+class NodeBuilder implements Expr.Visitor<ExprNode>, Stmt.Visitor<StmtNode> {
+    private final Environment globals;
+    private final OutputSink out;
+
+    NodeBuilder(Environment globals, OutputSink out) {
+        this.globals = globals;
+        this.out = out;
+    }
+
+    StmtNode build(Stmt stmt) {
+        return stmt.accept(this);
+    }
+
+    ExprNode build(Expr expr) {
+        return expr.accept(this);
+    }
+
+    // Statements
+
+    @Override
+    public StmtNode visitExpressionStmt(Expression stmt) {
+        return new ExpressionNode(build(stmt.expression));
+    }
+
+    @Override
+    public StmtNode visitPrintStmt(Print stmt) {
+        return new PrintNode(build(stmt.expression), out);
+    }
+
+    @Override
+    public StmtNode visitBlockStmt(Block stmt) {
+        StmtNode[] statements = new StmtNode[stmt.statements.size()];
+        for (int i = 0; i < statements.length; i++) {
+            statements[i] = build(stmt.statements.get(i));
+        }
+
+        return new BlockNode(statements, stmt.slots);
+    }
+
+    @Override
+    public StmtNode visitVarStmt(Var stmt) {
+        ExprNode initializer = stmt.initializer != null ? build(stmt.initializer) : new LiteralNode(null);
+        if (stmt.slot >= 0) {
+            return new LocalVarNode(stmt.slot, initializer);
+        }
+
+        return new GlobalVarNode(globals, stmt.name, initializer);
+    }
+
+    @Override
+    public StmtNode visitIfStmt(If stmt) {
+        StmtNode falsey = stmt.falsey != null ? build(stmt.falsey) : null;
+        return new IfNode(build(stmt.condition), build(stmt.truthy), falsey);
+    }
+
+    @Override
+    public StmtNode visitWhileStmt(While stmt) {
+        return new WhileNode(build(stmt.condition), build(stmt.loop));
+    }
+
+    // Expressions
+
+    @Override
+    public ExprNode visitAssignExpr(Assign expr) {
+        if (expr.depth >= 0) {
+            return new LocalWriteNode(expr.depth, expr.slot, build(expr.value));
+        }
+
+        return new GlobalWriteNode(globals, expr.name, build(expr.value));
+    }
+
+    @Override
+    public ExprNode visitBinaryExpr(Binary expr) {
+        return new BinaryNode.Uninitialized(build(expr.left), expr.operator, build(expr.right));
+    }
+
+    @Override
+    public ExprNode visitGroupingExpr(Grouping expr) {
+        return build(expr.expression);
+    }
+
+    @Override
+    public ExprNode visitLiteralExpr(Literal expr) {
+        if (expr.value instanceof Integer) {
+            return new LiteralNode(((Integer) expr.value).doubleValue());
+        }
+
+        return new LiteralNode(expr.value);
+    }
+
+    @Override
+    public ExprNode visitUnaryExpr(Unary expr) {
+        if (expr.operator.type == TokenType.MINUS) {
+            return new UnaryNode.Negate(expr.operator, build(expr.right));
+        } else if (expr.operator.type == TokenType.BANG) {
+            return new UnaryNode.Not(expr.operator, build(expr.right));
+        }
+
+        throw new JloxRuntimeError(expr.operator, "Unreachable statement");
+    }
+
+    @Override
+    public ExprNode visitVariableExpr(Variable expr) {
+        if (expr.depth >= 0) {
+            return new LocalReadNode(expr.depth, expr.slot);
+        }
+
+        return new GlobalReadNode(globals, expr.name);
+    }
+}
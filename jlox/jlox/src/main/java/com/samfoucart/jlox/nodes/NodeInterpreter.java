@@ -0,0 +1,46 @@
+package com.samfoucart.jlox.nodes;
+
+import java.util.List;
+
+import com.samfoucart.jlox.Environment;
+import com.samfoucart.jlox.ErrorReporter;
+import com.samfoucart.jlox.Jlox;
+import com.samfoucart.jlox.JloxRuntimeError;
+import com.samfoucart.jlox.Stmt;
+import com.samfoucart.jlox.metrics.RuntimeMetrics;
+import com.samfoucart.jlox.output.OutputSink;
+import com.samfoucart.jlox.output.PrintStreamSink;
+
+/**
+ * Executes programs as a tree of self specializing nodes
+ * instead of visiting the AST directly.
+ * Globals persist between calls to interpret, like in the REPL.
+ */
+public class NodeInterpreter {
+    private final Environment globals = new Environment();
+    private final OutputSink out;
+    private final ErrorReporter reporter;
+
+    public NodeInterpreter() {
+        this(new PrintStreamSink(System.out), Jlox.reporter());
+    }
+
+    public NodeInterpreter(OutputSink out, ErrorReporter reporter) {
+        this.out = out;
+        this.reporter = reporter;
+    }
+
+    public void interpret(List<Stmt> statements) {
+        long start = System.nanoTime();
+        NodeBuilder builder = new NodeBuilder(globals, out);
+        try {
+            for (Stmt statement : statements) {
+                builder.build(statement).execute(null);
+            }
+        } catch (JloxRuntimeError error) {
+            reporter.runtimeError(error);
+        } finally {
+            RuntimeMetrics.get().addPhase(RuntimeMetrics.Phase.INTERPRET, System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.samfoucart.jlox.nodes;
+
+import com.samfoucart.jlox.Frame;
+import com.samfoucart.jlox.Values;
+import com.samfoucart.jlox.output.OutputSink;
+
+class PrintNode extends StmtNode {
+    private ExprNode expression;
+    private final OutputSink out;
+
+    PrintNode(ExprNode expression, OutputSink out) {
+        this.expression = adopt(expression);
+        this.out = out;
+    }
+
+    @Override
+    void execute(Frame frame) {
+        out.println(Values.stringify(expression.execute(frame)));
+    }
+
+    @Override
+    void replaceChild(Node oldChild, Node newChild) {
+        if (expression == oldChild) {
+            expression = (ExprNode) newChild;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.samfoucart.jlox.nodes;
+
+import com.samfoucart.jlox.Frame;
+
+abstract class StmtNode extends Node {
+    abstract void execute(Frame frame);
+}
@@ -0,0 +1,49 @@
+package com.samfoucart.jlox.nodes;
+
+import com.samfoucart.jlox.Frame;
+import com.samfoucart.jlox.Token;
+import com.samfoucart.jlox.Values;
+
+abstract class UnaryNode extends ExprNode {
+    final Token operator;
+    ExprNode right;
+
+    UnaryNode(Token operator, ExprNode right) {
+        this.operator = operator;
+        this.right = adopt(right);
+    }
+
+    @Override
+    void replaceChild(Node oldChild, Node newChild) {
+        if (right == oldChild) {
+            right = (ExprNode) newChild;
+        }
+    }
+
+    static class Negate extends UnaryNode {
+        Negate(Token operator, ExprNode right) {
+            super(operator, right);
+        }
+
+        @Override
+        Object execute(Frame frame) {
+            Object value = right.execute(frame);
+            if (value instanceof Double) {
+                return - (double) value;
+            }
+
+            throw Values.numberOperandError(operator);
+        }
+    }
+
+    static class Not extends UnaryNode {
+        Not(Token operator, ExprNode right) {
+            super(operator, right);
+        }
+
+        @Override
+        Object execute(Frame frame) {
+            return !Values.isTruthy(right.execute(frame));
+        }
+    }
+}
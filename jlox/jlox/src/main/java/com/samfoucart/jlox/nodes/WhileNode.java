@@ -0,0 +1,46 @@
+package com.samfoucart.jlox.nodes;
+
+import com.samfoucart.jlox.Frame;
+import com.samfoucart.jlox.Values;
+
+class WhileNode extends StmtNode {
+    private ExprNode condition;
+    private final StmtNode loop;
+
+    WhileNode(ExprNode condition, StmtNode loop) {
+        this.condition = adopt(condition);
+        this.loop = adopt(loop);
+    }
+
+    @Override
+    void execute(Frame frame) {
+        if (loop instanceof BlockNode && ((BlockNode) loop).hasFrame()) {
+            executeReusingFrame(frame, (BlockNode) loop);
+            return;
+        }
+
+        while (Values.isTruthy(condition.execute(frame))) {
+            loop.execute(frame);
+        }
+    }
+
+    // Nothing can keep a frame past an iteration, so the body runs in one frame cleared each time
+    private void executeReusingFrame(Frame frame, BlockNode body) {
+        Frame inner = null;
+        while (Values.isTruthy(condition.execute(frame))) {
+            if (inner == null) {
+                inner = body.newFrame(frame);
+            } else {
+                inner.clear();
+            }
+            body.executeIn(inner);
+        }
+    }
+
+    @Override
+    void replaceChild(Node oldChild, Node newChild) {
+        if (condition == oldChild) {
+            condition = (ExprNode) newChild;
+        }
+    }
+}
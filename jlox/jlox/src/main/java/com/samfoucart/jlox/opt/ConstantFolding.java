@@ -0,0 +1,105 @@
+package com.samfoucart.jlox.opt;
+
+import com.samfoucart.jlox.Expr;
+import com.samfoucart.jlox.TokenType;
+import com.samfoucart.jlox.Values;
+import com.samfoucart.jlox.Expr.Binary;
+import com.samfoucart.jlox.Expr.Literal;
+import com.samfoucart.jlox.Expr.Unary;
+
+/**
+ * Evaluates unary and binary operators whose operands are literals.
+ * Operations that would raise a runtime error are left alone,
+ * so the error is still reported when the program runs.
+ */
+public class ConstantFolding extends Pass {
+    // Returned by fold when the operation cannot be folded
+    private static final Object NOT_CONSTANT = new Object();
+
+    @Override
+    public String name() {
+        return "constant-folding";
+    }
+
+    @Override
+    public Expr visitLiteralExpr(Literal expr) {
+        if (expr.value instanceof Integer) {
+            return new Expr.Literal(((Integer) expr.value).doubleValue());
+        }
+
+        return expr;
+    }
+
+    @Override
+    public Expr visitUnaryExpr(Unary expr) {
+        Expr folded = super.visitUnaryExpr(expr);
+        Literal right = Literals.constant(((Unary) folded).right);
+        if (right == null) {
+            return folded;
+        }
+
+        if (expr.operator.type == TokenType.MINUS && right.value instanceof Double) {
+            changed();
+            return new Expr.Literal(- (double) right.value);
+        }
+
+        if (expr.operator.type == TokenType.BANG) {
+            changed();
+            return new Expr.Literal(!Values.isTruthy(right.value));
+        }
+
+        return folded;
+    }
+
+    @Override
+    public Expr visitBinaryExpr(Binary expr) {
+        Binary folded = (Binary) super.visitBinaryExpr(expr);
+        Literal left = Literals.constant(folded.left);
+        Literal right = Literals.constant(folded.right);
+        if (left == null || right == null) {
+            return folded;
+        }
+
+        Object value = fold(folded.operator.type, left.value, right.value);
+        if (value == NOT_CONSTANT) {
+            return folded;
+        }
+
+        changed();
+        return new Expr.Literal(value);
+    }
+
+    private static Object fold(TokenType operator, Object left, Object right) {
+        boolean numbers = left instanceof Double && right instanceof Double;
+        switch (operator) {
+            case PLUS:
+                if (numbers) {
+                    return (double) left + (double) right;
+                }
+                if (left instanceof String && right instanceof String) {
+                    return (String) left + (String) right;
+                }
+                return NOT_CONSTANT;
+            case MINUS:
+                return numbers ? (Object) ((double) left - (double) right) : NOT_CONSTANT;
+            case STAR:
+                return numbers ? (Object) ((double) left * (double) right) : NOT_CONSTANT;
+            case SLASH:
+                return numbers ? (Object) ((double) left / (double) right) : NOT_CONSTANT;
+            case GREATER:
+                return numbers ? (Object) ((double) left > (double) right) : NOT_CONSTANT;
+            case GREATER_EQUAL:
+                return numbers ? (Object) ((double) left >= (double) right) : NOT_CONSTANT;
+            case LESS:
+                return numbers ? (Object) ((double) left < (double) right) : NOT_CONSTANT;
+            case LESS_EQUAL:
+                return numbers ? (Object) ((double) left <= (double) right) : NOT_CONSTANT;
+            case EQUAL_EQUAL:
+                return Values.isEqual(left, right);
+            case BANG_EQUAL:
+                return !Values.isEqual(left, right);
+            default:
+                return NOT_CONSTANT;
+        }
+    }
+}
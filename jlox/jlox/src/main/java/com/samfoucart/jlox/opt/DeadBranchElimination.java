@@ -0,0 +1,44 @@
+package com.samfoucart.jlox.opt;
+
+import com.samfoucart.jlox.Stmt;
+import com.samfoucart.jlox.Values;
+import com.samfoucart.jlox.Expr.Literal;
+import com.samfoucart.jlox.Stmt.If;
+import com.samfoucart.jlox.Stmt.While;
+
+/**
+ * Replaces an if statement with a constant condition by the branch it takes,
+ * and removes while loops whose condition is constantly false.
+ */
+public class DeadBranchElimination extends Pass {
+    @Override
+    public String name() {
+        return "dead-branch-elimination";
+    }
+
+    @Override
+    public Stmt visitIfStmt(If stmt) {
+        Literal condition = Literals.constant(stmt.condition);
+        if (condition == null) {
+            return super.visitIfStmt(stmt);
+        }
+
+        changed();
+        if (Values.isTruthy(condition.value)) {
+            return transform(stmt.truthy);
+        }
+
+        return stmt.falsey != null ? transform(stmt.falsey) : null;
+    }
+
+    @Override
+    public Stmt visitWhileStmt(While stmt) {
+        Literal condition = Literals.constant(stmt.condition);
+        if (condition != null && !Values.isTruthy(condition.value)) {
+            changed();
+            return null;
+        }
+
+        return super.visitWhileStmt(stmt);
+    }
+}
@@ -0,0 +1,119 @@
+package com.samfoucart.jlox.opt;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.samfoucart.jlox.Expr;
+import com.samfoucart.jlox.Stmt;
+import com.samfoucart.jlox.Token;
+import com.samfoucart.jlox.Expr.Assign;
+import com.samfoucart.jlox.Expr.Variable;
+import com.samfoucart.jlox.Stmt.Block;
+import com.samfoucart.jlox.Stmt.Var;
+
+/**
+ * Removes declarations of block locals that are never read or assigned.
+ * Globals are kept, later REPL lines may still read them.
+ * An initializer that is not a literal is kept as an expression statement,
+ * so its side effects and runtime errors still happen.
+ */
+public class DeadStoreElimination extends Pass {
+    // Every declaration of a block local, redeclarations share the same entry
+    private static class Local {
+        boolean used = false;
+    }
+
+    private final Map<Var, Local> declarations = new IdentityHashMap<>();
+
+    @Override
+    public String name() {
+        return "dead-store-elimination";
+    }
+
+    @Override
+    public List<Stmt> run(List<Stmt> statements) {
+        new Usages().statements(statements);
+        return transform(statements);
+    }
+
+    @Override
+    public Stmt visitVarStmt(Var stmt) {
+        Local local = declarations.get(stmt);
+        if (local == null || local.used) {
+            return super.visitVarStmt(stmt);
+        }
+
+        changed();
+        if (stmt.initializer == null || Literals.constant(stmt.initializer) != null) {
+            return null;
+        }
+
+        return new Stmt.Expression(transform(stmt.initializer));
+    }
+
+    /**
+     * Walks the program with the same scoping rules as the Resolver
+     * and marks every local that is read or assigned.
+     */
+    private class Usages extends Pass {
+        private final List<Map<String, Local>> scopes = new ArrayList<>();
+
+        @Override
+        public String name() {
+            return "usages";
+        }
+
+        void statements(List<Stmt> statements) {
+            for (Stmt statement : statements) {
+                transform(statement);
+            }
+        }
+
+        private void use(Token name) {
+            for (int i = scopes.size() - 1; i >= 0; i--) {
+                Local local = scopes.get(i).get(name.lexeme);
+                if (local != null) {
+                    local.used = true;
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public Stmt visitBlockStmt(Block stmt) {
+            scopes.add(new HashMap<>());
+            statements(stmt.statements);
+            scopes.remove(scopes.size() - 1);
+            return stmt;
+        }
+
+        @Override
+        public Stmt visitVarStmt(Var stmt) {
+            if (stmt.initializer != null) {
+                transform(stmt.initializer);
+            }
+
+            if (!scopes.isEmpty()) {
+                Map<String, Local> scope = scopes.get(scopes.size() - 1);
+                declarations.put(stmt, scope.computeIfAbsent(stmt.name.lexeme, name -> new Local()));
+            }
+            return stmt;
+        }
+
+        @Override
+        public Expr visitAssignExpr(Assign expr) {
+            transform(expr.value);
+            use(expr.name);
+            return expr;
+        }
+
+        @Override
+        public Expr visitVariableExpr(Variable expr) {
+            use(expr.name);
+            return expr;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.samfoucart.jlox.opt;
+
+import com.samfoucart.jlox.Expr;
+import com.samfoucart.jlox.Expr.Grouping;
+
+/**
+ * Removes parentheses, the shape of the tree already encodes precedence.
+ */
+public class GroupingElimination extends Pass {
+    @Override
+    public String name() {
+        return "grouping-elimination";
+    }
+
+    @Override
+    public Expr visitGroupingExpr(Grouping expr) {
+        changed();
+        return transform(expr.expression);
+    }
+}
@@ -0,0 +1,19 @@
+package com.samfoucart.jlox.opt;
+
+import com.samfoucart.jlox.Expr;
+import com.samfoucart.jlox.Expr.Grouping;
+import com.samfoucart.jlox.Expr.Literal;
+
+final class Literals {
+    private Literals() {
+    }
+
+    // The literal an expression always evaluates to, looking through groupings, or null
+    static Literal constant(Expr expr) {
+        while (expr instanceof Grouping) {
+            expr = ((Grouping) expr).expression;
+        }
+
+        return expr instanceof Literal ? (Literal) expr : null;
+    }
+}
@@ -0,0 +1,38 @@
+package com.samfoucart.jlox.opt;
+
+import java.util.List;
+
+import com.samfoucart.jlox.Expr;
+import com.samfoucart.jlox.Stmt;
+
+/**
+ * Counts the Expr and Stmt nodes of a program, for the optimizer statistics.
+ */
+class NodeCounter extends Pass {
+    private int count = 0;
+
+    @Override
+    public String name() {
+        return "node-counter";
+    }
+
+    int count(List<Stmt> statements) {
+        count = 0;
+        for (Stmt statement : statements) {
+            transform(statement);
+        }
+        return count;
+    }
+
+    @Override
+    protected Stmt transform(Stmt stmt) {
+        count++;
+        return super.transform(stmt);
+    }
+
+    @Override
+    protected Expr transform(Expr expr) {
+        count++;
+        return super.transform(expr);
+    }
+}
@@ -0,0 +1,165 @@
+package com.samfoucart.jlox.opt;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.samfoucart.jlox.Expr;
+import com.samfoucart.jlox.Stmt;
+import com.samfoucart.jlox.Expr.Assign;
+import com.samfoucart.jlox.Expr.Binary;
+import com.samfoucart.jlox.Expr.Grouping;
+import com.samfoucart.jlox.Expr.Literal;
+import com.samfoucart.jlox.Expr.Unary;
+import com.samfoucart.jlox.Expr.Variable;
+import com.samfoucart.jlox.Stmt.Block;
+import com.samfoucart.jlox.Stmt.Expression;
+import com.samfoucart.jlox.Stmt.If;
+import com.samfoucart.jlox.Stmt.Print;
+import com.samfoucart.jlox.Stmt.Var;
+import com.samfoucart.jlox.Stmt.While;
+
+/**
+ * A rewrite of the AST run by the PassManager after parsing.
+ * By default every node is rebuilt from its transformed children,
+ * and nodes whose children did not change are returned as they are.
+ * A statement transformed to null is removed.
+ */
+public abstract class Pass implements Expr.Visitor<Expr>, Stmt.Visitor<Stmt> {
+    private int changes = 0;
+
+    public abstract String name();
+
+    public List<Stmt> run(List<Stmt> statements) {
+        return transform(statements);
+    }
+
+    public int changes() {
+        return changes;
+    }
+
+    protected void changed() {
+        changes++;
+    }
+
+    protected List<Stmt> transform(List<Stmt> statements) {
+        List<Stmt> result = new ArrayList<>(statements.size());
+        boolean same = true;
+        for (Stmt statement : statements) {
+            Stmt transformed = transform(statement);
+            if (transformed != null) {
+                result.add(transformed);
+            }
+            same = same && transformed == statement;
+        }
+
+        return same ? statements : result;
+    }
+
+    protected Stmt transform(Stmt stmt) {
+        return stmt.accept(this);
+    }
+
+    protected Expr transform(Expr expr) {
+        return expr.accept(this);
+    }
+
+    // Removed statements that are not part of a list become an empty block
+    private Stmt transformBody(Stmt stmt) {
+        Stmt transformed = transform(stmt);
+        return transformed != null ? transformed : new Stmt.Block(new ArrayList<>());
+    }
+
+    // Statements
+
+    @Override
+    public Stmt visitExpressionStmt(Expression stmt) {
+        Expr expression = transform(stmt.expression);
+        return expression == stmt.expression ? stmt : new Stmt.Expression(expression);
+    }
+
+    @Override
+    public Stmt visitPrintStmt(Print stmt) {
+        Expr expression = transform(stmt.expression);
+        return expression == stmt.expression ? stmt : new Stmt.Print(expression);
+    }
+
+    @Override
+    public Stmt visitBlockStmt(Block stmt) {
+        List<Stmt> statements = transform(stmt.statements);
+        return statements == stmt.statements ? stmt : new Stmt.Block(statements);
+    }
+
+    @Override
+    public Stmt visitVarStmt(Var stmt) {
+        if (stmt.initializer == null) {
+            return stmt;
+        }
+
+        Expr initializer = transform(stmt.initializer);
+        return initializer == stmt.initializer ? stmt : new Stmt.Var(stmt.name, initializer);
+    }
+
+    @Override
+    public Stmt visitIfStmt(If stmt) {
+        Expr condition = transform(stmt.condition);
+        Stmt truthy = transformBody(stmt.truthy);
+        Stmt falsey = stmt.falsey != null ? transformBody(stmt.falsey) : null;
+        if (condition == stmt.condition && truthy == stmt.truthy && falsey == stmt.falsey) {
+            return stmt;
+        }
+
+        return new Stmt.If(condition, truthy, falsey);
+    }
+
+    @Override
+    public Stmt visitWhileStmt(While stmt) {
+        Expr condition = transform(stmt.condition);
+        Stmt loop = transformBody(stmt.loop);
+        if (condition == stmt.condition && loop == stmt.loop) {
+            return stmt;
+        }
+
+        return new Stmt.While(condition, loop);
+    }
+
+    // Expressions
+
+    @Override
+    public Expr visitAssignExpr(Assign expr) {
+        Expr value = transform(expr.value);
+        return value == expr.value ? expr : new Expr.Assign(expr.name, value);
+    }
+
+    @Override
+    public Expr visitBinaryExpr(Binary expr) {
+        Expr left = transform(expr.left);
+        Expr right = transform(expr.right);
+        if (left == expr.left && right == expr.right) {
+            return expr;
+        }
+
+        return new Expr.Binary(left, expr.operator, right);
+    }
+
+    @Override
+    public Expr visitGroupingExpr(Grouping expr) {
+        Expr expression = transform(expr.expression);
+        return expression == expr.expression ? expr : new Expr.Grouping(expression);
+    }
+
+    @Override
+    public Expr visitLiteralExpr(Literal expr) {
+        return expr;
+    }
+
+    @Override
+    public Expr visitUnaryExpr(Unary expr) {
+        Expr right = transform(expr.right);
+        return right == expr.right ? expr : new Expr.Unary(expr.operator, right);
+    }
+
+    @Override
+    public Expr visitVariableExpr(Variable expr) {
+        return expr;
+    }
+}
@@ -0,0 +1,92 @@
+package com.samfoucart.jlox.opt;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import com.samfoucart.jlox.Stmt;
+
+/**
+ * Runs a configurable list of optimization passes over the parsed program,
+ * before the Resolver binds variables.
+ * Statistics are only collected when asked for, counting nodes walks the whole program twice.
+ */
+public class PassManager {
+    public static final String DEFAULT_PASSES = "fold,groupings,branches,stores";
+
+    private final List<Supplier<Pass>> passes = new ArrayList<>();
+    private final boolean collectStatistics;
+    private final List<String> statistics = new ArrayList<>();
+
+    public PassManager() {
+        this(false);
+    }
+
+    public PassManager(boolean collectStatistics) {
+        this.collectStatistics = collectStatistics;
+    }
+
+    /**
+     * Builds a manager from a comma separated list of pass names:
+     * fold, groupings, branches and stores.
+     */
+    public static PassManager fromNames(String names) {
+        return fromNames(names, false);
+    }
+
+    public static PassManager fromNames(String names, boolean collectStatistics) {
+        PassManager manager = new PassManager(collectStatistics);
+        for (String name : names.split(",")) {
+            switch (name.trim()) {
+                case "fold":
+                    manager.add(ConstantFolding::new);
+                    break;
+                case "groupings":
+                    manager.add(GroupingElimination::new);
+                    break;
+                case "branches":
+                    manager.add(DeadBranchElimination::new);
+                    break;
+                case "stores":
+                    manager.add(DeadStoreElimination::new);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown optimization pass '" + name + "'.");
+            }
+        }
+        return manager;
+    }
+
+    public PassManager add(Supplier<Pass> pass) {
+        passes.add(pass);
+        return this;
+    }
+
+    public List<Stmt> run(List<Stmt> statements) {
+        NodeCounter counter = new NodeCounter();
+        int before = collectStatistics ? counter.count(statements) : 0;
+
+        for (Supplier<Pass> supplier : passes) {
+            // Passes keep state, so each run gets fresh instances
+            Pass pass = supplier.get();
+            statements = pass.run(statements);
+            if (collectStatistics) {
+                statistics.add(pass.name() + ": " + pass.changes() + " changes");
+            }
+        }
+
+        if (collectStatistics) {
+            statistics.add("nodes: " + before + " before, " + counter.count(statements) + " after");
+        }
+        return statements;
+    }
+
+    /** Prints and forgets the statistics of the runs since the last call. */
+    public void printStatistics(PrintStream out) {
+        for (String line : statistics) {
+            out.println("[optimizer] " + line);
+        }
+        statistics.clear();
+    }
+}
@@ -0,0 +1,178 @@
+package com.samfoucart.jlox.output;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Encodes lines into one large buffer and writes it to a channel,
+ * like a FileChannel or stdout, in as few system calls as possible.
+ * The buffer is written when it is full, when flush or close is called,
+ * and depending on how the sink was created, once enough bytes are pending
+ * or at a fixed interval from a background thread.
+ * Lines written before a flush keep their order with anything written after it.
+ * Like a PrintStream, a failed write is remembered for checkError
+ * and everything after it is dropped, so a closed pipe does not stop the program.
+ */
+@NullMarked
+public final class BufferedSink implements OutputSink {
+    private static final int LARGE_BUFFER = 1 << 20;
+
+    private final WritableByteChannel channel;
+    private final CharsetEncoder encoder;
+    // ASCII characters can be copied as bytes, without the encoder
+    private final boolean asciiCompatible;
+    private final byte[] separator;
+    private final ByteBuffer buffer;
+    // The buffer is written once this many bytes are pending
+    private final int flushSize;
+    private final @Nullable ScheduledExecutorService timer;
+    private boolean error = false;
+
+    private BufferedSink(WritableByteChannel channel, Charset charset, int capacity, int flushSize, long flushMillis) {
+        this.channel = channel;
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.asciiCompatible = charset.equals(StandardCharsets.UTF_8)
+                || charset.equals(StandardCharsets.ISO_8859_1)
+                || charset.equals(StandardCharsets.US_ASCII);
+        this.separator = System.lineSeparator().getBytes(charset);
+        this.buffer = ByteBuffer.allocate(Math.max(capacity, separator.length + 16));
+        this.flushSize = Math.min(flushSize, buffer.capacity());
+
+        if (flushMillis > 0) {
+            timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "jlox-output-flush");
+                thread.setDaemon(true);
+                return thread;
+            });
+            timer.scheduleAtFixedRate(this::flush, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+        } else {
+            timer = null;
+        }
+    }
+
+    /** Writes only when the large buffer fills up, and on flush or close. */
+    public static BufferedSink flushOnExit(WritableByteChannel channel, Charset charset) {
+        return new BufferedSink(channel, charset, LARGE_BUFFER, LARGE_BUFFER, 0);
+    }
+
+    /** Writes as soon as the given number of bytes are pending. */
+    public static BufferedSink flushBySize(WritableByteChannel channel, Charset charset, int bytes) {
+        return new BufferedSink(channel, charset, bytes, bytes, 0);
+    }
+
+    /** Writes whatever is pending every interval, and when the large buffer fills up. */
+    public static BufferedSink flushByTime(WritableByteChannel channel, Charset charset, long millis) {
+        return new BufferedSink(channel, charset, LARGE_BUFFER, LARGE_BUFFER, millis);
+    }
+
+    /**
+     * A channel over the process standard output.
+     * Anything still buffered in System.out should be flushed before writing to it.
+     */
+    public static WritableByteChannel stdout() {
+        return new FileOutputStream(FileDescriptor.out).getChannel();
+    }
+
+    @Override
+    public synchronized void println(String line) {
+        if (!asciiCompatible || !putAscii(line)) {
+            encode(line);
+        }
+
+        if (buffer.remaining() < separator.length) {
+            drain();
+        }
+        buffer.put(separator);
+
+        if (buffer.position() >= flushSize) {
+            drain();
+        }
+    }
+
+    // Copies a line made of ASCII characters only, returns false without writing anything otherwise
+    private boolean putAscii(String line) {
+        int length = line.length();
+        if (length > buffer.remaining()) {
+            return false;
+        }
+
+        int start = buffer.position();
+        for (int i = 0; i < length; i++) {
+            char c = line.charAt(i);
+            if (c >= 0x80) {
+                buffer.position(start);
+                return false;
+            }
+            buffer.put((byte) c);
+        }
+        return true;
+    }
+
+    // Errors are replaced, so the encoder only ever stops when the buffer is full
+    private void encode(String line) {
+        CharBuffer chars = CharBuffer.wrap(line);
+        encoder.reset();
+        while (encoder.encode(chars, buffer, true).isOverflow()) {
+            drain();
+        }
+        while (encoder.flush(buffer).isOverflow()) {
+            drain();
+        }
+    }
+
+    @Override
+    public synchronized void flush() {
+        drain();
+    }
+
+    @Override
+    public synchronized boolean checkError() {
+        drain();
+        return error;
+    }
+
+    @Override
+    public void close() {
+        if (timer != null) {
+            timer.shutdownNow();
+        }
+        flush();
+    }
+
+    private void drain() {
+        if (error) {
+            buffer.clear();
+            return;
+        }
+
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException failure) {
+            error = true;
+            if (timer != null) {
+                timer.shutdown();
+            }
+        } finally {
+            buffer.clear();
+        }
+    }
+}
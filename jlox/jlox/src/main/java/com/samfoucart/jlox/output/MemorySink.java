@@ -0,0 +1,31 @@
+package com.samfoucart.jlox.output;
+
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Keeps printed lines in memory, for programs that embed Lox and want the output as a String.
+ * Like an execution, a MemorySink belongs to one thread at a time.
+ */
+@NullMarked
+public final class MemorySink implements OutputSink {
+    private final StringBuilder text = new StringBuilder();
+
+    @Override
+    public void println(String line) {
+        text.append(line).append('\n');
+    }
+
+    @Override
+    public void flush() {
+        // Lines are available as soon as they are written
+    }
+
+    /** Everything printed so far, each line ending with a newline. */
+    public String text() {
+        return text.toString();
+    }
+
+    public void clear() {
+        text.setLength(0);
+    }
+}
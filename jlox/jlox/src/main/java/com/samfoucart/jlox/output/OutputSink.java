@@ -0,0 +1,31 @@
+package com.samfoucart.jlox.output;
+
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Where print statements send their lines.
+ * Backends only ever call println, when the lines reach their destination
+ * is up to the sink and to whoever owns it.
+ */
+@NullMarked
+public interface OutputSink {
+    /** Writes one line, the sink adds the line separator. */
+    void println(String line);
+
+    /** Pushes every line written so far to the destination. */
+    void flush();
+
+    /**
+     * Flushes, then tells whether writing to the destination ever failed.
+     * Like a PrintStream, a sink stops writing after an error instead of throwing.
+     */
+    default boolean checkError() {
+        flush();
+        return false;
+    }
+
+    /** Flushes and releases anything the sink holds, like a flushing thread. */
+    default void close() {
+        flush();
+    }
+}
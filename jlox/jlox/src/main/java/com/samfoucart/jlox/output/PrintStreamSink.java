@@ -0,0 +1,33 @@
+package com.samfoucart.jlox.output;
+
+import java.io.PrintStream;
+
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Prints through a PrintStream, like System.out, which usually flushes every line.
+ * The default for backends created without a sink.
+ */
+@NullMarked
+public final class PrintStreamSink implements OutputSink {
+    private final PrintStream out;
+
+    public PrintStreamSink(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void println(String line) {
+        out.println(line);
+    }
+
+    @Override
+    public void flush() {
+        out.flush();
+    }
+
+    @Override
+    public boolean checkError() {
+        return out.checkError();
+    }
+}
@@ -0,0 +1,54 @@
+package com.samfoucart.jlox.profile;
+
+import java.util.Arrays;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * One path of nested source lines from the top of the script, like one stack of a flame graph.
+ * Children are created once per path and reused,
+ * so entering a line that was entered before from the same place allocates nothing.
+ */
+@NullMarked
+final class CallPath {
+    private static final CallPath[] NO_CHILDREN = new CallPath[0];
+
+    final int line;
+    final @Nullable CallPath parent;
+    CallPath[] children = NO_CHILDREN;
+    int childCount = 0;
+    // Only written by the sampling thread, only read once it has stopped
+    long samples = 0;
+
+    CallPath(int line, @Nullable CallPath parent) {
+        this.line = line;
+        this.parent = parent;
+    }
+
+    CallPath child(int line) {
+        // A handful of lines nest directly in any one line, a linear scan beats hashing
+        for (int i = 0; i < childCount; i++) {
+            if (children[i].line == line) {
+                return children[i];
+            }
+        }
+
+        if (childCount == children.length) {
+            children = Arrays.copyOf(children, Math.max(4, childCount * 2));
+        }
+        CallPath child = new CallPath(line, this);
+        children[childCount++] = child;
+        return child;
+    }
+
+    /** True when this line, or a line enclosing it, is the given line. */
+    boolean contains(int line) {
+        for (CallPath path = this; path != null; path = path.parent) {
+            if (path.line == line) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
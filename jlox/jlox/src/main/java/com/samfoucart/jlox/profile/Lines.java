@@ -0,0 +1,65 @@
+package com.samfoucart.jlox.profile;
+
+import org.jspecify.annotations.NullMarked;
+
+import com.samfoucart.jlox.Expr;
+import com.samfoucart.jlox.Stmt;
+
+/**
+ * The source line a node is attributed to, taken from the first token it holds.
+ * Blocks and literals have no token of their own and return -1,
+ * they run on the line of whatever encloses them.
+ */
+@NullMarked
+final class Lines {
+    private Lines() {
+    }
+
+    static int of(Stmt stmt) {
+        if (stmt instanceof Stmt.Expression) {
+            return of(((Stmt.Expression) stmt).expression);
+        }
+
+        if (stmt instanceof Stmt.Print) {
+            return of(((Stmt.Print) stmt).expression);
+        }
+
+        if (stmt instanceof Stmt.Var) {
+            return ((Stmt.Var) stmt).name.line;
+        }
+
+        if (stmt instanceof Stmt.If) {
+            return of(((Stmt.If) stmt).condition);
+        }
+
+        if (stmt instanceof Stmt.While) {
+            return of(((Stmt.While) stmt).condition);
+        }
+
+        return -1;
+    }
+
+    static int of(Expr expr) {
+        if (expr instanceof Expr.Binary) {
+            return ((Expr.Binary) expr).operator.line;
+        }
+
+        if (expr instanceof Expr.Variable) {
+            return ((Expr.Variable) expr).name.line;
+        }
+
+        if (expr instanceof Expr.Assign) {
+            return ((Expr.Assign) expr).name.line;
+        }
+
+        if (expr instanceof Expr.Unary) {
+            return ((Expr.Unary) expr).operator.line;
+        }
+
+        if (expr instanceof Expr.Grouping) {
+            return of(((Expr.Grouping) expr).expression);
+        }
+
+        return -1;
+    }
+}
@@ -0,0 +1,181 @@
+package com.samfoucart.jlox.profile;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * What a ProfilingInterpreter measured: how often nodes on each source line ran,
+ * the time spent on each line by itself and including the lines nested in it,
+ * and the sampled paths of nested lines for a flame graph.
+ */
+@NullMarked
+public final class Profile {
+    private static final int SOURCE_WIDTH = 60;
+
+    // Frames of the collapsed stacks are named <name>:<line>
+    private final String name;
+    // The top level of the script, outside of every line
+    final CallPath root = new CallPath(0, null);
+    private long[] counts = new long[64];
+    private long[] selfNanos = new long[64];
+    private long[] totalNanos = new long[64];
+
+    public Profile(String name) {
+        this.name = name;
+    }
+
+    void hit(int line) {
+        grow(line);
+        counts[line]++;
+    }
+
+    void time(int line, long self, long total) {
+        grow(line);
+        selfNanos[line] += self;
+        totalNanos[line] += total;
+    }
+
+    private void grow(int line) {
+        if (line >= counts.length) {
+            int size = Math.max(line + 1, counts.length * 2);
+            counts = Arrays.copyOf(counts, size);
+            selfNanos = Arrays.copyOf(selfNanos, size);
+            totalNanos = Arrays.copyOf(totalNanos, size);
+        }
+    }
+
+    /** How many nodes on the line ran. */
+    public long count(int line) {
+        return line < counts.length ? counts[line] : 0;
+    }
+
+    /** Time spent on the line, without the lines nested in it. */
+    public long selfNanos(int line) {
+        return line < selfNanos.length ? selfNanos[line] : 0;
+    }
+
+    /** Time spent on the line, including the lines nested in it. */
+    public long totalNanos(int line) {
+        return line < totalNanos.length ? totalNanos[line] : 0;
+    }
+
+    /** Samples taken while the line was the innermost one running. */
+    public long samples(int line) {
+        return samples(root, line);
+    }
+
+    private static long samples(CallPath path, int line) {
+        long samples = path.line == line ? path.samples : 0;
+        for (int i = 0; i < path.childCount; i++) {
+            samples += samples(path.children[i], line);
+        }
+        return samples;
+    }
+
+    private static long totalSamples(CallPath path) {
+        long samples = path.samples;
+        for (int i = 0; i < path.childCount; i++) {
+            samples += totalSamples(path.children[i]);
+        }
+        return samples;
+    }
+
+    /**
+     * Prints the lines that took the most time by themselves, hottest first,
+     * with their text when the source file is given.
+     */
+    public void printHotLines(PrintStream out, int limit, @Nullable Path source) throws IOException {
+        List<Integer> lines = new ArrayList<>();
+        long profiled = 0;
+        for (int line = 1; line < counts.length; line++) {
+            if (counts[line] > 0) {
+                lines.add(line);
+                profiled += selfNanos[line];
+            }
+        }
+        lines.sort((a, b) -> Long.compare(selfNanos[b], selfNanos[a]));
+        lines = lines.subList(0, Math.min(limit, lines.size()));
+        Map<Integer, String> text = source != null ? readLines(source, lines) : Map.of();
+
+        out.printf("[profile] %d lines ran in %.2f ms, %d samples%n", countLines(), profiled / 1e6, totalSamples(root));
+        out.printf("[profile] %6s %12s %10s %10s %8s  %s%n", "line", "count", "self ms", "total ms", "samples", "source");
+        for (int line : lines) {
+            out.printf("[profile] %6d %12d %10.2f %10.2f %8d  %s%n", line, counts[line],
+                    selfNanos[line] / 1e6, totalNanos[line] / 1e6, samples(line), text.getOrDefault(line, ""));
+        }
+    }
+
+    private int countLines() {
+        int lines = 0;
+        for (long count : counts) {
+            if (count > 0) {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    // Reads the file once, up to the last line asked for
+    private static Map<Integer, String> readLines(Path source, List<Integer> lines) throws IOException {
+        int last = 0;
+        for (int line : lines) {
+            last = Math.max(last, line);
+        }
+
+        Map<Integer, String> text = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+            int number = 0;
+            String line;
+            while (number < last && (line = reader.readLine()) != null) {
+                number++;
+                if (lines.contains(number)) {
+                    line = line.strip();
+                    text.put(number, line.length() > SOURCE_WIDTH ? line.substring(0, SOURCE_WIDTH - 3) + "..." : line);
+                }
+            }
+        }
+        return text;
+    }
+
+    /**
+     * Writes the sampled paths in the collapsed stack format read by flame graph tools,
+     * one path per line, its frames separated by semicolons and followed by its sample count.
+     */
+    public void writeCollapsed(Path file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writeCollapsed(writer);
+        }
+    }
+
+    public void writeCollapsed(Writer writer) throws IOException {
+        for (int i = 0; i < root.childCount; i++) {
+            writeCollapsed(writer, root.children[i], name + ":" + root.children[i].line);
+        }
+        writer.flush();
+    }
+
+    private void writeCollapsed(Writer writer, CallPath path, String stack) throws IOException {
+        if (path.samples > 0) {
+            writer.write(stack + " " + path.samples + "\n");
+        }
+
+        for (int i = 0; i < path.childCount; i++) {
+            CallPath child = path.children[i];
+            writeCollapsed(writer, child, stack + ";" + name + ":" + child.line);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.samfoucart.jlox.profile;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import com.samfoucart.jlox.ErrorReporter;
+import com.samfoucart.jlox.Expr;
+import com.samfoucart.jlox.Interpreter;
+import com.samfoucart.jlox.Stmt;
+import com.samfoucart.jlox.output.OutputSink;
+
+/**
+ * An Interpreter that records a Profile of the program it runs.
+ * Every statement and expression is counted against its source line,
+ * and the clock is read whenever execution moves onto a different line,
+ * so a line's time covers all of its nodes, including numeric subtrees evaluated unboxed.
+ * A background thread samples the line being run for the flame graph.
+ * The plain Interpreter has none of this, so it costs nothing unless --profile is given.
+ * Loops are never compiled, their lines are profiled like any other.
+ */
+@NullMarked
+public class ProfilingInterpreter extends Interpreter {
+    private final Profile profile;
+    // The innermost line being run, read by the sampling thread
+    private volatile CallPath current;
+    // When each line on the current path was entered, and the time spent in lines nested in it
+    private long[] entered = new long[32];
+    private long[] nested = new long[32];
+    private int depth = 0;
+    private @Nullable ScheduledExecutorService sampler;
+    // The expression evaluate was last called with, a visitor may hand it on to evaluateDouble
+    private @Nullable Expr evaluating;
+
+    public ProfilingInterpreter(OutputSink out, ErrorReporter reporter, Profile profile) {
+        super(out, reporter);
+        this.profile = profile;
+        this.current = profile.root;
+    }
+
+    public Profile profile() {
+        return profile;
+    }
+
+    /** Samples the line being run every interval until stopSampling. */
+    public void startSampling(long intervalMicros) {
+        sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jlox-profile-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleAtFixedRate(this::sample, intervalMicros, intervalMicros, TimeUnit.MICROSECONDS);
+    }
+
+    /** Stops the sampling thread, its samples are in the profile once this returns. */
+    public void stopSampling() throws InterruptedException {
+        if (sampler != null) {
+            sampler.shutdownNow();
+            sampler.awaitTermination(1, TimeUnit.SECONDS);
+            sampler = null;
+        }
+    }
+
+    private void sample() {
+        CallPath path = current;
+        // Outside of every line the program is waiting for input or not running at all
+        if (path != profile.root) {
+            path.samples++;
+        }
+    }
+
+    @Override
+    public Void execute(Stmt stmt) {
+        int line = Lines.of(stmt);
+        if (line < 0) {
+            return super.execute(stmt);
+        }
+
+        profile.hit(line);
+        if (line == current.line) {
+            return super.execute(stmt);
+        }
+
+        enter(line);
+        try {
+            return super.execute(stmt);
+        } finally {
+            exit();
+        }
+    }
+
+    @Override
+    public Object evaluate(Expr expr) {
+        evaluating = expr;
+        int line = Lines.of(expr);
+        if (line < 0) {
+            return super.evaluate(expr);
+        }
+
+        profile.hit(line);
+        if (line == current.line) {
+            return super.evaluate(expr);
+        }
+
+        enter(line);
+        try {
+            return super.evaluate(expr);
+        } finally {
+            exit();
+        }
+    }
+
+    // Numeric subtrees skip evaluate, so they are counted here
+    @Override
+    protected double evaluateDouble(Expr expr) {
+        int line = Lines.of(expr);
+        // Already counted by evaluate when a visitor hands on its own expression
+        if (line < 0 || expr == evaluating) {
+            return super.evaluateDouble(expr);
+        }
+
+        profile.hit(line);
+        if (line == current.line) {
+            return super.evaluateDouble(expr);
+        }
+
+        enter(line);
+        try {
+            return super.evaluateDouble(expr);
+        } finally {
+            exit();
+        }
+    }
+
+    private void enter(int line) {
+        if (depth == entered.length) {
+            entered = Arrays.copyOf(entered, depth * 2);
+            nested = Arrays.copyOf(nested, depth * 2);
+        }
+
+        current = current.child(line);
+        nested[depth] = 0;
+        entered[depth++] = System.nanoTime();
+    }
+
+    private void exit() {
+        long elapsed = System.nanoTime() - entered[--depth];
+        CallPath path = current;
+        CallPath parent = path.parent;
+
+        // A line nested in itself, like the condition of a loop inside its body, is only counted once in total
+        boolean outermost = parent == null || !parent.contains(path.line);
+        profile.time(path.line, elapsed - nested[depth], outermost ? elapsed : 0);
+        if (depth > 0) {
+            nested[depth - 1] += elapsed;
+        }
+        current = parent != null ? parent : profile.root;
+    }
+}
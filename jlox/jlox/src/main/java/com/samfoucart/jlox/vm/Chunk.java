@@ -0,0 +1,94 @@
+package com.samfoucart.jlox.vm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import com.samfoucart.jlox.Token;
+
+/**
+ * A compiled program: the bytecode, its constant pool,
+ * and the tokens needed to report runtime errors.
+ */
+@NullMarked
+public class Chunk {
+    private byte[] code = new byte[256];
+    private int count = 0;
+    private final List<@Nullable Object> constants = new ArrayList<>();
+    private final Map<@Nullable Object, Integer> constantIndexes = new HashMap<>();
+    // Only instructions that can fail are recorded, the map is read on the error path only
+    private final Map<Integer, Token> errorTokens = new HashMap<>();
+    private int maxStack = 0;
+
+    int write(byte value) {
+        if (count == code.length) {
+            code = Arrays.copyOf(code, code.length * 2);
+        }
+
+        code[count] = value;
+        return count++;
+    }
+
+    int writeShort(int value) {
+        int offset = write((byte) ((value >> 8) & 0xff));
+        write((byte) (value & 0xff));
+        return offset;
+    }
+
+    int writeInt(int value) {
+        int offset = writeShort((value >> 16) & 0xffff);
+        writeShort(value & 0xffff);
+        return offset;
+    }
+
+    void patchInt(int offset, int value) {
+        code[offset] = (byte) ((value >> 24) & 0xff);
+        code[offset + 1] = (byte) ((value >> 16) & 0xff);
+        code[offset + 2] = (byte) ((value >> 8) & 0xff);
+        code[offset + 3] = (byte) (value & 0xff);
+    }
+
+    int addConstant(@Nullable Object value) {
+        Integer index = constantIndexes.get(value);
+        if (index != null) {
+            return index;
+        }
+
+        constants.add(value);
+        constantIndexes.put(value, constants.size() - 1);
+        return constants.size() - 1;
+    }
+
+    void markErrorToken(int offset, Token token) {
+        errorTokens.put(offset, token);
+    }
+
+    void setMaxStack(int maxStack) {
+        this.maxStack = maxStack;
+    }
+
+    int count() {
+        return count;
+    }
+
+    byte[] code() {
+        return Arrays.copyOf(code, count);
+    }
+
+    Object[] constants() {
+        return constants.toArray();
+    }
+
+    int maxStack() {
+        return maxStack;
+    }
+
+    Token errorToken(int offset) {
+        return errorTokens.get(offset);
+    }
+}
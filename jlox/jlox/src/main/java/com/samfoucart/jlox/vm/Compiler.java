@@ -0,0 +1,371 @@
+package com.samfoucart.jlox.vm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.samfoucart.jlox.Expr;
+import com.samfoucart.jlox.ErrorReporter;
+import com.samfoucart.jlox.Stmt;
+import com.samfoucart.jlox.Token;
+import com.samfoucart.jlox.Expr.Assign;
+import com.samfoucart.jlox.Expr.Binary;
+import com.samfoucart.jlox.Expr.Grouping;
+import com.samfoucart.jlox.Expr.Literal;
+import com.samfoucart.jlox.Expr.Unary;
+import com.samfoucart.jlox.Expr.Variable;
+import com.samfoucart.jlox.Stmt.Block;
+import com.samfoucart.jlox.Stmt.Expression;
+import com.samfoucart.jlox.Stmt.If;
+import com.samfoucart.jlox.Stmt.Print;
+import com.samfoucart.jlox.Stmt.Var;
+import com.samfoucart.jlox.Stmt.While;
+
+/**
+ * Compiles the statements produced by the Parser into a Chunk.
+ * Locals live on the VM stack and are resolved to stack slots here,
+ * globals are resolved to indexes in a table shared with the VM.
+ */
+class Compiler implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
+    private static final int MAX_OPERAND = 0xffff;
+
+    private static class Local {
+        final String name;
+        final int depth;
+
+        Local(String name, int depth) {
+            this.name = name;
+            this.depth = depth;
+        }
+    }
+
+    private final Map<String, Integer> globals;
+    private final ErrorReporter reporter;
+    private final List<Local> locals = new ArrayList<>();
+    private int scopeDepth = 0;
+    private Chunk chunk;
+    // Current and highest stack height, locals included
+    private int stackDepth = 0;
+    private int maxStack = 0;
+    private boolean hadError = false;
+
+    Compiler(Map<String, Integer> globals, ErrorReporter reporter) {
+        this.globals = globals;
+        this.reporter = reporter;
+    }
+
+    Chunk compile(List<Stmt> statements) {
+        chunk = new Chunk();
+        for (Stmt statement : statements) {
+            compile(statement);
+        }
+
+        emit(OpCode.RETURN, 0);
+        chunk.setMaxStack(maxStack);
+        return chunk;
+    }
+
+    private void compile(Stmt stmt) {
+        stmt.accept(this);
+    }
+
+    private void compile(Expr expr) {
+        expr.accept(this);
+    }
+
+    // Emitting bytecode
+
+    private int emit(byte op, int stackEffect) {
+        int offset = chunk.write(op);
+        stackDepth += stackEffect;
+        if (stackDepth > maxStack) {
+            maxStack = stackDepth;
+        }
+        return offset;
+    }
+
+    private int emit(byte op, int operand, int stackEffect) {
+        int offset = emit(op, stackEffect);
+        chunk.writeShort(operand);
+        return offset;
+    }
+
+    private int emitJump(byte op, int stackEffect) {
+        emit(op, stackEffect);
+        return chunk.writeInt(-1);
+    }
+
+    private void patchJump(int offset) {
+        chunk.patchInt(offset, chunk.count());
+    }
+
+    private void emitConstant(Object value) {
+        int index = chunk.addConstant(value);
+        if (index > MAX_OPERAND) {
+            emit(OpCode.CONSTANT_WIDE, 1);
+            chunk.writeInt(index);
+        } else {
+            emit(OpCode.CONSTANT, index, 1);
+        }
+    }
+
+    private int globalIndex(Token name) {
+        Integer index = globals.get(name.lexeme);
+        if (index == null) {
+            index = globals.size();
+            if (index > MAX_OPERAND) {
+                error(name, "Too many global variables.");
+            }
+            globals.put(name.lexeme, index);
+        }
+        return index;
+    }
+
+    private int resolveLocal(Token name) {
+        for (int i = locals.size() - 1; i >= 0; i--) {
+            if (locals.get(i).name.equals(name.lexeme)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private void error(Token token, String message) {
+        reporter.error(token, message);
+        hadError = true;
+    }
+
+    boolean hadError() {
+        return hadError;
+    }
+
+    private void beginScope() {
+        scopeDepth++;
+    }
+
+    private void endScope() {
+        scopeDepth--;
+
+        int count = 0;
+        while (!locals.isEmpty() && locals.get(locals.size() - 1).depth > scopeDepth) {
+            locals.remove(locals.size() - 1);
+            count++;
+        }
+
+        if (count == 1) {
+            emit(OpCode.POP, -1);
+        } else if (count > 1) {
+            emit(OpCode.POP_N, count, -count);
+        }
+    }
+
+    // Statements
+
+    @Override
+    public Void visitExpressionStmt(Expression stmt) {
+        compile(stmt.expression);
+        emit(OpCode.POP, -1);
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStmt(Print stmt) {
+        compile(stmt.expression);
+        emit(OpCode.PRINT, -1);
+        return null;
+    }
+
+    @Override
+    public Void visitBlockStmt(Block stmt) {
+        beginScope();
+        for (Stmt statement : stmt.statements) {
+            compile(statement);
+        }
+        endScope();
+        return null;
+    }
+
+    @Override
+    public Void visitVarStmt(Var stmt) {
+        // The initializer is compiled before the name is declared,
+        // so `var a = a + 1;` in a block still reads the outer `a`.
+        if (stmt.initializer != null) {
+            compile(stmt.initializer);
+        } else {
+            emit(OpCode.NIL, 1);
+        }
+
+        if (scopeDepth == 0) {
+            emit(OpCode.DEFINE_GLOBAL, globalIndex(stmt.name), -1);
+            return null;
+        }
+
+        // Redeclaring in the same block overwrites the existing slot
+        int slot = resolveLocal(stmt.name);
+        if (slot >= 0 && locals.get(slot).depth == scopeDepth) {
+            emit(OpCode.SET_LOCAL, slot, 0);
+            emit(OpCode.POP, -1);
+            return null;
+        }
+
+        if (locals.size() > MAX_OPERAND) {
+            error(stmt.name, "Too many local variables.");
+        }
+
+        // The initializer value stays on the stack as the local's slot
+        locals.add(new Local(stmt.name.lexeme, scopeDepth));
+        return null;
+    }
+
+    @Override
+    public Void visitIfStmt(If stmt) {
+        compile(stmt.condition);
+        int elseJump = emitJump(OpCode.JUMP_IF_FALSE, -1);
+        compile(stmt.truthy);
+
+        if (stmt.falsey == null) {
+            patchJump(elseJump);
+            return null;
+        }
+
+        int endJump = emitJump(OpCode.JUMP, 0);
+        patchJump(elseJump);
+        compile(stmt.falsey);
+        patchJump(endJump);
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStmt(While stmt) {
+        int loopStart = chunk.count();
+        compile(stmt.condition);
+        int exitJump = emitJump(OpCode.JUMP_IF_FALSE, -1);
+        compile(stmt.loop);
+        emit(OpCode.JUMP, 0);
+        chunk.writeInt(loopStart);
+        patchJump(exitJump);
+        return null;
+    }
+
+    // Expressions
+
+    @Override
+    public Void visitAssignExpr(Assign expr) {
+        compile(expr.value);
+
+        int slot = resolveLocal(expr.name);
+        if (slot >= 0) {
+            emit(OpCode.SET_LOCAL, slot, 0);
+        } else {
+            int offset = emit(OpCode.SET_GLOBAL, globalIndex(expr.name), 0);
+            chunk.markErrorToken(offset, expr.name);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryExpr(Binary expr) {
+        compile(expr.left);
+        compile(expr.right);
+
+        byte op;
+        switch (expr.operator.type) {
+            case MINUS:
+                op = OpCode.SUBTRACT;
+                break;
+            case STAR:
+                op = OpCode.MULTIPLY;
+                break;
+            case SLASH:
+                op = OpCode.DIVIDE;
+                break;
+            case PLUS:
+                op = OpCode.ADD;
+                break;
+            case GREATER:
+                op = OpCode.GREATER;
+                break;
+            case GREATER_EQUAL:
+                op = OpCode.GREATER_EQUAL;
+                break;
+            case LESS:
+                op = OpCode.LESS;
+                break;
+            case LESS_EQUAL:
+                op = OpCode.LESS_EQUAL;
+                break;
+            case EQUAL_EQUAL:
+                op = OpCode.EQUAL;
+                break;
+            case BANG_EQUAL:
+                op = OpCode.NOT_EQUAL;
+                break;
+            default:
+                // The tree walker evaluates unknown operators to nil
+                emit(OpCode.POP, -1);
+                emit(OpCode.POP, -1);
+                emit(OpCode.NIL, 1);
+                return null;
+        }
+
+        int offset = emit(op, -1);
+        chunk.markErrorToken(offset, expr.operator);
+        return null;
+    }
+
+    @Override
+    public Void visitGroupingExpr(Grouping expr) {
+        compile(expr.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitLiteralExpr(Literal expr) {
+        Object value = expr.value;
+        if (value == null) {
+            emit(OpCode.NIL, 1);
+        } else if (Boolean.TRUE.equals(value)) {
+            emit(OpCode.TRUE, 1);
+        } else if (Boolean.FALSE.equals(value)) {
+            emit(OpCode.FALSE, 1);
+        } else if (value instanceof Integer) {
+            emitConstant(((Integer) value).doubleValue());
+        } else {
+            emitConstant(value);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryExpr(Unary expr) {
+        compile(expr.right);
+
+        switch (expr.operator.type) {
+            case MINUS: {
+                int offset = emit(OpCode.NEGATE, 0);
+                chunk.markErrorToken(offset, expr.operator);
+                break;
+            }
+            case BANG:
+                emit(OpCode.NOT, 0);
+                break;
+            default:
+                error(expr.operator, "Unreachable statement");
+                break;
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitVariableExpr(Variable expr) {
+        int slot = resolveLocal(expr.name);
+        if (slot >= 0) {
+            emit(OpCode.GET_LOCAL, slot, 1);
+        } else {
+            int offset = emit(OpCode.GET_GLOBAL, globalIndex(expr.name), 1);
+            chunk.markErrorToken(offset, expr.name);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,50 @@
+package com.samfoucart.jlox.vm;
+
+/**
+ * Instruction set of the VM.
+ * Opcodes are plain byte constants so the dispatch loop
+ * compiles down to a single tableswitch.
+ * Operands follow the opcode, u16 values are big endian
+ * and jump targets are absolute 32 bit offsets.
+ */
+final class OpCode {
+    private OpCode() {
+    }
+
+    // Constants
+    static final byte CONSTANT = 0;         // u16 constant index
+    static final byte NIL = 1;
+    static final byte TRUE = 2;
+    static final byte FALSE = 3;
+
+    // Stack and variables
+    static final byte POP = 4;
+    static final byte POP_N = 5;            // u16 count
+    static final byte GET_LOCAL = 6;        // u16 stack slot
+    static final byte SET_LOCAL = 7;        // u16 stack slot
+    static final byte GET_GLOBAL = 8;       // u16 global index
+    static final byte SET_GLOBAL = 9;       // u16 global index
+    static final byte DEFINE_GLOBAL = 10;   // u16 global index
+
+    // Operators
+    static final byte EQUAL = 11;
+    static final byte NOT_EQUAL = 12;
+    static final byte GREATER = 13;
+    static final byte GREATER_EQUAL = 14;
+    static final byte LESS = 15;
+    static final byte LESS_EQUAL = 16;
+    static final byte ADD = 17;
+    static final byte SUBTRACT = 18;
+    static final byte MULTIPLY = 19;
+    static final byte DIVIDE = 20;
+    static final byte NOT = 21;
+    static final byte NEGATE = 22;
+
+    // Statements and control flow
+    static final byte PRINT = 23;
+    static final byte JUMP = 24;            // i32 target
+    static final byte JUMP_IF_FALSE = 25;   // i32 target, pops the condition
+    static final byte RETURN = 26;
+
+    static final byte CONSTANT_WIDE = 27;   // i32 constant index
+}
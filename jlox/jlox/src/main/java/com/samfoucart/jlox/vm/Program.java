@@ -0,0 +1,47 @@
+package com.samfoucart.jlox.vm;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import com.samfoucart.jlox.ErrorReporter;
+import com.samfoucart.jlox.Stmt;
+import com.samfoucart.jlox.output.OutputSink;
+
+/**
+ * A whole program compiled to a Chunk once, to be run many times.
+ * The chunk is never written after compiling,
+ * so any number of threads can run the program, each on its own VM.
+ */
+@NullMarked
+public final class Program {
+    private final Chunk chunk;
+    private final int globalCount;
+
+    private Program(Chunk chunk, int globalCount) {
+        this.chunk = chunk;
+        this.globalCount = globalCount;
+    }
+
+    /**
+     * Compiles resolved statements, or returns null after reporting a compile error.
+     */
+    public static @Nullable Program compile(List<Stmt> statements, ErrorReporter reporter) {
+        Map<String, Integer> globalIndexes = new HashMap<>();
+        Compiler compiler = new Compiler(globalIndexes, reporter);
+        Chunk chunk = compiler.compile(statements);
+        if (compiler.hadError()) {
+            return null;
+        }
+
+        return new Program(chunk, globalIndexes.size());
+    }
+
+    /** Runs the program with fresh globals. */
+    public void run(OutputSink out, ErrorReporter reporter) {
+        new VM(out, reporter).interpret(chunk, globalCount);
+    }
+}
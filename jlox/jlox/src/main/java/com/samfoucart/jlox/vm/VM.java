@@ -0,0 +1,272 @@
+package com.samfoucart.jlox.vm;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.samfoucart.jlox.ErrorReporter;
+import com.samfoucart.jlox.Jlox;
+import com.samfoucart.jlox.JloxRuntimeError;
+import com.samfoucart.jlox.Stmt;
+import com.samfoucart.jlox.Token;
+import com.samfoucart.jlox.Values;
+import com.samfoucart.jlox.metrics.RuntimeMetrics;
+import com.samfoucart.jlox.output.OutputSink;
+import com.samfoucart.jlox.output.PrintStreamSink;
+
+/**
+ * Stack based virtual machine for the bytecode produced by the Compiler.
+ * This is an alternative to the tree walking Interpreter
+ * with the same semantics and error messages.
+ * Globals persist between calls to interpret, like in the REPL.
+ */
+public class VM {
+    // Marks a global slot that has been allocated but not defined yet
+    private static final Object UNDEFINED = new Object();
+
+    private final Map<String, Integer> globalIndexes = new HashMap<>();
+    private Object[] globals = new Object[0];
+    private final OutputSink out;
+    private final ErrorReporter reporter;
+
+    public VM() {
+        this(new PrintStreamSink(System.out), Jlox.reporter());
+    }
+
+    public VM(OutputSink out, ErrorReporter reporter) {
+        this.out = out;
+        this.reporter = reporter;
+    }
+
+    public void interpret(List<Stmt> statements) {
+        Compiler compiler = new Compiler(globalIndexes, reporter);
+        Chunk chunk = compiler.compile(statements);
+        if (compiler.hadError()) {
+            return;
+        }
+
+        interpret(chunk);
+    }
+
+    void interpret(Chunk chunk) {
+        interpret(chunk, globalIndexes.size());
+    }
+
+    // Programs compiled ahead of time bring their own global count
+    void interpret(Chunk chunk, int globalCount) {
+        if (globals.length < globalCount) {
+            int previous = globals.length;
+            globals = Arrays.copyOf(globals, globalCount);
+            Arrays.fill(globals, previous, globals.length, UNDEFINED);
+        }
+
+        long start = System.nanoTime();
+        try {
+            run(chunk);
+        } catch (JloxRuntimeError error) {
+            reporter.runtimeError(error);
+        } finally {
+            RuntimeMetrics.get().addPhase(RuntimeMetrics.Phase.INTERPRET, System.nanoTime() - start);
+        }
+    }
+
+    private void run(Chunk chunk) {
+        final byte[] code = chunk.code();
+        final Object[] constants = chunk.constants();
+        final Object[] stack = new Object[chunk.maxStack()];
+        final Object[] globals = this.globals;
+        int sp = 0;
+        int ip = 0;
+
+        for (;;) {
+            int instruction = ip;
+            switch (code[ip++]) {
+                case OpCode.CONSTANT:
+                    stack[sp++] = constants[readShort(code, ip)];
+                    ip += 2;
+                    break;
+                case OpCode.CONSTANT_WIDE:
+                    stack[sp++] = constants[readInt(code, ip)];
+                    ip += 4;
+                    break;
+                case OpCode.NIL:
+                    stack[sp++] = null;
+                    break;
+                case OpCode.TRUE:
+                    stack[sp++] = Boolean.TRUE;
+                    break;
+                case OpCode.FALSE:
+                    stack[sp++] = Boolean.FALSE;
+                    break;
+                case OpCode.POP:
+                    stack[--sp] = null;
+                    break;
+                case OpCode.POP_N: {
+                    int count = readShort(code, ip);
+                    ip += 2;
+                    Arrays.fill(stack, sp - count, sp, null);
+                    sp -= count;
+                    break;
+                }
+                case OpCode.GET_LOCAL:
+                    stack[sp++] = stack[readShort(code, ip)];
+                    ip += 2;
+                    break;
+                case OpCode.SET_LOCAL:
+                    stack[readShort(code, ip)] = stack[sp - 1];
+                    ip += 2;
+                    break;
+                case OpCode.GET_GLOBAL: {
+                    Object value = globals[readShort(code, ip)];
+                    ip += 2;
+                    if (value == UNDEFINED) {
+                        Token name = chunk.errorToken(instruction);
+                        throw new JloxRuntimeError(name, "Undefined Variable: '" + name.lexeme + "'.");
+                    }
+                    stack[sp++] = value;
+                    break;
+                }
+                case OpCode.SET_GLOBAL: {
+                    int index = readShort(code, ip);
+                    ip += 2;
+                    if (globals[index] == UNDEFINED) {
+                        Token name = chunk.errorToken(instruction);
+                        throw new JloxRuntimeError(name, "Undefined variable '" + name.lexeme + "'.");
+                    }
+                    globals[index] = stack[sp - 1];
+                    break;
+                }
+                case OpCode.DEFINE_GLOBAL:
+                    globals[readShort(code, ip)] = stack[--sp];
+                    stack[sp] = null;
+                    ip += 2;
+                    break;
+                case OpCode.EQUAL: {
+                    Object right = stack[--sp];
+                    stack[sp - 1] = Values.isEqual(stack[sp - 1], right);
+                    break;
+                }
+                case OpCode.NOT_EQUAL: {
+                    Object right = stack[--sp];
+                    stack[sp - 1] = !Values.isEqual(stack[sp - 1], right);
+                    break;
+                }
+                case OpCode.GREATER: {
+                    Object right = stack[--sp];
+                    Object left = stack[sp - 1];
+                    if (!(left instanceof Double && right instanceof Double)) {
+                        Values.checkNumberOperands(chunk.errorToken(instruction), left, right);
+                    }
+                    stack[sp - 1] = (double) left > (double) right;
+                    break;
+                }
+                case OpCode.GREATER_EQUAL: {
+                    Object right = stack[--sp];
+                    Object left = stack[sp - 1];
+                    if (!(left instanceof Double && right instanceof Double)) {
+                        Values.checkNumberOperands(chunk.errorToken(instruction), left, right);
+                    }
+                    stack[sp - 1] = (double) left >= (double) right;
+                    break;
+                }
+                case OpCode.LESS: {
+                    Object right = stack[--sp];
+                    Object left = stack[sp - 1];
+                    if (!(left instanceof Double && right instanceof Double)) {
+                        Values.checkNumberOperands(chunk.errorToken(instruction), left, right);
+                    }
+                    stack[sp - 1] = (double) left < (double) right;
+                    break;
+                }
+                case OpCode.LESS_EQUAL: {
+                    Object right = stack[--sp];
+                    Object left = stack[sp - 1];
+                    if (!(left instanceof Double && right instanceof Double)) {
+                        Values.checkNumberOperands(chunk.errorToken(instruction), left, right);
+                    }
+                    stack[sp - 1] = (double) left <= (double) right;
+                    break;
+                }
+                case OpCode.ADD: {
+                    Object right = stack[--sp];
+                    Object left = stack[sp - 1];
+                    if (left instanceof Double && right instanceof Double) {
+                        stack[sp - 1] = (double) left + (double) right;
+                    } else {
+                        stack[sp - 1] = Values.add(left, right, chunk.errorToken(instruction));
+                    }
+                    break;
+                }
+                case OpCode.SUBTRACT: {
+                    Object right = stack[--sp];
+                    Object left = stack[sp - 1];
+                    if (!(left instanceof Double && right instanceof Double)) {
+                        Values.checkNumberOperands(chunk.errorToken(instruction), left, right);
+                    }
+                    stack[sp - 1] = (double) left - (double) right;
+                    break;
+                }
+                case OpCode.MULTIPLY: {
+                    Object right = stack[--sp];
+                    Object left = stack[sp - 1];
+                    if (!(left instanceof Double && right instanceof Double)) {
+                        Values.checkNumberOperands(chunk.errorToken(instruction), left, right);
+                    }
+                    stack[sp - 1] = (double) left * (double) right;
+                    break;
+                }
+                case OpCode.DIVIDE: {
+                    Object right = stack[--sp];
+                    Object left = stack[sp - 1];
+                    if (!(left instanceof Double && right instanceof Double)) {
+                        Values.checkNumberOperands(chunk.errorToken(instruction), left, right);
+                    }
+                    stack[sp - 1] = (double) left / (double) right;
+                    break;
+                }
+                case OpCode.NOT:
+                    stack[sp - 1] = !Values.isTruthy(stack[sp - 1]);
+                    break;
+                case OpCode.NEGATE: {
+                    Object operand = stack[sp - 1];
+                    if (!(operand instanceof Double)) {
+                        Values.checkNumberOperand(chunk.errorToken(instruction), operand);
+                    }
+                    stack[sp - 1] = - (double) operand;
+                    break;
+                }
+                case OpCode.PRINT:
+                    out.println(Values.stringify(stack[--sp]));
+                    stack[sp] = null;
+                    break;
+                case OpCode.JUMP:
+                    ip = readInt(code, ip);
+                    break;
+                case OpCode.JUMP_IF_FALSE:
+                    if (Values.isTruthy(stack[--sp])) {
+                        ip += 4;
+                    } else {
+                        ip = readInt(code, ip);
+                    }
+                    stack[sp] = null;
+                    break;
+                case OpCode.RETURN:
+                    return;
+                default:
+                    throw new IllegalStateException("Unknown opcode " + code[instruction] + " at " + instruction);
+            }
+        }
+    }
+
+    private static int readShort(byte[] code, int offset) {
+        return ((code[offset] & 0xff) << 8) | (code[offset + 1] & 0xff);
+    }
+
+    private static int readInt(byte[] code, int offset) {
+        return ((code[offset] & 0xff) << 24)
+                | ((code[offset + 1] & 0xff) << 16)
+                | ((code[offset + 2] & 0xff) << 8)
+                | (code[offset + 3] & 0xff);
+    }
+}
@@ -12,21 +12,21 @@ public class GenerateAst {
 
         String outputDir = args[0];
         defineAst(outputDir, "Expr", Arrays.asList(
-            "Assign     : Token name, Expr value",
+            "Assign     : Token name, Expr value | int depth = -1, int slot = -1",
             "Binary     : Expr left, Token operator, Expr right",
             "Grouping   : Expr expression",
             "Literal    : Object value",
             "Unary      : Token operator, Expr right",
-            "Variable   : Token name"
+            "Variable   : Token name | int depth = -1, int slot = -1"
         ));
 
         defineAst(outputDir, "Stmt", Arrays.asList(
             "Expression     : Expr expression",
             "Print          : Expr expression",
-            "Block          : List<Stmt> statements",
-            "Var            : Token name, Expr initializer",
+            "Block          : List<Stmt> statements | int slots = 0",
+            "Var            : Token name, Expr initializer | int slot = -1",
             "If             : Expr condition, Stmt truthy, Stmt falsey",
-            "While          : Expr condition, Stmt loop"
+            "While          : Expr condition, Stmt loop | int iterations = 0, int deoptimizations = 0, CompiledLoop compiled = null"
             // "Initialization : Token identifier, Expr expression",
             // "Assignment     : "
             // "VarExpression"
@@ -45,20 +45,21 @@ public class GenerateAst {
         writer.println();
         writer.println("import java.util.List;");
         writer.println();
-        writer.println("abstract class " + baseName + " {");
+        writer.println("public abstract class " + baseName + " {");
 
         defineVisitor(writer, baseName, types);
 
         // The AST classes
         for (String type : types) {
             String className = type.split(":")[0].trim();
-            String fields = type.split(":")[1].trim();
-            defineType(writer, baseName, className, fields);
+            String[] fields = type.split(":")[1].split("\\|");
+            String mutableFields = fields.length > 1 ? fields[1].trim() : "";
+            defineType(writer, baseName, className, fields[0].trim(), mutableFields);
         }
 
         // The base accept() method
         writer.println();
-        writer.println("    abstract <R> R accept(Visitor<R> visitor);");
+        writer.println("    public abstract <R> R accept(Visitor<R> visitor);");
 
         writer.println("}");
         writer.close();
@@ -68,12 +69,13 @@ public class GenerateAst {
         PrintWriter writer,
         String baseName,
         String className,
-        String fieldList
+        String fieldList,
+        String mutableFieldList
     ) {
-        writer.println("    static class " + className + " extends " + baseName + " {");
+        writer.println("    public static class " + className + " extends " + baseName + " {");
 
         // constructor
-        writer.println("        " + className + "(" + fieldList + ") {");
+        writer.println("        public " + className + "(" + fieldList + ") {");
 
         // Store parameters in fields
         String[] fields = fieldList.split(", ");
@@ -87,14 +89,21 @@ public class GenerateAst {
         // Visitor pattern
         writer.println();
         writer.println("        @Override");
-        writer.println("        <R> R accept(Visitor<R> visitor) {");
+        writer.println("        public <R> R accept(Visitor<R> visitor) {");
         writer.println("            return visitor.visit" + className + baseName + "(this);");
         writer.println("        }");
 
         // Fields
         writer.println();
         for (String field : fields) {
-            writer.println("        final " + field + ";");
+            writer.println("        public final " + field + ";");
+        }
+
+        // Fields filled in by later passes, such as the Resolver
+        if (!mutableFieldList.isEmpty()) {
+            for (String field : mutableFieldList.split(", ")) {
+                writer.println("        public " + field + ";");
+            }
         }
 
         writer.println("    }");
@@ -106,7 +115,7 @@ public class GenerateAst {
         String baseName,
         List<String> types
     ) {
-        writer.println("    interface Visitor<R> {");
+        writer.println("    public interface Visitor<R> {");
 
         for (String type : types) {
             String typeName = type.split(":")[0].trim();
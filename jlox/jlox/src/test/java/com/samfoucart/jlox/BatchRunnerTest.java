@@ -0,0 +1,80 @@
+package com.samfoucart.jlox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class BatchRunnerTest {
+    @TempDir
+    Path directory;
+
+    private Path script(String name, String source) throws IOException {
+        return Files.writeString(directory.resolve(name), source);
+    }
+
+    @Test
+    public void scriptsShouldRunInIsolationAndPrintInOrder() throws Exception {
+        // arrange
+        List<Path> scripts = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            scripts.add(script(i + ".lox", "var a = " + i + "; var i = 0; while (i < 1000) i = i + 1; print a;"));
+        }
+        scripts.add(script("undefined.lox", "print a;"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+        // act
+        int exitCode = new BatchRunner(Backend.INTERPRETER, null, false, 10, 4)
+                .run(scripts, new PrintStream(out, true), new PrintStream(err, true));
+
+        // assert
+        assertEquals("0\n1\n2\n3\n4\n5\n6\n7\n", out.toString());
+        assertTrue(err.toString().startsWith("Undefined Variable: 'a'.\n[line 1]\n"));
+        assertEquals(75, exitCode);
+    }
+
+    @Test
+    public void stackOverflowShouldOnlyFailItsScript() throws Exception {
+        // arrange
+        String nested = "(".repeat(100_000) + "1" + ")".repeat(100_000);
+        List<Path> scripts = List.of(script("deep.lox", "print " + nested + ";"), script("fine.lox", "print 1 + 2;"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+        // act
+        int exitCode = new BatchRunner(Backend.INTERPRETER, null, false, 0, 2)
+                .run(scripts, new PrintStream(out, true), new PrintStream(err, true));
+
+        // assert
+        assertEquals("3\n", out.toString());
+        assertTrue(err.toString().startsWith("Stack overflow.\n"));
+        assertEquals(75, exitCode);
+    }
+
+    @Test
+    public void syntaxErrorsShouldOnlyFailTheirScript() throws Exception {
+        // arrange
+        List<Path> scripts = List.of(script("broken.lox", "print ;"), script("fine.lox", "print 1 + 2;"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+        // act
+        int exitCode = new BatchRunner(Backend.VM, null, false, 0, 2)
+                .run(scripts, new PrintStream(out, true), new PrintStream(err, true));
+
+        // assert
+        assertEquals("3\n", out.toString());
+        assertTrue(err.toString().startsWith("[line 1] Error at ';': Expect expression.\n"));
+        assertEquals(65, exitCode);
+    }
+}
@@ -0,0 +1,60 @@
+package com.samfoucart.jlox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.samfoucart.jlox.output.MemorySink;
+
+public class DiagnosticsTest {
+    @Test
+    public void syntaxErrorsShouldBeCollectedInOrder() {
+        // arrange
+        Diagnostics diagnostics = new Diagnostics();
+
+        // act
+        new Parser(new Scanner("var = 1;\nprint (2 + ;\nprint 3", diagnostics).scanBuffer(), diagnostics).parse();
+
+        // assert
+        List<Diagnostic> all = diagnostics.all();
+        assertEquals(3, all.size());
+        assertEquals(Diagnostic.Kind.SYNTAX, all.get(0).kind);
+        assertEquals(1, all.get(0).line);
+        assertEquals(" at '='", all.get(0).where);
+        assertEquals("[line 2] Error at ';': Expect expression.", all.get(1).toString());
+        assertEquals(" at end", all.get(2).where);
+        assertTrue(diagnostics.hadError());
+    }
+
+    @Test
+    public void runtimeErrorsShouldBeCollectedAndPrinted() {
+        // arrange
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        Diagnostics diagnostics = new Diagnostics(new PrintStream(errors, true), null);
+        List<Stmt> statements = new Parser(new Scanner("print 1;\nprint -\"a\";", diagnostics).scanBuffer(), diagnostics).parse();
+        new Resolver().resolve(statements);
+
+        // act
+        new Interpreter(new MemorySink(), diagnostics).interpret(statements);
+
+        // assert
+        assertEquals(1, diagnostics.count(Diagnostic.Kind.RUNTIME));
+        assertEquals(0, diagnostics.count(Diagnostic.Kind.SYNTAX));
+        assertEquals("Operand must be a number.", diagnostics.all().get(0).message);
+        assertEquals("Operand must be a number.\n[line 2]\n", errors.toString());
+    }
+
+    @Test
+    public void runtimeErrorsShouldNotCaptureStackTraces() {
+        // act
+        JloxRuntimeError error = new JloxRuntimeError(new Token(TokenType.MINUS, "-", null, 1), "message");
+
+        // assert
+        assertEquals(0, error.getStackTrace().length);
+    }
+}
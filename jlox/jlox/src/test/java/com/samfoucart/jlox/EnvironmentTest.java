@@ -0,0 +1,81 @@
+package com.samfoucart.jlox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.ref.WeakReference;
+
+import org.junit.jupiter.api.Test;
+
+public class EnvironmentTest {
+    private Token name(String lexeme) {
+        return new Token(TokenType.IDENTIFIER, lexeme, lexeme, 1);
+    }
+
+    @Test
+    public void symbolsShouldBeInternedOnce() {
+        // arrange
+        String name = new String("counter");
+
+        // act
+        Symbol first = Symbol.of("counter");
+        Symbol second = Symbol.of(name);
+
+        // assert
+        assertSame(first, second);
+        assertSame(first, name("counter").symbol);
+    }
+
+    @Test
+    public void unusedSymbolsShouldBeCollected() throws InterruptedException {
+        // arrange
+        WeakReference<Symbol> unused = new WeakReference<>(Symbol.of(new String("onlyUsedOnce")));
+
+        // act
+        for (int i = 0; i < 50 && unused.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        // assert
+        assertNull(unused.get());
+        assertSame(Symbol.of("onlyUsedOnce"), Symbol.of(new String("onlyUsedOnce")));
+    }
+
+    @Test
+    public void valuesShouldSurviveGrowing() {
+        // arrange
+        Environment environment = new Environment();
+
+        // act
+        for (int i = 0; i < 1000; i++) {
+            environment.define("v" + i, (double) i);
+        }
+        environment.assign(name("v500"), "changed");
+
+        // assert
+        assertEquals(0.0, environment.getValue(name("v0")));
+        assertEquals(999.0, environment.getValue(name("v999")));
+        assertEquals("changed", environment.getValue(name("v500")));
+    }
+
+    @Test
+    public void nilShouldStillBeDefined() {
+        // arrange
+        Environment environment = new Environment();
+
+        // act
+        environment.define("a", null);
+
+        // assert
+        assertTrue(environment.isDefined(name("a")));
+        assertNull(environment.getValue(name("a")));
+        assertFalse(environment.isDefined(name("b")));
+        assertThrows(JloxRuntimeError.class, () -> environment.getValue(name("b")));
+        assertThrows(JloxRuntimeError.class, () -> environment.assign(name("b"), 1.0));
+    }
+}
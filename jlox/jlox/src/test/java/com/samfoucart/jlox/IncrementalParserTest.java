@@ -0,0 +1,147 @@
+package com.samfoucart.jlox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class IncrementalParserTest {
+    private static final String SOURCE =
+            "var a = 1;\n"
+            + "print a + 2;\n"
+            + "{\n"
+            + "    var b = \"text\";\n"
+            + "    // a comment\n"
+            + "    while (a < 3) a = a + 1;\n"
+            + "}\n"
+            + "if (a == 3) print a; else print -a;\n"
+            + "print !true;\n";
+
+    private static final String[] FRAGMENTS = {
+        "a", "b1", " ", "\n", ";", "{", "}", "(", ")", "1", "2.5", "\"", "\"s\"", "//", "/", "=", "==", "!",
+        "print ", "var c = 4;", "else ", "if (a) ", "while (b) ", "\n}\n", "nil", "-",
+    };
+
+    private final ErrorReporter reporter = new ErrorReporter(new PrintStream(OutputStream.nullOutputStream()));
+
+    @Test
+    public void editsShouldParseLikeTheWholeSource() {
+        // arrange
+        Random random = new Random(23);
+        for (int round = 0; round < 200; round++) {
+            IncrementalParser parser = new IncrementalParser(SOURCE, reporter);
+            StringBuilder source = new StringBuilder(SOURCE);
+
+            for (int step = 0; step < 20; step++) {
+                int offset = random.nextInt(source.length() + 1);
+                int removed = random.nextInt(Math.min(6, source.length() - offset) + 1);
+                String inserted = random.nextInt(4) == 0 ? "" : FRAGMENTS[random.nextInt(FRAGMENTS.length)];
+
+                // act
+                parser.edit(offset, removed, inserted);
+                source.replace(offset, offset + removed, inserted);
+
+                // assert
+                String edit = "round " + round + " step " + step + ": " + source;
+                assertEquals(source.toString(), parser.source(), edit);
+                assertEquals(describe(new Parser(new Scanner(source.toString(), reporter).scanTokens(), reporter).parse()),
+                        describe(parser.statements()), edit);
+            }
+        }
+    }
+
+    @Test
+    public void editsShouldOnlyParseTheStatementsTheyTouch() {
+        // arrange
+        IncrementalParser parser = new IncrementalParser(SOURCE, reporter);
+        List<Stmt> before = List.copyOf(parser.statements());
+
+        // act
+        List<Stmt> parsed = parser.edit(SOURCE.indexOf("a + 2"), 1, "someName");
+
+        // assert
+        List<Stmt> after = parser.statements();
+        assertEquals(1, parsed.size());
+        assertEquals(before.size(), after.size());
+        assertSame(before.get(0), after.get(0));
+        assertNotSame(before.get(1), after.get(1));
+        assertSame(parsed.get(0), after.get(1));
+        for (int i = 2; i < before.size(); i++) {
+            assertSame(before.get(i), after.get(i));
+        }
+    }
+
+    @Test
+    public void newLinesShouldMoveTheLinesOfLaterTokens() {
+        // arrange
+        IncrementalParser parser = new IncrementalParser(SOURCE, reporter);
+
+        // act
+        parser.edit(SOURCE.indexOf("print a + 2"), 0, "\n\n");
+
+        // assert
+        Stmt.Print last = (Stmt.Print) parser.statements().get(parser.statements().size() - 1);
+        assertEquals(11, ((Expr.Unary) last.expression).operator.line);
+    }
+
+    // Prints a tree with the line of every token in it
+    private static String describe(List<Stmt> statements) {
+        StringBuilder text = new StringBuilder();
+        for (Stmt statement : statements) {
+            text.append(describe(statement)).append('\n');
+        }
+        return text.toString();
+    }
+
+    private static String describe(Stmt stmt) {
+        if (stmt == null) {
+            return "error";
+        } else if (stmt instanceof Stmt.Expression) {
+            return "(; " + describe(((Stmt.Expression) stmt).expression) + ")";
+        } else if (stmt instanceof Stmt.Print) {
+            return "(print " + describe(((Stmt.Print) stmt).expression) + ")";
+        } else if (stmt instanceof Stmt.Var) {
+            Stmt.Var var = (Stmt.Var) stmt;
+            return "(var " + token(var.name) + " " + describe(var.initializer) + ")";
+        } else if (stmt instanceof Stmt.Block) {
+            return "{" + describe(((Stmt.Block) stmt).statements) + "}";
+        } else if (stmt instanceof Stmt.If) {
+            Stmt.If ifStmt = (Stmt.If) stmt;
+            return "(if " + describe(ifStmt.condition) + " " + describe(ifStmt.truthy) + " " + describe(ifStmt.falsey) + ")";
+        }
+
+        Stmt.While whileStmt = (Stmt.While) stmt;
+        return "(while " + describe(whileStmt.condition) + " " + describe(whileStmt.loop) + ")";
+    }
+
+    private static String describe(Expr expr) {
+        if (expr == null) {
+            return "none";
+        } else if (expr instanceof Expr.Literal) {
+            return String.valueOf(((Expr.Literal) expr).value);
+        } else if (expr instanceof Expr.Variable) {
+            return token(((Expr.Variable) expr).name);
+        } else if (expr instanceof Expr.Grouping) {
+            return "(group " + describe(((Expr.Grouping) expr).expression) + ")";
+        } else if (expr instanceof Expr.Assign) {
+            Expr.Assign assign = (Expr.Assign) expr;
+            return "(= " + token(assign.name) + " " + describe(assign.value) + ")";
+        } else if (expr instanceof Expr.Unary) {
+            Expr.Unary unary = (Expr.Unary) expr;
+            return "(" + token(unary.operator) + " " + describe(unary.right) + ")";
+        }
+
+        Expr.Binary binary = (Expr.Binary) expr;
+        return "(" + token(binary.operator) + " " + describe(binary.left) + " " + describe(binary.right) + ")";
+    }
+
+    private static String token(Token token) {
+        return token.lexeme + "@" + token.line;
+    }
+}
@@ -1,9 +1,14 @@
 package com.samfoucart.jlox;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
 
 import org.junit.jupiter.api.Test;
 
+import com.samfoucart.jlox.output.MemorySink;
+
 public class InterpreterTest {
     @Test
     public void bookSampleShouldInterpret() {
@@ -24,4 +29,59 @@ public class InterpreterTest {
         // assert
         assertEquals(-5617.41, (double) result);
     }
+
+    @Test
+    public void numericExpressionShouldEvaluateUnboxed() {
+        // arrange
+        Expr expression = parseExpression("(1 + 2) * -3 - 4 / 2");
+
+        // act
+        double result = new Interpreter().evaluateDouble(expression);
+
+        // assert
+        assertEquals(-11.0, result);
+    }
+
+    @Test
+    public void nonNumberOperandShouldReportOperator() {
+        // arrange
+        Expr expression = parseExpression("\"a\" - (1 * 2)");
+
+        // act
+        JloxRuntimeError error = assertThrows(JloxRuntimeError.class, () -> new Interpreter().evaluate(expression));
+
+        // assert
+        assertEquals("Operands must be numbers", error.getMessage());
+        assertEquals("-", error.getToken().lexeme);
+    }
+
+    @Test
+    public void loopBodiesShouldSeeFreshLocalsEveryIteration() {
+        // arrange
+        List<Stmt> statements = new Parser(new Scanner(
+                "var out = \"\";\n"
+                + "{\n"
+                + "    var n = 0;\n"
+                + "    while (n < 3) {\n"
+                + "        var seen;\n"
+                + "        { if (seen == nil) out = out + \"-\"; }\n"
+                + "        seen = n;\n"
+                + "        { n = n + 1; }\n"
+                + "    }\n"
+                + "}\n").scanTokens()).parse();
+        new Resolver().resolve(statements);
+        Interpreter interpreter = new Interpreter(new MemorySink(), Jlox.reporter());
+
+        // act
+        interpreter.interpret(statements);
+
+        // assert
+        Expr.Variable out = new Expr.Variable(new Token(TokenType.IDENTIFIER, "out", null, 1));
+        assertEquals("---", interpreter.evaluate(out));
+    }
+
+    private Expr parseExpression(String source) {
+        Stmt statement = new Parser(new Scanner(source + ";").scanTokens()).parse().get(0);
+        return ((Stmt.Expression) statement).expression;
+    }
 }
@@ -0,0 +1,121 @@
+package com.samfoucart.jlox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import com.samfoucart.jlox.output.MemorySink;
+
+public class JloxEngineTest {
+    private static final String SCRIPT =
+            "var total = 0;\n"
+            + "var i = 0;\n"
+            + "while (i < 100) {\n"
+            + "    var square = i * i;\n"
+            + "    total = total + square;\n"
+            + "    i = i + 1;\n"
+            + "}\n"
+            + "print total;\n";
+
+    private String execute(CompiledScript script) {
+        MemorySink output = new MemorySink();
+        ErrorReporter reporter = new ErrorReporter(new PrintStream(OutputStream.nullOutputStream()));
+        script.execute(output, reporter);
+        return output.text();
+    }
+
+    @Test
+    public void scriptShouldRunConcurrentlyOnEveryBackend() throws Exception {
+        for (Backend backend : Backend.values()) {
+            // arrange
+            CompiledScript script = new JloxEngine(backend, "fold", 10).compile(SCRIPT);
+            ExecutorService pool = Executors.newFixedThreadPool(4);
+
+            // act
+            List<Future<String>> outputs = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                outputs.add(pool.submit(() -> execute(script)));
+            }
+
+            // assert
+            for (Future<String> output : outputs) {
+                assertEquals("328350\n", output.get(), backend.name());
+            }
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void executionsShouldNotShareGlobals() {
+        // arrange
+        CompiledScript script = new JloxEngine(Backend.VM, null, 0).compile("var a; if (a == nil) a = 1; else a = a + 1; print a;");
+
+        // act
+        String first = execute(script);
+        String second = execute(script);
+
+        // assert
+        assertEquals("1\n", first);
+        assertEquals(first, second);
+    }
+
+    @Test
+    public void handlesShouldOnlyBeCompiledOnce() {
+        // arrange
+        CompiledScript script = new JloxEngine(Backend.HANDLES, null, 0).compile(SCRIPT);
+        execute(script);
+        ClassLoadingMXBean classes = ManagementFactory.getClassLoadingMXBean();
+        long loaded = classes.getTotalLoadedClassCount();
+
+        // act
+        for (int i = 0; i < 200; i++) {
+            assertEquals("328350\n", execute(script));
+        }
+
+        // assert
+        // Every execution used to spin its own class for the loop
+        assertTrue(classes.getTotalLoadedClassCount() - loaded < 100);
+    }
+
+    @Test
+    public void runtimeErrorsShouldBeReportedPerExecution() {
+        // arrange
+        CompiledScript script = new JloxEngine().compile("print -\"a\";");
+        ErrorReporter reporter = new ErrorReporter(new PrintStream(OutputStream.nullOutputStream()));
+
+        // act
+        boolean succeeded = script.execute(new MemorySink(), reporter);
+
+        // assert
+        assertFalse(succeeded);
+        assertTrue(reporter.hadRuntimeError());
+    }
+
+    @Test
+    public void syntaxErrorsShouldBeThrown() {
+        // act
+        JloxSyntaxError error = assertThrows(JloxSyntaxError.class,
+                () -> new JloxEngine().compile("print ;\nvar = 1;"));
+
+        // assert
+        assertEquals("[line 1] Error at ';': Expect expression.\n"
+                + "[line 2] Error at '=': Expected IDENTIFIER after token 'var'", error.getMessage());
+        assertEquals(2, error.all().size());
+        assertEquals(Diagnostic.Kind.SYNTAX, error.all().get(1).kind);
+        assertEquals(2, error.all().get(1).line);
+        assertEquals(" at '='", error.all().get(1).where);
+    }
+}
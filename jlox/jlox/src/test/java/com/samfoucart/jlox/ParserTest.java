@@ -0,0 +1,73 @@
+package com.samfoucart.jlox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class ParserTest {
+    private Expr parseExpression(String source, ErrorReporter reporter) {
+        List<Stmt> statements = new Parser(new Scanner(source, reporter).scanBuffer(), reporter).parse();
+        return ((Stmt.Expression) statements.get(0)).expression;
+    }
+
+    @Test
+    public void operatorsShouldBindByPrecedence() {
+        // arrange
+        Diagnostics diagnostics = new Diagnostics();
+
+        // act
+        Expr expr = parseExpression("1 - 2 - 3 * -4 / 5 < 6 == !true != (7 + 8);", diagnostics);
+
+        // assert
+        assertEquals("(!= (== (< (- (- 1.0 2.0) (/ (* 3.0 (- 4.0)) 5.0)) 6.0) (! true)) (group (+ 7.0 8.0)))",
+                new AstPrinter().print(expr));
+        assertEquals(0, diagnostics.all().size());
+    }
+
+    @Test
+    public void assignmentShouldBeRightAssociative() {
+        // arrange
+        Diagnostics diagnostics = new Diagnostics();
+
+        // act
+        Expr expr = parseExpression("a = b = 1 + 2;", diagnostics);
+
+        // assert
+        Expr.Assign outer = (Expr.Assign) expr;
+        Expr.Assign inner = (Expr.Assign) outer.value;
+        assertEquals("a", outer.name.lexeme);
+        assertEquals("b", inner.name.lexeme);
+        assertEquals("(+ 1.0 2.0)", new AstPrinter().print(inner.value));
+    }
+
+    @Test
+    public void assigningToAnExpressionShouldBeReported() {
+        // arrange
+        Diagnostics diagnostics = new Diagnostics();
+
+        // act
+        Expr expr = parseExpression("-1 + 2 = 3;", diagnostics);
+
+        // assert
+        assertTrue(expr instanceof Expr.Binary);
+        assertEquals("[line 1] Error at '=': Invalid assignment target.", diagnostics.all().get(0).toString());
+    }
+
+    @Test
+    public void missingOperandsShouldBeReported() {
+        // arrange
+        Diagnostics diagnostics = new Diagnostics();
+
+        // act
+        new Parser(new Scanner("print 1 *;\nprint (2;", diagnostics).scanBuffer(), diagnostics).parse();
+
+        // assert
+        assertEquals(2, diagnostics.all().size());
+        assertEquals(" at ';'", diagnostics.all().get(0).where);
+        assertEquals("Expect expression.", diagnostics.all().get(0).message);
+        assertEquals("Expect ')' after expression.", diagnostics.all().get(1).message);
+    }
+}
@@ -0,0 +1,91 @@
+package com.samfoucart.jlox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class ResolverTest {
+    private List<Stmt> resolve(String source) {
+        List<Stmt> statements = new Parser(new Scanner(source).scanTokens()).parse();
+        new Resolver().resolve(statements);
+        return statements;
+    }
+
+    @Test
+    public void globalsShouldStayUnresolved() {
+        // arrange
+        List<Stmt> statements = resolve("var a = 1; print a;");
+
+        // act
+        Expr.Variable variable = (Expr.Variable) ((Stmt.Print) statements.get(1)).expression;
+
+        // assert
+        assertEquals(-1, variable.depth);
+        assertEquals(-1, variable.slot);
+    }
+
+    @Test
+    public void localsShouldBindToDepthAndSlot() {
+        // arrange
+        List<Stmt> statements = resolve("{ var a = 1; var b = 2; { var c; print b; } }");
+
+        // act
+        Stmt.Block outer = (Stmt.Block) statements.get(0);
+        Stmt.Block inner = (Stmt.Block) outer.statements.get(2);
+        Expr.Variable variable = (Expr.Variable) ((Stmt.Print) inner.statements.get(1)).expression;
+
+        // assert
+        assertEquals(1, variable.depth);
+        assertEquals(1, variable.slot);
+    }
+
+    @Test
+    public void blocksWithoutDeclarationsShouldNotBeScopes() {
+        // arrange
+        List<Stmt> statements = resolve("{ var a = 1; while (a < 2) { a = a + 1; } }");
+
+        // act
+        Stmt.Block outer = (Stmt.Block) statements.get(0);
+        Stmt.While loop = (Stmt.While) outer.statements.get(1);
+        Expr.Assign assign = (Expr.Assign) ((Stmt.Expression) ((Stmt.Block) loop.loop).statements.get(0)).expression;
+
+        // assert
+        assertEquals(0, ((Stmt.Block) loop.loop).slots);
+        assertEquals(0, assign.depth);
+        assertEquals(0, assign.slot);
+    }
+
+    @Test
+    public void blocksShouldBeSizedByTheirDeclarations() {
+        // arrange
+        List<Stmt> statements = resolve("{ var a = 1; var b = 2; var a = 3; { print b; } }");
+
+        // act
+        Stmt.Block outer = (Stmt.Block) statements.get(0);
+        Stmt.Block inner = (Stmt.Block) outer.statements.get(3);
+
+        // assert
+        assertEquals(2, outer.slots);
+        assertEquals(0, inner.slots);
+        assertEquals(0, ((Stmt.Var) outer.statements.get(2)).slot);
+    }
+
+    @Test
+    public void initializerShouldReadEnclosingVariable() {
+        // arrange
+        List<Stmt> statements = resolve("var a = 5; { var a = a + 2; a = 3; }");
+
+        // act
+        Stmt.Block block = (Stmt.Block) statements.get(1);
+        Stmt.Var var = (Stmt.Var) block.statements.get(0);
+        Expr.Variable initializer = (Expr.Variable) ((Expr.Binary) var.initializer).left;
+        Expr.Assign assign = (Expr.Assign) ((Stmt.Expression) block.statements.get(1)).expression;
+
+        // assert
+        assertEquals(-1, initializer.depth);
+        assertEquals(0, assign.depth);
+        assertEquals(0, assign.slot);
+    }
+}
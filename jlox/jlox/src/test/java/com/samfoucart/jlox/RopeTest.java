@@ -0,0 +1,70 @@
+package com.samfoucart.jlox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class RopeTest {
+    private static final String LONG = "x".repeat(Rope.MIN_LENGTH);
+
+    @Test
+    public void shortConcatenationsShouldStayStrings() {
+        // act
+        Object value = Values.concat("ab", "cd");
+
+        // assert
+        assertEquals("abcd", value);
+    }
+
+    @Test
+    public void ropesShouldNotSeeLaterAppends() {
+        // arrange
+        Object prefix = Values.concat(LONG, "a");
+
+        // act
+        Object first = Values.concat(prefix, "b");
+        Object second = Values.concat(prefix, "c");
+        Object third = Values.concat(first, "d");
+
+        // assert
+        assertTrue(first instanceof Rope);
+        assertEquals(LONG + "a", Values.stringify(prefix));
+        assertEquals(LONG + "ab", Values.stringify(first));
+        assertEquals(LONG + "ac", Values.stringify(second));
+        assertEquals(LONG + "abd", Values.stringify(third));
+    }
+
+    @Test
+    public void equalityShouldCompareCharactersAcrossRepresentations() {
+        // arrange
+        Object rope = Values.concat(LONG, "a");
+        Object other = Values.concat(Values.concat(LONG, ""), "a");
+
+        // act
+        boolean withString = Values.isEqual(rope, LONG + "a");
+        boolean fromString = Values.isEqual(LONG + "a", rope);
+        boolean withRope = Values.isEqual(rope, other);
+
+        // assert
+        assertTrue(withString);
+        assertTrue(fromString);
+        assertTrue(withRope);
+        assertFalse(Values.isEqual(rope, LONG));
+        assertFalse(Values.isEqual(rope, null));
+        assertFalse(Values.isEqual(rope, 1.0));
+    }
+
+    @Test
+    public void appendingToItselfShouldDoubleTheText() {
+        // arrange
+        Object rope = Values.concat(LONG, "a");
+
+        // act
+        Object doubled = Values.concat(rope, rope);
+
+        // assert
+        assertEquals(LONG + "a" + LONG + "a", Values.stringify(doubled));
+    }
+}
@@ -1,10 +1,238 @@
 package com.samfoucart.jlox;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.jupiter.api.Test;
 
+import com.samfoucart.jlox.output.MemorySink;
+
 public class ScannerTest {
     @Test
     public void shouldScanSimpleTokens() {
 
     }
+
+    @Test
+    public void readerShouldMatchString() {
+        // arrange
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            source.append("var a").append(i).append(" = ").append(i).append(".5 >= \"s\"; // comment\n");
+        }
+
+        // act
+        List<Token> expected = new Scanner(source.toString()).scanTokens();
+        List<Token> actual = new Scanner(new StringReader(source.toString())).scanTokens();
+
+        // assert
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).toString(), actual.get(i).toString());
+        }
+    }
+
+    @Test
+    public void readerShouldKeepLexemesLongerThanTheBuffer() {
+        // arrange
+        String text = "x".repeat(100_000);
+
+        // act
+        List<Token> tokens = new Scanner(new StringReader("print \"" + text + "\";")).scanTokens();
+
+        // assert
+        assertEquals(text, tokens.get(1).literal);
+        assertEquals(TokenType.SEMICOLON, tokens.get(2).type);
+    }
+
+    @Test
+    public void readerBufferShouldKeepTokensAcrossRefills() {
+        // arrange
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; source.length() < 100_000; i++) {
+            source.append("var a").append(i).append(" = ").append(i).append(".25 + \"s").append(i)
+                    .append("\";\nif (a").append(i).append(" != nil) print -a").append(i).append(" / 2; // comment\n");
+        }
+
+        // act
+        List<Token> expected = new Scanner(source.toString()).scanTokens();
+        TokenBuffer actual = new Scanner(new StringReader(source.toString())).scanBuffer();
+
+        // assert
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).toString(), actual.token(i).toString());
+            assertEquals(expected.get(i).line, actual.line(i));
+        }
+        assertSame(actual.token(1).symbol, actual.token(9).symbol);
+    }
+
+    @Test
+    public void parserShouldPullTokensFromScanner() {
+        // arrange
+        Parser parser = new Parser(new Scanner(new StringReader("var a = 1; print a;")));
+
+        // act
+        Stmt first = parser.parseDeclaration();
+        Stmt second = parser.parseDeclaration();
+
+        // assert
+        assertEquals(Stmt.Var.class, first.getClass());
+        assertEquals(Stmt.Print.class, second.getClass());
+        assertEquals(true, parser.isAtEnd());
+    }
+
+    @Test
+    public void statementsShouldRunBeforeTheNextOneIsRead() {
+        // arrange
+        MemorySink output = new MemorySink();
+        List<String> printedBeforeRead = new ArrayList<>();
+        String[] lines = {"print 1;\n", "print 2;\n"};
+        // Like stdin, each read waits for the next line, which must not be needed to run the one before
+        Reader input = new Reader() {
+            private int reads = 0;
+
+            @Override
+            public int read(char[] buffer, int offset, int length) {
+                if (reads == lines.length) {
+                    return -1;
+                }
+
+                printedBeforeRead.add(output.text());
+                String line = lines[reads++];
+                line.getChars(0, line.length(), buffer, offset);
+                return line.length();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        ErrorReporter reporter = new ErrorReporter(new PrintStream(OutputStream.nullOutputStream()));
+        Parser parser = new Parser(new Scanner(input, reporter), reporter);
+        Interpreter interpreter = new Interpreter(output, reporter);
+
+        // act
+        while (!parser.isAtEnd()) {
+            List<Stmt> statement = List.of(parser.parseDeclaration());
+            new Resolver().resolve(statement);
+            interpreter.interpret(statement);
+        }
+
+        // assert
+        assertEquals(List.of("", "1\n"), printedBeforeRead);
+        assertEquals("1\n2\n", output.text());
+    }
+
+    @Test
+    public void bytesShouldMatchString() {
+        // arrange
+        String source = "var a = 1.25;\nwhile (a <= 10) { a = a * 2; } // done\nprint \"a\" + \"b\";";
+
+        // act
+        List<Token> expected = new Scanner(source).scanTokens();
+        List<Token> actual = new ByteScanner(ByteBuffer.wrap(source.getBytes(StandardCharsets.UTF_8))).scanTokens();
+
+        // assert
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).toString(), actual.get(i).toString());
+        }
+    }
+
+    @Test
+    public void bytesShouldDecodeUtf8Strings() {
+        // arrange
+        byte[] source = "print \"h\u00e9llo \u2603\";".getBytes(StandardCharsets.UTF_8);
+
+        // act
+        List<Token> tokens = new ByteScanner(ByteBuffer.wrap(source)).scanTokens();
+
+        // assert
+        assertEquals("h\u00e9llo \u2603", tokens.get(1).literal);
+        assertEquals(TokenType.SEMICOLON, tokens.get(2).type);
+    }
+
+    @Test
+    public void bufferShouldMatchTokens() {
+        // arrange
+        String source = "var name = \"lox\";\nif (name != nil) print 1.5 + 2; else { var x; }";
+
+        // act
+        List<Token> expected = new Scanner(source).scanTokens();
+        TokenBuffer fromChars = new Scanner(source).scanBuffer();
+        TokenBuffer fromBytes = new ByteScanner(ByteBuffer.wrap(source.getBytes(StandardCharsets.UTF_8))).scanBuffer();
+
+        // assert
+        assertEquals(expected.size(), fromChars.size());
+        assertEquals(expected.size(), fromBytes.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).toString(), fromChars.token(i).toString());
+            assertEquals(expected.get(i).toString(), fromBytes.token(i).toString());
+        }
+    }
+
+    @Test
+    public void parserShouldReadTokenBuffer() {
+        // arrange
+        String source = "var a = 1; { a = a * (2 + -a); print a == 3; } while (!a) a = nil;";
+
+        // act
+        List<Stmt> expected = new Parser(new Scanner(source).scanTokens()).parse();
+        List<Stmt> actual = new Parser(new Scanner(source).scanBuffer()).parse();
+
+        // assert
+        assertEquals(expected.size(), actual.size());
+        Stmt.Var first = (Stmt.Var) actual.get(0);
+        assertEquals("a", first.name.lexeme);
+        assertEquals(1.0, ((Expr.Literal) first.initializer).value);
+        Stmt.Block block = (Stmt.Block) actual.get(1);
+        Expr.Assign assign = (Expr.Assign) ((Stmt.Expression) block.statements.get(0)).expression;
+        Expr.Binary product = (Expr.Binary) assign.value;
+        assertEquals(TokenType.STAR, product.operator.type);
+        assertEquals("a", ((Expr.Variable) product.left).name.lexeme);
+        assertEquals(Expr.Grouping.class, product.right.getClass());
+    }
+
+    @Test
+    public void shouldRecognizeKeywordsInPlace() {
+        // arrange
+        String source = "and class else false for function if nil or print return super this true var while "
+                + "an classy els fals fo functions i nill ore prin returns supe thus tru va whiles truth t";
+
+        // act
+        List<Token> tokens = new Scanner(source).scanTokens();
+
+        // assert
+        for (int i = 0; i < 16; i++) {
+            assertEquals(tokens.get(i).lexeme.toUpperCase(), tokens.get(i).type.name());
+        }
+        for (int i = 16; i < tokens.size() - 1; i++) {
+            assertEquals(TokenType.IDENTIFIER, tokens.get(i).type);
+        }
+    }
+
+    @Test
+    public void identifiersShouldBeInterned() {
+        // arrange
+        String source = "count = count + 1;";
+
+        // act
+        List<Token> chars = new Scanner(source).scanTokens();
+        List<Token> bytes = new ByteScanner(ByteBuffer.wrap(source.getBytes(StandardCharsets.UTF_8))).scanTokens();
+
+        // assert
+        assertSame(chars.get(0).lexeme, chars.get(2).lexeme);
+        assertSame(bytes.get(0).lexeme, bytes.get(2).lexeme);
+        assertEquals("count", bytes.get(2).lexeme);
+    }
 }
@@ -0,0 +1,18 @@
+package com.samfoucart.jlox;
+
+import java.util.List;
+
+/**
+ * Turns Lox source into the resolved statements every backend runs,
+ * for tests that compare backends on the same program.
+ */
+public final class TestPrograms {
+    private TestPrograms() {
+    }
+
+    public static List<Stmt> parse(String source) {
+        List<Stmt> statements = new Parser(new Scanner(source).scanTokens()).parse();
+        new Resolver().resolve(statements);
+        return statements;
+    }
+}
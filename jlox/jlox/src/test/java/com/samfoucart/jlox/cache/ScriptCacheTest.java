@@ -0,0 +1,109 @@
+package com.samfoucart.jlox.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.samfoucart.jlox.ErrorReporter;
+import com.samfoucart.jlox.Interpreter;
+import com.samfoucart.jlox.Parser;
+import com.samfoucart.jlox.Resolver;
+import com.samfoucart.jlox.Scanner;
+import com.samfoucart.jlox.Stmt;
+import com.samfoucart.jlox.output.MemorySink;
+
+public class ScriptCacheTest {
+    private static final String SOURCE =
+            "var greeting = \"héllo\";\n"
+            + "var i = 0;\n"
+            + "{\n"
+            + "    var local = 2.5;\n"
+            + "    while (i < 3) {\n"
+            + "        if (i == 1) print greeting; else print -local * i;\n"
+            + "        i = i + 1;\n"
+            + "    }\n"
+            + "    local = nil;\n"
+            + "    print !true == false;\n"
+            + "}\n"
+            + "print greeting + (\"!\");\n"
+            + "var empty;\n"
+            + "print empty;\n";
+
+    @TempDir
+    Path directory;
+
+    private List<Stmt> resolve(String source) {
+        List<Stmt> statements = new Parser(new Scanner(source).scanTokens()).parse();
+        new Resolver().resolve(statements);
+        return statements;
+    }
+
+    private String run(List<Stmt> statements) {
+        MemorySink output = new MemorySink();
+        new Interpreter(output, new ErrorReporter(System.err)).interpret(statements);
+        return output.text();
+    }
+
+    private ByteBuffer bytes(String source) {
+        return ByteBuffer.wrap(source.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void loadedTreeShouldRunLikeTheParsedOne() throws IOException {
+        // arrange
+        ScriptCache cache = new ScriptCache(directory);
+        String key = cache.key(bytes(SOURCE), "");
+        cache.store(key, resolve(SOURCE));
+
+        // act
+        List<Stmt> loaded = cache.load(key);
+
+        // assert
+        assertNotNull(loaded);
+        assertEquals(run(resolve(SOURCE)), run(loaded));
+    }
+
+    @Test
+    public void keyShouldDependOnSourceAndSettings() {
+        // arrange
+        ScriptCache cache = new ScriptCache(directory);
+
+        // act
+        String key = cache.key(bytes(SOURCE), "");
+
+        // assert
+        assertEquals(key, cache.key(bytes(SOURCE), ""));
+        assertNotEquals(key, cache.key(bytes(SOURCE + " "), ""));
+        assertNotEquals(key, cache.key(bytes(SOURCE), "fold"));
+    }
+
+    @Test
+    public void corruptEntriesShouldMiss() throws IOException {
+        // arrange
+        ScriptCache cache = new ScriptCache(directory);
+        String key = cache.key(bytes(SOURCE), "");
+        cache.store(key, resolve(SOURCE));
+        Path entry = directory.resolve(key + ".loxc");
+        byte[] contents = Files.readAllBytes(entry);
+        Files.write(entry, Arrays.copyOf(contents, contents.length / 2));
+
+        // act
+        List<Stmt> loaded = cache.load(key);
+
+        // assert
+        assertNull(loaded);
+        assertNull(cache.load("missing"));
+    }
+}
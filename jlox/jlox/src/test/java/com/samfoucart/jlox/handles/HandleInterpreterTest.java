@@ -0,0 +1,72 @@
+package com.samfoucart.jlox.handles;
+
+import static com.samfoucart.jlox.TestPrograms.parse;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.samfoucart.jlox.ErrorReporter;
+import com.samfoucart.jlox.Expr;
+import com.samfoucart.jlox.Interpreter;
+import com.samfoucart.jlox.Stmt;
+import com.samfoucart.jlox.output.MemorySink;
+
+public class HandleInterpreterTest {
+    @Test
+    public void loopShouldMatchInterpreter() {
+        // arrange
+        List<Stmt> statements = parse(
+                "var i = 0; var text = \"\";\n"
+                + "while (i < 5) { var j = i * 2; text = text + \"x\"; if (j >= 4) print j / 2; i = i + 1; }\n"
+                + "{ var k; while (!(i <= 0)) { i = i - 1; k = i; } print k; }\n"
+                + "print text; print i == 5; print -i; print nil != false;");
+        ErrorReporter reporter = new ErrorReporter(new PrintStream(OutputStream.nullOutputStream()));
+        MemorySink expected = new MemorySink();
+        MemorySink actual = new MemorySink();
+
+        // act
+        new Interpreter(expected, reporter).interpret(statements);
+        new HandleInterpreter(actual, reporter).interpret(statements);
+
+        // assert
+        assertEquals(expected.text(), actual.text());
+    }
+
+    @Test
+    public void runtimeErrorsShouldStopAfterEarlierOutput() {
+        // arrange
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        ErrorReporter reporter = new ErrorReporter(new PrintStream(errors, true));
+        MemorySink output = new MemorySink();
+        HandleInterpreter interpreter = new HandleInterpreter(output, reporter);
+
+        // act
+        interpreter.interpret(parse("var a = 1;\nprint a;\nprint a - \"b\";\nprint 2;"));
+        interpreter.interpret(parse("print a;"));
+
+        // assert
+        assertEquals("1\n1\n", output.text());
+        assertTrue(reporter.hadRuntimeError());
+        assertEquals("Operands must be numbers\n[line 3]\n", errors.toString());
+    }
+
+    @Test
+    public void numberExpressionsShouldNotBox() {
+        // arrange
+        Stmt.Print stmt = (Stmt.Print) parse("print -(1 + 2) * 3 < 4;").get(0);
+
+        // act
+        HandleCompiler compiler = new HandleCompiler();
+        MethodHandle comparison = compiler.visitBinaryExpr((Expr.Binary) stmt.expression);
+
+        // assert
+        assertEquals(boolean.class, comparison.type().returnType());
+    }
+}
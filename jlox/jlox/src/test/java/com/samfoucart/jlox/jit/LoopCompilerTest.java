@@ -0,0 +1,92 @@
+package com.samfoucart.jlox.jit;
+
+import static com.samfoucart.jlox.TestPrograms.parse;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.samfoucart.jlox.ErrorReporter;
+import com.samfoucart.jlox.Interpreter;
+import com.samfoucart.jlox.Stmt;
+import com.samfoucart.jlox.output.MemorySink;
+
+public class LoopCompilerTest {
+    private static final String LOOP =
+            "var total = 0;\n"
+            + "var label = \"\";\n"
+            + "var i = 0;\n"
+            + "while (i < 10) {\n"
+            + "    var square = i * i;\n"
+            + "    if (square > 20) total = total + square; else total = total - 1;\n"
+            + "    if (i == 5) label = label + \"five\";\n"
+            + "    i = i + 1;\n"
+            + "}\n"
+            + "print total;\n"
+            + "print label;\n"
+            + "print i;\n";
+
+    private final ErrorReporter reporter = new ErrorReporter(new PrintStream(OutputStream.nullOutputStream()));
+
+    private Interpreter jit(MemorySink output) {
+        Interpreter interpreter = new Interpreter(output, reporter);
+        interpreter.setJitThreshold(1);
+        return interpreter;
+    }
+
+    @Test
+    public void compiledLoopShouldMatchInterpreter() {
+        // arrange
+        List<Stmt> statements = parse(LOOP);
+        MemorySink expected = new MemorySink();
+        MemorySink actual = new MemorySink();
+
+        // act
+        new Interpreter(expected, reporter).interpret(statements);
+        jit(actual).interpret(statements);
+
+        // assert
+        assertEquals("250\nfive\n10\n", expected.text());
+        assertEquals(expected.text(), actual.text());
+        assertNotNull(((Stmt.While) statements.get(3)).compiled);
+    }
+
+    @Test
+    public void changedTypesShouldFallBackToInterpreter() {
+        // arrange
+        List<Stmt> loop = parse("while (n < 3) { n = n + 1; print n; }");
+        Stmt.While compiled = (Stmt.While) loop.get(0);
+        MemorySink output = new MemorySink();
+        Interpreter interpreter = jit(output);
+
+        // act
+        interpreter.interpret(parse("var n = 0;"));
+        interpreter.interpret(loop);
+        interpreter.interpret(parse("n = \"a\";"));
+        interpreter.interpret(loop);
+
+        // assert
+        assertEquals("1\n2\n3\n", output.text().substring(0, 6));
+        assertNull(compiled.compiled);
+        assertEquals(1, compiled.deoptimizations);
+    }
+
+    @Test
+    public void valuesShouldSurviveRuntimeErrors() {
+        // arrange
+        MemorySink output = new MemorySink();
+        Interpreter interpreter = jit(output);
+
+        // act
+        interpreter.interpret(parse("var n = 0; var m = 0; while (n < 10) { n = n + 1; m = n - \"x\"; }"));
+        interpreter.interpret(parse("print n;"));
+
+        // assert
+        assertEquals("1\n", output.text());
+    }
+}
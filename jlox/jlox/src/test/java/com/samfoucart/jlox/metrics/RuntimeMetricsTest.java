@@ -0,0 +1,104 @@
+package com.samfoucart.jlox.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.Test;
+
+import com.samfoucart.jlox.ErrorReporter;
+import com.samfoucart.jlox.Interpreter;
+import com.samfoucart.jlox.Parser;
+import com.samfoucart.jlox.Resolver;
+import com.samfoucart.jlox.Scanner;
+import com.samfoucart.jlox.Stmt;
+import com.samfoucart.jlox.output.MemorySink;
+
+public class RuntimeMetricsTest {
+    private static final String SOURCE =
+            "var i = 0;\n"
+            + "{\n"
+            + "    var a = 1;\n"
+            + "    while (i < 2) {\n"
+            + "        var b = a;\n"
+            + "        i = i + b;\n"
+            + "    }\n"
+            + "}\n";
+
+    private final ErrorReporter reporter = new ErrorReporter(new PrintStream(OutputStream.nullOutputStream()));
+
+    private List<Stmt> parse(String source) {
+        List<Stmt> statements = new Parser(new Scanner(source, reporter).scanBuffer(), reporter).parse();
+        new Resolver().resolve(statements);
+        return statements;
+    }
+
+    @Test
+    public void interpretersShouldAddTheirCounts() throws Exception {
+        // arrange
+        RuntimeMetrics metrics = RuntimeMetrics.get();
+        List<Stmt> statements = parse(SOURCE);
+        metrics.reset();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+
+        // act
+        for (int i = 0; i < 8; i++) {
+            pool.submit(() -> new Interpreter(new MemorySink(), reporter).interpret(statements));
+        }
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+
+        // assert
+        // var, the block, var, the loop, then var and the assignment on both iterations
+        assertEquals(8 * 8, metrics.getStatementsExecuted());
+        // The globals, the block, and one frame reused by every iteration of the loop
+        assertEquals(8 * 3, metrics.getEnvironmentsCreated());
+        // a from the loop body, b in it
+        assertEquals(8 * 2 * 2, metrics.getLocalLookups());
+        assertEquals(0.5, metrics.getAverageScopeDepth());
+        assertEquals(1, metrics.getMaxScopeDepth());
+        assertEquals(8, metrics.getInterpretCount());
+    }
+
+    @Test
+    public void runtimeErrorsAndPhasesShouldBeCounted() {
+        // arrange
+        RuntimeMetrics metrics = RuntimeMetrics.get();
+        metrics.reset();
+
+        // act
+        new Interpreter(new MemorySink(), reporter).interpret(parse("print -\"a\";"));
+
+        // assert
+        assertEquals(1, metrics.getRuntimeErrors());
+        assertEquals(1, metrics.getScanCount());
+        assertEquals(1, metrics.getParseCount());
+        assertTrue(metrics.getParseMillis() >= 0);
+    }
+
+    @Test
+    public void metricsShouldBeReadableThroughJmx() throws Exception {
+        // arrange
+        RuntimeMetrics.register();
+        RuntimeMetrics.register();
+        RuntimeMetrics.get().reset();
+        new Interpreter(new MemorySink(), reporter).interpret(parse("var a = 1; print a;"));
+
+        // act
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        Object executed = server.getAttribute(new ObjectName(RuntimeMetrics.OBJECT_NAME), "StatementsExecuted");
+
+        // assert
+        assertEquals(2L, executed);
+    }
+}
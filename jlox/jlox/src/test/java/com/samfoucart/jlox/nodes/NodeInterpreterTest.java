@@ -0,0 +1,59 @@
+package com.samfoucart.jlox.nodes;
+
+import static com.samfoucart.jlox.TestPrograms.parse;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.samfoucart.jlox.Environment;
+import com.samfoucart.jlox.ErrorReporter;
+import com.samfoucart.jlox.Interpreter;
+import com.samfoucart.jlox.Stmt;
+import com.samfoucart.jlox.output.MemorySink;
+
+public class NodeInterpreterTest {
+    private final ErrorReporter reporter = new ErrorReporter(new PrintStream(OutputStream.nullOutputStream()));
+
+    @Test
+    public void loopShouldMatchInterpreter() {
+        // arrange
+        List<Stmt> statements = parse(
+                "var i = 0; var text = \"\";\n"
+                + "while (i < 5) { var j = i * 2; text = text + \"x\"; if (j >= 4) print j / 2; i = i + 1; }\n"
+                + "print text; print i == 5; print -i;");
+        MemorySink expected = new MemorySink();
+        MemorySink actual = new MemorySink();
+
+        // act
+        new Interpreter(expected, reporter).interpret(statements);
+        new NodeInterpreter(actual, reporter).interpret(statements);
+
+        // assert
+        assertEquals(expected.text(), actual.text());
+    }
+
+    @Test
+    public void additionShouldSpecializeThenGeneralize() {
+        // arrange
+        Environment globals = new Environment();
+        globals.define("a", 1.0);
+        Stmt.Expression stmt = (Stmt.Expression) parse("a + a;").get(0);
+        ExpressionNode statement = new ExpressionNode(new NodeBuilder(globals, new MemorySink()).build(stmt.expression));
+
+        // act
+        statement.execute(null);
+        ExprNode specialized = statement.expression;
+        globals.define("a", "text");
+        statement.execute(null);
+        ExprNode generalized = statement.expression;
+
+        // assert
+        assertTrue(specialized instanceof BinaryNode.NumberAdd);
+        assertTrue(generalized instanceof BinaryNode.Generic);
+    }
+}
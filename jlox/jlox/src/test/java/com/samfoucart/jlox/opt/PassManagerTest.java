@@ -0,0 +1,86 @@
+package com.samfoucart.jlox.opt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.samfoucart.jlox.Expr;
+import com.samfoucart.jlox.Parser;
+import com.samfoucart.jlox.Scanner;
+import com.samfoucart.jlox.Stmt;
+
+public class PassManagerTest {
+    private List<Stmt> optimize(String source) {
+        List<Stmt> statements = new Parser(new Scanner(source).scanTokens()).parse();
+        return PassManager.fromNames(PassManager.DEFAULT_PASSES).run(statements);
+    }
+
+    @Test
+    public void constantExpressionShouldFold() {
+        // act
+        List<Stmt> statements = optimize("print (1 + 2) * 3 == 9;");
+
+        // assert
+        Expr expression = ((Stmt.Print) statements.get(0)).expression;
+        assertTrue(expression instanceof Expr.Literal);
+        assertEquals(true, ((Expr.Literal) expression).value);
+    }
+
+    @Test
+    public void failingOperationShouldNotFold() {
+        // act
+        List<Stmt> statements = optimize("print (1 - \"a\");");
+
+        // assert
+        Expr expression = ((Stmt.Print) statements.get(0)).expression;
+        assertTrue(expression instanceof Expr.Binary);
+    }
+
+    @Test
+    public void constantBranchesShouldBePruned() {
+        // act
+        List<Stmt> statements = optimize("if (false) print 1; else print 2; while (!true) print 3; if (1 > 2) print 4;");
+
+        // assert
+        assertEquals(1, statements.size());
+        Stmt.Print print = (Stmt.Print) statements.get(0);
+        assertEquals(2.0, ((Expr.Literal) print.expression).value);
+    }
+
+    @Test
+    public void unreadLocalsShouldBeRemoved() {
+        // act
+        List<Stmt> statements = optimize("var g = 1; { var a = 1; var b = 2; var c = g = 3; print b; }");
+
+        // assert
+        Stmt.Block block = (Stmt.Block) statements.get(1);
+        assertTrue(statements.get(0) instanceof Stmt.Var);
+        assertEquals(3, block.statements.size());
+        assertTrue(block.statements.get(0) instanceof Stmt.Var);
+        assertTrue(block.statements.get(1) instanceof Stmt.Expression);
+    }
+
+    @Test
+    public void statisticsShouldOnlyBeKeptWhenAsked() {
+        // arrange
+        PassManager quiet = PassManager.fromNames(PassManager.DEFAULT_PASSES);
+        PassManager counting = PassManager.fromNames(PassManager.DEFAULT_PASSES, true);
+        ByteArrayOutputStream quietOutput = new ByteArrayOutputStream();
+        ByteArrayOutputStream countingOutput = new ByteArrayOutputStream();
+
+        // act
+        quiet.run(new Parser(new Scanner("print 1 + 2;").scanTokens()).parse());
+        counting.run(new Parser(new Scanner("print 1 + 2;").scanTokens()).parse());
+        quiet.printStatistics(new PrintStream(quietOutput, true));
+        counting.printStatistics(new PrintStream(countingOutput, true));
+
+        // assert
+        assertEquals("", quietOutput.toString());
+        assertTrue(countingOutput.toString().contains("[optimizer] nodes: 4 before, 2 after"));
+    }
+}
@@ -0,0 +1,129 @@
+package com.samfoucart.jlox.output;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import com.samfoucart.jlox.ErrorReporter;
+
+public class BufferedSinkTest {
+    private static final String NEWLINE = System.lineSeparator();
+
+    @Test
+    public void linesShouldWaitForFlushOnExit() {
+        // arrange
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        BufferedSink sink = BufferedSink.flushOnExit(Channels.newChannel(output), StandardCharsets.UTF_8);
+
+        // act
+        sink.println("one");
+        sink.println("two");
+        int pending = output.size();
+        sink.close();
+
+        // assert
+        assertEquals(0, pending);
+        assertEquals("one" + NEWLINE + "two" + NEWLINE, output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void failedWritesShouldBeRecordedInsteadOfThrown() {
+        // arrange
+        int[] writes = {0};
+        OutputStream closedPipe = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                writes[0]++;
+                throw new IOException("Broken pipe");
+            }
+        };
+        BufferedSink sink = BufferedSink.flushBySize(Channels.newChannel(closedPipe), StandardCharsets.UTF_8, 8);
+        boolean before = sink.checkError();
+
+        // act
+        for (int i = 0; i < 100; i++) {
+            sink.println("line " + i);
+        }
+        sink.close();
+
+        // assert
+        assertFalse(before);
+        assertTrue(sink.checkError());
+        assertEquals(1, writes[0]);
+    }
+
+    @Test
+    public void linesShouldBeWrittenOnceEnoughArePending() {
+        // arrange
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        BufferedSink sink = BufferedSink.flushBySize(Channels.newChannel(output), StandardCharsets.UTF_8, 32);
+
+        // act
+        for (int i = 0; i < 10; i++) {
+            sink.println("line " + i);
+        }
+
+        // assert
+        String written = output.toString(StandardCharsets.UTF_8);
+        assertEquals(true, written.length() >= 32 && written.length() < 10 * ("line 0" + NEWLINE).length());
+        sink.close();
+        assertEquals(10 * ("line 0" + NEWLINE).length(), output.size());
+    }
+
+    @Test
+    public void nonAsciiAndLongLinesShouldBeEncoded() {
+        // arrange
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        BufferedSink sink = BufferedSink.flushBySize(Channels.newChannel(output), StandardCharsets.UTF_8, 64);
+        String long_ = "é".repeat(100) + "x".repeat(100);
+
+        // act
+        sink.println("héllo wörld");
+        sink.println(long_);
+        sink.close();
+
+        // assert
+        assertEquals("héllo wörld" + NEWLINE + long_ + NEWLINE, output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void linesShouldBeWrittenByTime() throws InterruptedException {
+        // arrange
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        BufferedSink sink = BufferedSink.flushByTime(Channels.newChannel(output), StandardCharsets.UTF_8, 10);
+
+        // act
+        sink.println("tick");
+        for (int i = 0; i < 200 && output.size() == 0; i++) {
+            Thread.sleep(10);
+        }
+        sink.close();
+
+        // assert
+        assertEquals("tick" + NEWLINE, output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void errorsShouldFlushOutputFirst() {
+        // arrange
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        BufferedSink sink = BufferedSink.flushOnExit(Channels.newChannel(output), StandardCharsets.UTF_8);
+        ErrorReporter reporter = new ErrorReporter(new PrintStream(OutputStream.nullOutputStream()), sink);
+        sink.println("before");
+
+        // act
+        reporter.error(1, "Unexpected character.");
+
+        // assert
+        assertEquals("before" + NEWLINE, output.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,133 @@
+package com.samfoucart.jlox.profile;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.samfoucart.jlox.ErrorReporter;
+import com.samfoucart.jlox.Parser;
+import com.samfoucart.jlox.Resolver;
+import com.samfoucart.jlox.Scanner;
+import com.samfoucart.jlox.Stmt;
+import com.samfoucart.jlox.output.MemorySink;
+
+public class ProfilingInterpreterTest {
+    private static final String SOURCE =
+            "var i = 0;\n"
+            + "while (i < 10) {\n"
+            + "    i = i + 1;\n"
+            + "}\n"
+            + "print i;\n";
+
+    private final ErrorReporter reporter = new ErrorReporter(new PrintStream(OutputStream.nullOutputStream()));
+
+    private List<Stmt> parse(String source) {
+        List<Stmt> statements = new Parser(new Scanner(source, reporter).scanBuffer(), reporter).parse();
+        new Resolver().resolve(statements);
+        return statements;
+    }
+
+    @Test
+    public void nodesShouldBeCountedAgainstTheirLines() {
+        // arrange
+        MemorySink output = new MemorySink();
+        ProfilingInterpreter interpreter = new ProfilingInterpreter(output, reporter, new Profile("test.lox"));
+
+        // act
+        interpreter.interpret(parse(SOURCE));
+
+        // assert
+        Profile profile = interpreter.profile();
+        assertEquals("10\n", output.text());
+        assertEquals(1, profile.count(1));
+        // The while statement once, then the grouped condition, the comparison and the variable on every check
+        assertEquals(1 + 11 * 3, profile.count(2));
+        // The statement, the assignment, the addition and the variable on every iteration
+        assertEquals(10 * 4, profile.count(3));
+        assertEquals(0, profile.count(4));
+        assertTrue(profile.totalNanos(2) >= profile.totalNanos(3));
+        assertTrue(profile.totalNanos(2) >= profile.selfNanos(2));
+    }
+
+    @Test
+    public void unboxedSubtreesShouldBeCounted() {
+        // arrange
+        ProfilingInterpreter interpreter = new ProfilingInterpreter(new MemorySink(), reporter, new Profile("test.lox"));
+
+        // act
+        interpreter.interpret(parse("var i = 3;\nprint -(i * 2) - i;\n"));
+
+        // assert
+        // The statement, the subtraction, the negation, the grouping, the product and both variables
+        assertEquals(7, interpreter.profile().count(2));
+    }
+
+    @Test
+    public void linesShouldBeUnwoundAfterRuntimeErrors() {
+        // arrange
+        ProfilingInterpreter interpreter = new ProfilingInterpreter(new MemorySink(), reporter, new Profile("test.lox"));
+
+        // act
+        interpreter.interpret(parse("var a = 1;\nwhile (a > 0) {\n    a = a - \"b\";\n}\n"));
+        interpreter.interpret(parse("a = 2;"));
+
+        // assert
+        // The second program runs at the top level again, not inside the line that failed
+        CallPath root = interpreter.profile().root;
+        assertTrue(reporter.hadRuntimeError());
+        assertEquals(2, root.childCount);
+        assertEquals(1, root.children[0].line);
+        assertEquals(0, root.children[1].children[0].childCount);
+        assertEquals(1 + 2, interpreter.profile().count(1));
+    }
+
+    @Test
+    public void hotLinesShouldShowTheirSource(@TempDir Path directory) throws IOException {
+        // arrange
+        Path script = directory.resolve("test.lox");
+        Files.writeString(script, SOURCE);
+        ProfilingInterpreter interpreter = new ProfilingInterpreter(new MemorySink(), reporter, new Profile("test.lox"));
+        interpreter.interpret(parse(SOURCE));
+        ByteArrayOutputStream table = new ByteArrayOutputStream();
+
+        // act
+        interpreter.profile().printHotLines(new PrintStream(table, true, StandardCharsets.UTF_8), 2, script);
+
+        // assert
+        String[] lines = table.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(4, lines.length);
+        assertTrue(lines[0].startsWith("[profile] 4 lines ran"));
+        assertTrue(lines[2].endsWith("while (i < 10) {") || lines[2].endsWith("i = i + 1;"));
+    }
+
+    @Test
+    public void collapsedStacksShouldNestLines() throws Exception {
+        // arrange
+        String source = "var i = 0;\nwhile (i < 1000000) {\n    i = i + 1;\n}\n";
+        ProfilingInterpreter interpreter = new ProfilingInterpreter(new MemorySink(), reporter, new Profile("test.lox"));
+        StringWriter collapsed = new StringWriter();
+
+        // act
+        interpreter.startSampling(100);
+        interpreter.interpret(parse(source));
+        interpreter.stopSampling();
+        interpreter.profile().writeCollapsed(collapsed);
+
+        // assert
+        for (String line : collapsed.toString().split("\n")) {
+            assertTrue(line.matches("test\\.lox:2(;test\\.lox:3)? \\d+"), line);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.samfoucart.jlox.vm;
+
+import static com.samfoucart.jlox.TestPrograms.parse;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.samfoucart.jlox.ErrorReporter;
+import com.samfoucart.jlox.Interpreter;
+import com.samfoucart.jlox.Stmt;
+import com.samfoucart.jlox.output.MemorySink;
+
+public class VMTest {
+    private static final String SCOPES =
+            "var a = \"global a\";\n"
+            + "var b = \"global b\";\n"
+            + "{\n"
+            + "    var a = \"outer a\";\n"
+            + "    {\n"
+            + "        var a = \"inner a\";\n"
+            + "        print a;\n"
+            + "        print b;\n"
+            + "    }\n"
+            + "    print a;\n"
+            + "}\n"
+            + "print a;\n";
+
+    private static final String LOOP =
+            "var total = 0;\n"
+            + "var i = 0;\n"
+            + "while (i < 10) {\n"
+            + "    var square = i * i;\n"
+            + "    if (square > 20) total = total + square; else total = total - 1;\n"
+            + "    i = i + 1;\n"
+            + "}\n"
+            + "print total;\n"
+            + "print \"done\" + \"!\";\n"
+            + "print !(total == 194) != false;\n";
+
+    private final ErrorReporter reporter = new ErrorReporter(new PrintStream(OutputStream.nullOutputStream()));
+
+    @Test
+    public void scopesShouldMatchInterpreter() {
+        // arrange
+        List<Stmt> statements = parse(SCOPES);
+        MemorySink expected = new MemorySink();
+        MemorySink actual = new MemorySink();
+
+        // act
+        new Interpreter(expected, reporter).interpret(statements);
+        new VM(actual, reporter).interpret(statements);
+
+        // assert
+        assertEquals("inner a\nglobal b\nouter a\nglobal a\n", expected.text());
+        assertEquals(expected.text(), actual.text());
+    }
+
+    @Test
+    public void loopShouldMatchInterpreter() {
+        // arrange
+        List<Stmt> statements = parse(LOOP);
+        MemorySink expected = new MemorySink();
+        MemorySink actual = new MemorySink();
+
+        // act
+        new Interpreter(expected, reporter).interpret(statements);
+        new VM(actual, reporter).interpret(statements);
+
+        // assert
+        assertEquals(expected.text(), actual.text());
+    }
+
+    @Test
+    public void globalsShouldPersistBetweenRuns() {
+        // arrange
+        MemorySink output = new MemorySink();
+        VM vm = new VM(output, reporter);
+
+        // act
+        vm.interpret(parse("var a = 1;"));
+        vm.interpret(parse("{ var a = a + 2; a = a * 10; print a; } print a;"));
+
+        // assert
+        assertEquals("30\n1\n", output.text());
+    }
+}